@@ -0,0 +1,67 @@
+package org.matsim.analysis;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.benchmark.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-event cost of {@link LinkAnalysis.LinkAnalysisEventHandler}, including the set up of the per-link builders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkAnalysisBenchmark {
+
+    @Param({"20000"})
+    public int numberOfTrips;
+
+    private static final int GRID_SIZE = 60;
+
+    private Network network;
+    private List<Event> events;
+
+    @Setup
+    public void setup() {
+        network = BenchmarkFixtures.createGridNetwork(GRID_SIZE);
+        events = BenchmarkFixtures.createCarTripEvents(GRID_SIZE, numberOfTrips, 4711);
+    }
+
+    @Benchmark
+    public Object handleEvents() {
+        LinkAnalysis.LinkAnalysisEventHandler handler = new LinkAnalysis.LinkAnalysisEventHandler(network);
+        for (Event event : events) {
+            if (event instanceof LinkEnterEvent) {
+                handler.handleEvent((LinkEnterEvent) event);
+            } else if (event instanceof LinkLeaveEvent) {
+                handler.handleEvent((LinkLeaveEvent) event);
+            } else if (event instanceof VehicleEntersTrafficEvent) {
+                handler.handleEvent((VehicleEntersTrafficEvent) event);
+            } else if (event instanceof VehicleLeavesTrafficEvent) {
+                handler.handleEvent((VehicleLeavesTrafficEvent) event);
+            }
+        }
+        return handler;
+    }
+
+}
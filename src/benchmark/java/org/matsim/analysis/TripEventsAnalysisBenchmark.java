@@ -0,0 +1,74 @@
+package org.matsim.analysis;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.benchmark.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-event cost of {@link TripEventsAnalysis.EventHandler}. The events are dispatched directly to the handler, so
+ * the events manager is not part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripEventsAnalysisBenchmark {
+
+    @Param({"20000"})
+    public int numberOfTrips;
+
+    private static final int GRID_SIZE = 60;
+
+    private Network network;
+    private List<Event> events;
+
+    @Setup
+    public void setup() {
+        network = BenchmarkFixtures.createGridNetwork(GRID_SIZE);
+        events = BenchmarkFixtures.createCarTripEvents(GRID_SIZE, numberOfTrips, 4711);
+    }
+
+    @Benchmark
+    public Object handleEvents() {
+        TripEventsAnalysis.EventHandler handler = new TripEventsAnalysis.EventHandler(network.getLinks());
+        for (Event event : events) {
+            if (event instanceof LinkEnterEvent) {
+                handler.handleEvent((LinkEnterEvent) event);
+            } else if (event instanceof ActivityEndEvent) {
+                handler.handleEvent((ActivityEndEvent) event);
+            } else if (event instanceof PersonDepartureEvent) {
+                handler.handleEvent((PersonDepartureEvent) event);
+            } else if (event instanceof PersonEntersVehicleEvent) {
+                handler.handleEvent((PersonEntersVehicleEvent) event);
+            } else if (event instanceof PersonLeavesVehicleEvent) {
+                handler.handleEvent((PersonLeavesVehicleEvent) event);
+            } else if (event instanceof ActivityStartEvent) {
+                handler.handleEvent((ActivityStartEvent) event);
+            }
+        }
+        return handler;
+    }
+
+}
@@ -0,0 +1,234 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.geometry.geotools.MGC;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.gis.PolygonFeatureFactory;
+import org.matsim.core.utils.gis.ShapeFileWriter;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Synthetic, self-generated inputs for the JMH benchmarks. Nothing is downloaded, so the benchmarks run offline.
+ * All fixtures are deterministic for a given size and seed.
+ */
+public final class BenchmarkFixtures {
+
+	public static final double LINK_LENGTH = 200.;
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Creates a square grid network with links in both directions. Links carry the "areaKind" and "roadKind"
+	 * attributes required by the analysis classes; every fourth row and column is a main street with higher speed.
+	 */
+	public static Network createGridNetwork(int size) {
+		Network network = NetworkUtils.createNetwork();
+		addGrid(network, size);
+		return network;
+	}
+
+	/**
+	 * Adds the grid of {@link #createGridNetwork(int)} to an existing, e.g. a scenario's, network.
+	 */
+	public static void addGrid(Network network, int size) {
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(nodeId(x, y)),
+						new Coord(x * LINK_LENGTH, y * LINK_LENGTH));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinkPair(network, nodes[x][y], nodes[x + 1][y], y % 4 == 0, x < size / 2);
+				}
+				if (y + 1 < size) {
+					addLinkPair(network, nodes[x][y], nodes[x][y + 1], x % 4 == 0, x < size / 2);
+				}
+			}
+		}
+	}
+
+	private static void addLinkPair(Network network, Node a, Node b, boolean mainStreet, boolean inner) {
+		addLink(network, a, b, mainStreet, inner);
+		addLink(network, b, a, mainStreet, inner);
+	}
+
+	private static void addLink(Network network, Node from, Node to, boolean mainStreet, boolean inner) {
+		Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to,
+				LINK_LENGTH, mainStreet ? 50. / 3.6 : 30. / 3.6, mainStreet ? 1800. : 600., 1.);
+		link.getAttributes().putAttribute("areaKind", inner ? "berlin_umweltzone" : "berlin_outside_umweltzone");
+		link.getAttributes().putAttribute("roadKind", mainStreet ? "main_street" : "side_street");
+	}
+
+	public static String nodeId(int x, int y) {
+		return x + "-" + y;
+	}
+
+	public static Id<Link> linkId(int fromX, int fromY, int toX, int toY) {
+		return Id.createLinkId(nodeId(fromX, fromY) + "_" + nodeId(toX, toY));
+	}
+
+	/**
+	 * Writes an events file with car trips along the rows of a grid network created by
+	 * {@link #createGridNetwork(int)} and reads it back. The events are therefore created exactly the way the
+	 * analysis classes see them when reading an output_events file.
+	 */
+	public static List<Event> createCarTripEvents(int gridSize, int numberOfTrips, long seed) {
+		Random random = new Random(seed);
+		Path eventsFile;
+		try {
+			eventsFile = Files.createTempFile("benchmark-events", ".xml");
+			try (BufferedWriter writer = Files.newBufferedWriter(eventsFile)) {
+				writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
+				for (int trip = 0; trip < numberOfTrips; trip++) {
+					writeTrip(writer, random, gridSize, "p" + trip, 6. * 3600. + trip);
+				}
+				writer.write("</events>\n");
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		List<Event> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+		});
+		EventsUtils.readEvents(eventsManager, eventsFile.toString());
+		eventsFile.toFile().delete();
+		return events;
+	}
+
+	private static void writeTrip(BufferedWriter writer, Random random, int gridSize, String person, double time)
+			throws IOException {
+		int y = random.nextInt(gridSize);
+		int startX = random.nextInt(gridSize / 2);
+		int endX = startX + 2 + random.nextInt(gridSize / 2 - 1);
+		String vehicle = person;
+		String firstLink = linkId(startX, y, startX + 1, y).toString();
+		String lastLink = linkId(endX - 1, y, endX, y).toString();
+
+		writeEvent(writer, time, "actend", "person", person, "link", firstLink, "actType", "home");
+		writeEvent(writer, time, "departure", "person", person, "link", firstLink, "legMode", TransportMode.car);
+		writeEvent(writer, time, "PersonEntersVehicle", "person", person, "vehicle", vehicle);
+		writeEvent(writer, time, "vehicle enters traffic", "person", person, "link", firstLink, "vehicle", vehicle,
+				"networkMode", TransportMode.car, "relativePosition", "1.0");
+		for (int x = startX + 1; x < endX; x++) {
+			time += 15.;
+			writeEvent(writer, time, "left link", "vehicle", vehicle, "link", linkId(x - 1, y, x, y).toString());
+			writeEvent(writer, time, "entered link", "vehicle", vehicle, "link", linkId(x, y, x + 1, y).toString());
+		}
+		time += 15.;
+		writeEvent(writer, time, "vehicle leaves traffic", "person", person, "link", lastLink, "vehicle", vehicle,
+				"networkMode", TransportMode.car, "relativePosition", "1.0");
+		writeEvent(writer, time, "PersonLeavesVehicle", "person", person, "vehicle", vehicle);
+		writeEvent(writer, time, "arrival", "person", person, "link", lastLink, "legMode", TransportMode.car);
+		writeEvent(writer, time, "actstart", "person", person, "link", lastLink, "actType", "work");
+	}
+
+	private static void writeEvent(BufferedWriter writer, double time, String type, String... attributes)
+			throws IOException {
+		writer.write("\t<event time=\"" + time + "\" type=\"" + type + "\"");
+		for (int i = 0; i < attributes.length; i += 2) {
+			writer.write(" " + attributes[i] + "=\"" + attributes[i + 1] + "\"");
+		}
+		writer.write(" />\n");
+	}
+
+	/**
+	 * Creates a rows x columns chessboard of square polygons covering the extent [0, extent] x [0, extent]. The
+	 * features carry the given attributes (the same for all features) plus an "Ortsteil" attribute with a unique
+	 * district name.
+	 */
+	public static Collection<SimpleFeature> createDistrictFeatures(int rowsAndColumns, double extent,
+			Map<String, Object> attributes) {
+		PolygonFeatureFactory.Builder builder = new PolygonFeatureFactory.Builder()
+				.setCrs(MGC.getCRS(TransformationFactory.DHDN_GK4))
+				.setName("district")
+				.addAttribute("Ortsteil", String.class);
+		for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+			builder.addAttribute(attribute.getKey(), attribute.getValue().getClass());
+		}
+		PolygonFeatureFactory factory = builder.create();
+
+		List<SimpleFeature> features = new ArrayList<>();
+		double cellSize = extent / rowsAndColumns;
+		for (int i = 0; i < rowsAndColumns; i++) {
+			for (int j = 0; j < rowsAndColumns; j++) {
+				double minX = i * cellSize;
+				double minY = j * cellSize;
+				Coordinate[] ring = new Coordinate[] { new Coordinate(minX, minY),
+						new Coordinate(minX + cellSize, minY), new Coordinate(minX + cellSize, minY + cellSize),
+						new Coordinate(minX, minY + cellSize), new Coordinate(minX, minY) };
+				Map<String, Object> featureAttributes = new HashMap<>(attributes);
+				featureAttributes.put("Ortsteil", "district_" + i + "_" + j);
+				features.add(factory.createPolygon(ring, featureAttributes, "district_" + i + "_" + j));
+			}
+		}
+		return features;
+	}
+
+	/**
+	 * Writes {@link #createDistrictFeatures(int, double, Map)} to a temporary shape file and returns its path.
+	 */
+	public static String writeDistrictShapeFile(int rowsAndColumns, double extent) {
+		try {
+			Path directory = Files.createTempDirectory("benchmark-shp");
+			directory.toFile().deleteOnExit();
+			String shapeFile = directory.resolve("districts.shp").toString();
+			ShapeFileWriter.writeGeometries(createDistrictFeatures(rowsAndColumns, extent, Map.of()), shapeFile);
+			return shapeFile;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
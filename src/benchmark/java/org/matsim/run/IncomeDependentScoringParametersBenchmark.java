@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.config.groups.ScenarioConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.prepare.population.AssignIncome;
+import org.matsim.pt.config.TransitConfigGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+import playground.vsp.scoring.IncomeDependentUtilityOfMoneyPersonScoringParameters;
+
+/**
+ * Scoring parameter lookups of {@link IncomeDependentUtilityOfMoneyPersonScoringParameters} as bound in
+ * {@link RunBerlinScenario#prepareControler}. "cold" measures the first lookup per person (parameter creation),
+ * "warm" the repeated lookups done for every scored plan in every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncomeDependentScoringParametersBenchmark {
+
+	@Param({"10000"})
+	public int numberOfPersons;
+
+	private Config config;
+	private Scenario scenario;
+	private List<Person> persons;
+
+	private IncomeDependentUtilityOfMoneyPersonScoringParameters warmParameters;
+	private IncomeDependentUtilityOfMoneyPersonScoringParameters coldParameters;
+
+	@Setup
+	public void setup() {
+		config = ConfigUtils.createConfig();
+		config.global().setRandomSeed(4711);
+		for (String type : new String[] { "home", "work", "leisure", "shopping", "other" }) {
+			config.planCalcScore().addActivityParams(new ActivityParams(type).setTypicalDuration(8. * 3600.));
+		}
+		scenario = ScenarioUtils.createScenario(config);
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = population.getFactory().createPerson(Id.createPersonId(i));
+			PopulationUtils.putSubpopulation(person, i % 20 == 0 ? "freight" : "person");
+			population.addPerson(person);
+		}
+		MatsimRandom.reset(config.global().getRandomSeed());
+		AssignIncome.assignIncomeToPersonSubpopulationAccordingToGermanyAverage(population);
+		persons = new ArrayList<>(population.getPersons().values());
+
+		warmParameters = createParameters();
+		for (Person person : persons) {
+			warmParameters.getScoringParameters(person);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void setupCold() {
+		coldParameters = createParameters();
+	}
+
+	private IncomeDependentUtilityOfMoneyPersonScoringParameters createParameters() {
+		// same injection as in the controler, but without starting it
+		return Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Config.class).toInstance(config);
+				bind(Scenario.class).toInstance(scenario);
+				bind(Population.class).toInstance(scenario.getPopulation());
+				bind(PlanCalcScoreConfigGroup.class).toInstance(config.planCalcScore());
+				bind(ScenarioConfigGroup.class).toInstance(config.scenario());
+				bind(TransitConfigGroup.class).toInstance(config.transit());
+			}
+		}).getInstance(IncomeDependentUtilityOfMoneyPersonScoringParameters.class);
+	}
+
+	@Benchmark
+	public void warm(Blackhole blackhole) {
+		for (Person person : persons) {
+			blackhole.consume(warmParameters.getScoringParameters(person));
+		}
+	}
+
+	@Benchmark
+	public void cold(Blackhole blackhole) {
+		for (Person person : persons) {
+			blackhole.consume(coldParameters.getScoringParameters(person));
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.drt;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.benchmark.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Point-in-polygon tests of {@link BerlinShpUtils} against a synthetic service area shape file, with and without the
+ * buffer used for tagging drt links (see {@link RunDrtOpenBerlinScenario#addDRTmode}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BerlinShpUtilsBenchmark {
+
+	private static final double EXTENT = 20000.;
+	private static final int NUMBER_OF_COORDS = 1000;
+
+	@Param({"4", "16"})
+	public int polygonsPerRow;
+
+	private BerlinShpUtils shpUtils;
+	private Coord[] coords;
+
+	@Setup
+	public void setup() {
+		shpUtils = new BerlinShpUtils(BenchmarkFixtures.writeDistrictShapeFile(polygonsPerRow, EXTENT));
+		Random random = new Random(4711);
+		coords = new Coord[NUMBER_OF_COORDS];
+		for (int i = 0; i < NUMBER_OF_COORDS; i++) {
+			coords[i] = new Coord(-0.2 * EXTENT + random.nextDouble() * 1.4 * EXTENT,
+					-0.2 * EXTENT + random.nextDouble() * 1.4 * EXTENT);
+		}
+		// build the buffered geometries outside of the measurement
+		shpUtils.isCoordInDrtServiceAreaWithBuffer(coords[0], 2000.);
+	}
+
+	@Benchmark
+	public void isCoordInDrtServiceArea(Blackhole blackhole) {
+		for (Coord coord : coords) {
+			blackhole.consume(shpUtils.isCoordInDrtServiceArea(coord));
+		}
+	}
+
+	@Benchmark
+	public void isCoordInDrtServiceAreaWithBuffer(Blackhole blackhole) {
+		for (Coord coord : coords) {
+			blackhole.consume(shpUtils.isCoordInDrtServiceAreaWithBuffer(coord, 2000.));
+		}
+	}
+
+}
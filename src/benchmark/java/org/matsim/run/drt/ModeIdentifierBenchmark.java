@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.drt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.pt.PtConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Main mode identification of typical OpenBerlin trips (single mode, pt, intermodal pt+drt, drt fallback) by the
+ * router and the analysis mode identifier.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModeIdentifierBenchmark {
+
+	private final OpenBerlinIntermodalPtDrtRouterModeIdentifier routerModeIdentifier = new OpenBerlinIntermodalPtDrtRouterModeIdentifier();
+	private final OpenBerlinIntermodalPtDrtRouterAnalysisModeIdentifier analysisModeIdentifier = new OpenBerlinIntermodalPtDrtRouterAnalysisModeIdentifier();
+
+	private final List<List<PlanElement>> trips = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		PopulationFactory factory = PopulationUtils.getFactory();
+
+		List<PlanElement> car = new ArrayList<>();
+		car.add(factory.createLeg(TransportMode.car));
+		trips.add(car);
+
+		List<PlanElement> walk = new ArrayList<>();
+		walk.add(factory.createLeg(TransportMode.walk));
+		trips.add(walk);
+
+		List<PlanElement> pt = new ArrayList<>();
+		pt.add(factory.createLeg(TransportMode.non_network_walk));
+		pt.add(factory.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, null));
+		pt.add(factory.createLeg(TransportMode.pt));
+		pt.add(factory.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, null));
+		pt.add(factory.createLeg(TransportMode.walk));
+		pt.add(factory.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, null));
+		pt.add(factory.createLeg(TransportMode.pt));
+		pt.add(factory.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, null));
+		pt.add(factory.createLeg(TransportMode.non_network_walk));
+		trips.add(pt);
+
+		List<PlanElement> ptWithDrtAccess = new ArrayList<>();
+		ptWithDrtAccess.add(factory.createLeg(TransportMode.non_network_walk));
+		ptWithDrtAccess.add(factory.createActivityFromLinkId("drt interaction", null));
+		ptWithDrtAccess.add(factory.createLeg(TransportMode.drt));
+		ptWithDrtAccess.add(factory.createActivityFromLinkId("drt interaction", null));
+		ptWithDrtAccess.add(factory.createLeg(TransportMode.non_network_walk));
+		ptWithDrtAccess.add(factory.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, null));
+		ptWithDrtAccess.add(factory.createLeg(TransportMode.pt));
+		ptWithDrtAccess.add(factory.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, null));
+		ptWithDrtAccess.add(factory.createLeg(TransportMode.non_network_walk));
+		trips.add(ptWithDrtAccess);
+
+		List<PlanElement> drtFallback = new ArrayList<>();
+		drtFallback.add(factory.createLeg(TransportMode.drt + "_fallback"));
+		trips.add(drtFallback);
+	}
+
+	@Benchmark
+	public void routerModeIdentifier(Blackhole blackhole) {
+		for (List<PlanElement> trip : trips) {
+			blackhole.consume(routerModeIdentifier.identifyMainMode(trip));
+		}
+	}
+
+	@Benchmark
+	public void analysisModeIdentifier(Blackhole blackhole) {
+		for (List<PlanElement> trip : trips) {
+			blackhole.consume(analysisModeIdentifier.identifyMainMode(trip));
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+package org.matsim.run.wasteCollection;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.Carriers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.ListMultimap;
+
+/**
+ * The stages of the waste collection pipeline (link to district assignment,
+ * shipment creation and solving with jsprit) on a synthetic scenario of
+ * {@link AbfallScenarioGenerator}, so that the scaling of every stage can be
+ * measured without the Berlin input. Every stage gets the output of the previous
+ * stages, which is created outside of the measurement.
+ *
+ * Started with {@link #main(String[])}, the time and the allocated memory
+ * (gc.alloc.rate.norm, bytes per operation) of every stage are written to
+ * target/abfall-pipeline.json. Other sizes can be given as JMH options, e.g.
+ * "-p gridSize=80 -p districtsPerRow=8".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AbfallPipelineBenchmark {
+
+	@Param({ "20", "40" })
+	public int gridSize;
+
+	@Param({ "4" })
+	public int districtsPerRow;
+
+	@Param({ "2" })
+	public int numberOfDepots;
+
+	@Param({ "4" })
+	public int vehiclesPerDepot;
+
+	@Param({ "10" })
+	public int jspritIterations;
+
+	@Param({ "0" })
+	public int maxShipmentsPerCluster;
+
+	private AbfallScenarioGenerator generator;
+	private ListMultimap<String, String> linksInDistricts;
+
+	@Setup
+	public void setup() {
+		generator = new AbfallScenarioGenerator(gridSize, districtsPerRow, numberOfDepots, vehiclesPerDepot, 8.,
+				4711);
+		linksInDistricts = AbfallUtils.createMapWithLinksInDistricts(generator.getDistricts(),
+				generator.getScenario().getNetwork().getLinks());
+	}
+
+	/**
+	 * The carriers of one day, before the shipments are created.
+	 */
+	@State(Scope.Benchmark)
+	public static class Day {
+		AbfallUtils abfallUtils;
+		Carriers carriers;
+		HashMap<String, Carrier> carrierMap;
+
+		@Setup(Level.Invocation)
+		public void setup(AbfallPipelineBenchmark pipeline) {
+			init(pipeline);
+		}
+
+		void init(AbfallPipelineBenchmark pipeline) {
+			abfallUtils = new AbfallUtils(pipeline.linksInDistricts);
+			abfallUtils.setMaxShipmentsPerCluster(pipeline.maxShipmentsPerCluster);
+			carriers = new Carriers();
+			carrierMap = pipeline.generator.createCarriers(carriers);
+		}
+	}
+
+	/**
+	 * The carriers of one day with their shipments.
+	 */
+	@State(Scope.Benchmark)
+	public static class DayWithShipments {
+		final Day day = new Day();
+
+		@Setup(Level.Invocation)
+		public void setup(AbfallPipelineBenchmark pipeline) {
+			day.init(pipeline);
+			pipeline.createShipments(day);
+		}
+	}
+
+	@Benchmark
+	public Object createMapWithLinksInDistricts() {
+		return AbfallUtils.createMapWithLinksInDistricts(generator.getDistricts(),
+				generator.getScenario().getNetwork().getLinks());
+	}
+
+	@Benchmark
+	public Carriers createShipmentsForSelectedDay(Day day) {
+		createShipments(day);
+		return day.carriers;
+	}
+
+	@Benchmark
+	public Carriers solveWithJsprit(DayWithShipments dayWithShipments) {
+		Day day = dayWithShipments.day;
+		// one worker, so that the benchmark measures jsprit and not the number of cores
+		day.abfallUtils.solveWithJsprit(generator.getScenario(), day.carriers, day.carrierMap, jspritIterations, 1);
+		return day.carriers;
+	}
+
+	private void createShipments(Day day) {
+		day.abfallUtils.createShipmentsForSelectedDay(generator.getDistricts(), AbfallScenarioGenerator.days[0],
+				generator.getGarbageDumps(), generator.getScenario(), day.carriers, day.carrierMap,
+				generator.getScenario().getNetwork().getLinks(), 1100., 41., false);
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+				.include(AbfallPipelineBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON).result("target/abfall-pipeline.json").build()).run();
+	}
+
+}
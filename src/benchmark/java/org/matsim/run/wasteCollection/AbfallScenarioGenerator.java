@@ -0,0 +1,184 @@
+package org.matsim.run.wasteCollection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.benchmark.BenchmarkFixtures;
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities.FleetSize;
+import org.matsim.contrib.freight.carrier.CarrierUtils;
+import org.matsim.contrib.freight.carrier.CarrierVehicle;
+import org.matsim.contrib.freight.carrier.CarrierVehicleTypeLoader;
+import org.matsim.contrib.freight.carrier.CarrierVehicleTypes;
+import org.matsim.contrib.freight.carrier.Carriers;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Synthetic waste collection scenario of configurable size: a grid network of
+ * {@link BenchmarkFixtures#addGrid}, covered by a chessboard of districts with
+ * garbage to collect on every weekday, depots with a finite fleet of trucks on
+ * the diagonal of the grid and one dump in each corner. Every district is
+ * served by the nearest depot and brings its garbage to the nearest dump, as the
+ * districts of the Berlin input. The scenario is deterministic for a given size
+ * and seed and does not need any input files.
+ *
+ * The grid has 4 * gridSize * (gridSize - 1) links, of which about half get a
+ * shipment, because opposite links are collected together.
+ */
+final class AbfallScenarioGenerator {
+
+	static final String[] days = { "MO", "DI", "MI", "DO", "FR" };
+	private static final String[] dumpAttributes = { "Mo-Ent", "Di-Ent", "Mi-Ent", "Do-Ent", "Fr-Ent" };
+
+	private final Scenario scenario;
+	private final Collection<SimpleFeature> districts;
+	private final HashMap<String, Id<Link>> garbageDumps = new LinkedHashMap<String, Id<Link>>();
+	private final Map<String, Id<Link>> depots = new LinkedHashMap<String, Id<Link>>();
+	private final CarrierVehicleTypes vehicleTypes = new CarrierVehicleTypes();
+	private final int vehiclesPerDepot;
+
+	/**
+	 * @param gridSize          number of nodes per row and column of the grid
+	 * @param districtsPerRow   number of districts per row and column
+	 * @param numberOfDepots    number of depots, each one is a carrier
+	 * @param vehiclesPerDepot  number of trucks of every depot
+	 * @param tonsPerDistrict   mean amount of garbage of a district per day; the
+	 *                          amount of every district and day is drawn between
+	 *                          half and one and a half times this value
+	 * @param seed              seed of the garbage amounts
+	 */
+	AbfallScenarioGenerator(int gridSize, int districtsPerRow, int numberOfDepots, int vehiclesPerDepot,
+			double tonsPerDistrict, long seed) {
+		if (gridSize < 2 || districtsPerRow < 1 || numberOfDepots < 1 || vehiclesPerDepot < 1)
+			throw new IllegalArgumentException("The grid needs at least 2 nodes per row and at least one district,"
+					+ " depot and vehicle per depot.");
+		this.vehiclesPerDepot = vehiclesPerDepot;
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(1);
+		config.controler().setOutputDirectory(createOutputDirectory());
+		scenario = ScenarioUtils.createScenario(config);
+		BenchmarkFixtures.addGrid(scenario.getNetwork(), gridSize);
+
+		for (int depot = 0; depot < numberOfDepots; depot++) {
+			int position = Math.min(gridSize - 2, (int) ((depot + 0.5) / numberOfDepots * (gridSize - 1)));
+			depots.put("Depot_" + depot, BenchmarkFixtures.linkId(position, position, position + 1, position));
+		}
+		garbageDumps.put("Dump_SW", BenchmarkFixtures.linkId(0, 0, 1, 0));
+		garbageDumps.put("Dump_SE", BenchmarkFixtures.linkId(gridSize - 2, 0, gridSize - 1, 0));
+		garbageDumps.put("Dump_NW", BenchmarkFixtures.linkId(0, gridSize - 1, 1, gridSize - 1));
+		garbageDumps.put("Dump_NE", BenchmarkFixtures.linkId(gridSize - 2, gridSize - 1, gridSize - 1, gridSize - 1));
+
+		Map<String, Object> garbageAttributes = new LinkedHashMap<String, Object>();
+		for (int day = 0; day < days.length; day++) {
+			garbageAttributes.put(days[day], 0.);
+			garbageAttributes.put(dumpAttributes[day], "");
+		}
+		garbageAttributes.put("Depot", "");
+		districts = BenchmarkFixtures.createDistrictFeatures(districtsPerRow,
+				(gridSize - 1) * BenchmarkFixtures.LINK_LENGTH, garbageAttributes);
+		Random random = new Random(seed);
+		for (SimpleFeature district : districts) {
+			Point center = ((Geometry) district.getDefaultGeometry()).getCentroid();
+			String depot = nearest(depots, center);
+			String dump = nearest(garbageDumps, center);
+			district.setAttribute("Depot", depot);
+			for (int day = 0; day < days.length; day++) {
+				district.setAttribute(days[day], tonsPerDistrict * (0.5 + random.nextDouble()));
+				district.setAttribute(dumpAttributes[day], dump);
+			}
+		}
+
+		// the diesel truck of the Berlin input
+		VehicleType vehicleType = VehicleUtils.createVehicleType(Id.create("diesel_vehicle", VehicleType.class));
+		vehicleType.getCapacity().setOther(11500.);
+		vehicleType.setMaximumVelocity(22.22222222222222);
+		vehicleType.getCostInformation().setFixedCost(982.98).setCostsPerMeter(8.46E-4).setCostsPerSecond(0.);
+		vehicleTypes.getVehicleTypes().put(vehicleType.getId(), vehicleType);
+		scenario.addScenarioElement("carrierVehicleTypes", vehicleTypes);
+	}
+
+	private String nearest(Map<String, Id<Link>> locations, Point point) {
+		String nearest = null;
+		double min = Double.POSITIVE_INFINITY;
+		for (Map.Entry<String, Id<Link>> location : locations.entrySet()) {
+			Coord coord = scenario.getNetwork().getLinks().get(location.getValue()).getFromNode().getCoord();
+			double distance = Math.hypot(coord.getX() - point.getX(), coord.getY() - point.getY());
+			if (distance < min) {
+				min = distance;
+				nearest = location.getKey();
+			}
+		}
+		return nearest;
+	}
+
+	private static String createOutputDirectory() {
+		try {
+			Path directory = Files.createTempDirectory("benchmark-abfall");
+			directory.toFile().deleteOnExit();
+			return directory.toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Creates one carrier without shipments per depot, as
+	 * {@link AbfallUtils#createCarrier(Carriers)} does for the Berlin depots. The
+	 * carriers are changed by the shipment creation and jsprit, so every run needs
+	 * new ones.
+	 *
+	 * @return the carriers by depot name
+	 */
+	HashMap<String, Carrier> createCarriers(Carriers carriers) {
+		HashMap<String, Carrier> carrierMap = new HashMap<String, Carrier>();
+		VehicleType vehicleType = vehicleTypes.getVehicleTypes().values().iterator().next();
+		for (Map.Entry<String, Id<Link>> depot : depots.entrySet()) {
+			Carrier carrier = CarrierUtils.createCarrier(Id.create("BSR_" + depot.getKey(), Carrier.class));
+			CarrierCapabilities.Builder capabilities = CarrierCapabilities.Builder.newInstance().addType(vehicleType)
+					.setFleetSize(FleetSize.FINITE);
+			for (int i = 0; i < vehiclesPerDepot; i++) {
+				capabilities.addVehicle(CarrierVehicle.Builder
+						.newInstance(Id.create("Truck_" + depot.getKey() + "_" + i, Vehicle.class), depot.getValue())
+						.setEarliestStart(6 * 3600).setLatestEnd(14 * 3600).setTypeId(vehicleType.getId()).build());
+			}
+			carrier.setCarrierCapabilities(capabilities.build());
+			carriers.addCarrier(carrier);
+			carrierMap.put(depot.getKey(), carrier);
+		}
+		new CarrierVehicleTypeLoader(carriers).loadVehicleTypes(vehicleTypes);
+		return carrierMap;
+	}
+
+	Scenario getScenario() {
+		return scenario;
+	}
+
+	Collection<SimpleFeature> getDistricts() {
+		return districts;
+	}
+
+	HashMap<String, Id<Link>> getGarbageDumps() {
+		return garbageDumps;
+	}
+
+}
@@ -0,0 +1,91 @@
+package org.matsim.run.wasteCollection;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.benchmark.BenchmarkFixtures;
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.CarrierUtils;
+import org.matsim.contrib.freight.carrier.Carriers;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.opengis.feature.simple.SimpleFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ListMultimap;
+
+/**
+ * Link to district assignment and shipment creation of {@link AbfallUtils} on a synthetic grid network, covered by a
+ * chessboard of districts which all have garbage to collect on monday.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AbfallShipmentsBenchmark {
+
+	@Param({ "30" })
+	public int gridSize;
+
+	@Param({ "4" })
+	public int districtsPerRow;
+
+	private Scenario scenario;
+	private Collection<SimpleFeature> districts;
+	private ListMultimap<String, String> linksInDistricts;
+	private AbfallUtils abfallUtils;
+	private Carriers carriers;
+	private HashMap<String, Carrier> carrierMap;
+
+	@Setup
+	public void setup() {
+		scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		BenchmarkFixtures.addGrid(scenario.getNetwork(), gridSize);
+
+		Map<String, Object> garbageAttributes = new HashMap<>();
+		garbageAttributes.put("MO", 5.);
+		garbageAttributes.put("Mo-Ent", "Ruhleben");
+		garbageAttributes.put("Depot", "Nordring");
+		districts = BenchmarkFixtures.createDistrictFeatures(districtsPerRow, (gridSize - 1) * BenchmarkFixtures.LINK_LENGTH,
+				garbageAttributes);
+		linksInDistricts = AbfallUtils.createMapWithLinksInDistricts(districts, scenario.getNetwork().getLinks());
+	}
+
+	@Setup(Level.Invocation)
+	public void setupCarriers() {
+		carriers = new Carriers();
+		carrierMap = new HashMap<>();
+		carrierMap.put("Nordring", CarrierUtils.createCarrier(Id.create("BSR_Nordring", Carrier.class)));
+		abfallUtils = new AbfallUtils(linksInDistricts);
+	}
+
+	@Benchmark
+	public Object createMapWithLinksInDistricts() {
+		return AbfallUtils.createMapWithLinksInDistricts(districts, scenario.getNetwork().getLinks());
+	}
+
+	@Benchmark
+	public Carriers createShipmentsForSelectedDay() {
+		abfallUtils.createShipmentsForSelectedDay(districts, "MO", AbfallUtils.createDumpMap(), scenario, carriers,
+				carrierMap, scenario.getNetwork().getLinks(), 1100., 41., false);
+		return carriers;
+	}
+
+}
@@ -0,0 +1,281 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.passenger.events.DrtRequestSubmittedEvent;
+import org.matsim.contrib.drt.passenger.events.DrtRequestSubmittedEventHandler;
+import org.matsim.contrib.dvrp.fleet.FleetReader;
+import org.matsim.contrib.dvrp.fleet.FleetSpecificationImpl;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.dvrp.passenger.PassengerDroppedOffEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerDroppedOffEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerPickedUpEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerPickedUpEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Drt demand and supply per square grid cell and hour, collected in one pass over the events:
+ * <ul>
+ * <li>requests by origin and by destination cell, rejections by origin cell (hour of the submission)</li>
+ * <li>pick ups and mean waiting time by origin cell (hour of the submission)</li>
+ * <li>link enters of the drt vehicles and their mean occupancy by cell of the link (hour of the link enter)</li>
+ * </ul>
+ * The cell of every link (by its coord) is looked up once and stored by link id index, and all counts are kept in
+ * primitive arrays, so handling an event needs no map lookups except for the open requests. Events after the last
+ * hour are counted in the last hour.
+ * <p>
+ * {@link #main(String[])} reads an events file of a drt run and writes the cells and hours with at least one count to
+ * a csv file.
+ */
+public final class DrtZonalStatistics implements DrtRequestSubmittedEventHandler, PassengerRequestRejectedEventHandler,
+		PassengerPickedUpEventHandler, PassengerDroppedOffEventHandler, LinkEnterEventHandler {
+
+	private static final Logger log = Logger.getLogger(DrtZonalStatistics.class);
+
+	private final String drtMode;
+	private final double cellSize;
+	private final int hours;
+	private final long[] cells;
+	private final int[] zoneOfLinkIndex;
+	private final boolean[] isDrtVehicleIndex;
+	private final int[] occupancyOfVehicleIndex;
+
+	private final int[] requestsByOrigin;
+	private final int[] requestsByDestination;
+	private final int[] rejections;
+	private final int[] pickUps;
+	private final double[] waitingTimeSum;
+	private final int[] vehicleLinkEnters;
+	private final int[] occupancySum;
+
+	private final Map<Id<Request>, double[]> openRequests = new HashMap<>();
+
+	public static void main(String[] args) {
+		String networkFile = args.length > 0 ? args[0] : "output/berlin-drt-v5.5-1pct/berlin-drt-v5.5-1pct.output_network.xml.gz";
+		String eventsFile = args.length > 1 ? args[1] : "output/berlin-drt-v5.5-1pct/berlin-drt-v5.5-1pct.output_events.xml.gz";
+		String fleetFile = args.length > 2 ? args[2] : "scenarios/berlin-v5.5-1pct/input/drt/berlin-drt-v5.5.drt-by-rndLocations-10000vehicles-4seats.xml.gz";
+		String outputFile = args.length > 3 ? args[3] : "output/berlin-drt-v5.5-1pct/drt_zonal_statistics.csv";
+		String drtMode = args.length > 4 ? args[4] : "drt";
+		double cellSize = args.length > 5 ? Double.parseDouble(args[5]) : 1000.;
+
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile(networkFile);
+		FleetSpecificationImpl fleet = new FleetSpecificationImpl();
+		new FleetReader(fleet).readFile(fleetFile);
+		List<Id<Vehicle>> drtVehicleIds = fleet.getVehicleSpecifications().keySet().stream()
+				.map(id -> Id.create(id, Vehicle.class))
+				.collect(Collectors.toList());
+
+		DrtZonalStatistics statistics = new DrtZonalStatistics(network, drtVehicleIds, drtMode, cellSize, 36);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(statistics);
+		MatsimEventsReader reader = new MatsimEventsReader(events);
+		reader.addCustomEventMapper(DrtRequestSubmittedEvent.EVENT_TYPE, DrtRequestSubmittedEvent::convert);
+		reader.addCustomEventMapper(PassengerRequestRejectedEvent.EVENT_TYPE, PassengerRequestRejectedEvent::convert);
+		reader.addCustomEventMapper(PassengerPickedUpEvent.EVENT_TYPE, PassengerPickedUpEvent::convert);
+		reader.addCustomEventMapper(PassengerDroppedOffEvent.EVENT_TYPE, PassengerDroppedOffEvent::convert);
+		events.initProcessing();
+		reader.readFile(eventsFile);
+		events.finishProcessing();
+
+		statistics.write(outputFile);
+		log.info("Drt zonal statistics written to " + outputFile);
+	}
+
+	/**
+	 * @param drtVehicleIds the vehicles of the drt fleet, only their link enters are counted
+	 * @param hours         the number of hourly time bins
+	 */
+	public DrtZonalStatistics(Network network, Collection<Id<Vehicle>> drtVehicleIds, String drtMode, double cellSize, int hours) {
+		this.drtMode = drtMode;
+		this.cellSize = cellSize;
+		this.hours = hours;
+
+		Map<Long, Integer> zoneOfCell = new HashMap<>();
+		zoneOfLinkIndex = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(zoneOfLinkIndex, -1);
+		for (Link link : network.getLinks().values()) {
+			long cell = cell(link.getCoord().getX(), link.getCoord().getY());
+			zoneOfLinkIndex[link.getId().index()] = zoneOfCell.computeIfAbsent(cell, c -> zoneOfCell.size());
+		}
+		cells = new long[zoneOfCell.size()];
+		zoneOfCell.forEach((cell, zone) -> cells[zone] = cell);
+
+		int maxVehicleIndex = drtVehicleIds.stream().mapToInt(Id::index).max().orElse(-1);
+		isDrtVehicleIndex = new boolean[maxVehicleIndex + 1];
+		drtVehicleIds.forEach(id -> isDrtVehicleIndex[id.index()] = true);
+		occupancyOfVehicleIndex = new int[maxVehicleIndex + 1];
+
+		int bins = cells.length * hours;
+		requestsByOrigin = new int[bins];
+		requestsByDestination = new int[bins];
+		rejections = new int[bins];
+		pickUps = new int[bins];
+		waitingTimeSum = new double[bins];
+		vehicleLinkEnters = new int[bins];
+		occupancySum = new int[bins];
+	}
+
+	private long cell(double x, double y) {
+		return ((long) Math.floor(x / cellSize) << 32) | ((long) Math.floor(y / cellSize) & 0xffffffffL);
+	}
+
+	private int zone(Id<Link> linkId) {
+		return linkId.index() < zoneOfLinkIndex.length ? zoneOfLinkIndex[linkId.index()] : -1;
+	}
+
+	private int bin(int zone, double time) {
+		return zone * hours + Math.min(hours - 1, (int) (time / 3600.));
+	}
+
+	@Override
+	public void handleEvent(DrtRequestSubmittedEvent event) {
+		if (!event.getMode().equals(drtMode)) {
+			return;
+		}
+		int origin = zone(event.getFromLinkId());
+		int destination = zone(event.getToLinkId());
+		if (origin >= 0) {
+			requestsByOrigin[bin(origin, event.getTime())]++;
+		}
+		if (destination >= 0) {
+			requestsByDestination[bin(destination, event.getTime())]++;
+		}
+		openRequests.put(event.getRequestId(), new double[]{origin, event.getTime()});
+	}
+
+	@Override
+	public void handleEvent(PassengerRequestRejectedEvent event) {
+		if (!event.getMode().equals(drtMode)) {
+			return;
+		}
+		double[] request = openRequests.remove(event.getRequestId());
+		if (request != null && request[0] >= 0) {
+			rejections[bin((int) request[0], request[1])]++;
+		}
+	}
+
+	@Override
+	public void handleEvent(PassengerPickedUpEvent event) {
+		if (!event.getMode().equals(drtMode)) {
+			return;
+		}
+		double[] request = openRequests.remove(event.getRequestId());
+		if (request != null && request[0] >= 0) {
+			int bin = bin((int) request[0], request[1]);
+			pickUps[bin]++;
+			waitingTimeSum[bin] += event.getTime() - request[1];
+		}
+		changeOccupancy(Id.create(event.getVehicleId(), Vehicle.class), 1);
+	}
+
+	@Override
+	public void handleEvent(PassengerDroppedOffEvent event) {
+		if (event.getMode().equals(drtMode)) {
+			changeOccupancy(Id.create(event.getVehicleId(), Vehicle.class), -1);
+		}
+	}
+
+	private void changeOccupancy(Id<Vehicle> vehicleId, int change) {
+		if (vehicleId.index() < occupancyOfVehicleIndex.length) {
+			occupancyOfVehicleIndex[vehicleId.index()] += change;
+		}
+	}
+
+	@Override
+	public void handleEvent(LinkEnterEvent event) {
+		int vehicleIndex = event.getVehicleId().index();
+		if (vehicleIndex >= isDrtVehicleIndex.length || !isDrtVehicleIndex[vehicleIndex]) {
+			return;
+		}
+		int zone = zone(event.getLinkId());
+		if (zone >= 0) {
+			int bin = bin(zone, event.getTime());
+			vehicleLinkEnters[bin]++;
+			occupancySum[bin] += occupancyOfVehicleIndex[vehicleIndex];
+		}
+	}
+
+	@Override
+	public void reset(int iteration) {
+		openRequests.clear();
+		Arrays.fill(occupancyOfVehicleIndex, 0);
+		Arrays.fill(requestsByOrigin, 0);
+		Arrays.fill(requestsByDestination, 0);
+		Arrays.fill(rejections, 0);
+		Arrays.fill(pickUps, 0);
+		Arrays.fill(waitingTimeSum, 0);
+		Arrays.fill(vehicleLinkEnters, 0);
+		Arrays.fill(occupancySum, 0);
+	}
+
+	/**
+	 * Writes one line per cell and hour with at least one count. x and y are the centre of the cell.
+	 */
+	public void write(String file) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(file)) {
+			writer.write("x;y;hour;requestsByOrigin;requestsByDestination;rejections;pickUps;meanWaitingTime;drtVehicleLinkEnters;meanOccupancy");
+			writer.newLine();
+			for (int zone = 0; zone < cells.length; zone++) {
+				double x = ((cells[zone] >> 32) + 0.5) * cellSize;
+				double y = ((int) cells[zone] + 0.5) * cellSize;
+				for (int hour = 0; hour < hours; hour++) {
+					int bin = zone * hours + hour;
+					if (requestsByOrigin[bin] + requestsByDestination[bin] + vehicleLinkEnters[bin] == 0) {
+						continue;
+					}
+					writer.write(String.format(Locale.US, "%.0f;%.0f;%d;%d;%d;%d;%d;%.1f;%d;%.3f", x, y, hour,
+							requestsByOrigin[bin], requestsByDestination[bin], rejections[bin], pickUps[bin],
+							pickUps[bin] == 0 ? 0. : waitingTimeSum[bin] / pickUps[bin], vehicleLinkEnters[bin],
+							vehicleLinkEnters[bin] == 0 ? 0. : (double) occupancySum[bin] / vehicleLinkEnters[bin]));
+					writer.newLine();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
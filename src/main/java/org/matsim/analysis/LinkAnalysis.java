@@ -209,7 +209,7 @@ public class LinkAnalysis {
 
     }
 
-    private static class LinkAnalysisEventHandler implements VehicleEntersTrafficEventHandler, LinkEnterEventHandler, LinkLeaveEventHandler, VehicleLeavesTrafficEventHandler {
+    static class LinkAnalysisEventHandler implements VehicleEntersTrafficEventHandler, LinkEnterEventHandler, LinkLeaveEventHandler, VehicleLeavesTrafficEventHandler {
 
         private final Map<Id<Link>, LinkDataBuilder> linkDataBuilders;
 
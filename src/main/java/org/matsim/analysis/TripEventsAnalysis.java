@@ -157,14 +157,14 @@ public class TripEventsAnalysis {
 
     }
 
-    private static class EventHandler implements
+    static class EventHandler implements
             ActivityEndEventHandler, PersonDepartureEventHandler, PersonEntersVehicleEventHandler, LinkEnterEventHandler, PersonLeavesVehicleEventHandler, ActivityStartEventHandler {
 
         private final Map<Id<Link>, ? extends Link> links;
         private final Map<Id<Vehicle>, Map<Id<Person>, TripData>> tripsByVehiclesInTraffic = new HashMap<>();
         private final Map<Id<Person>, List<TripData>> tripsByPerson = new HashMap<>();
 
-        private EventHandler(Map<Id<Link>, ? extends Link> links) {
+        EventHandler(Map<Id<Link>, ? extends Link> links) {
             this.links = links;
         }
 
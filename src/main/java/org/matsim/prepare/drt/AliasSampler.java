@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.prepare.drt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.util.Pair;
+
+/**
+ * Draws from a fixed set of weighted values in constant time (alias method after Vose). The tables are built once
+ * in O(n), afterwards every draw needs one random int and one random double.
+ */
+final class AliasSampler<T> {
+
+	private final List<T> values = new ArrayList<>();
+	private final double[] probability;
+	private final int[] alias;
+
+	/**
+	 * @param values2weights values with non-negative weights, at least one weight has to be positive
+	 */
+	AliasSampler(List<Pair<T, Double>> values2weights) {
+		int n = values2weights.size();
+		double sum = 0;
+		for (Pair<T, Double> pair : values2weights) {
+			if (pair.getSecond() < 0 || pair.getSecond().isNaN() || pair.getSecond().isInfinite()) {
+				throw new IllegalArgumentException("weight of " + pair.getFirst() + " is not a non-negative number: " + pair.getSecond());
+			}
+			values.add(pair.getFirst());
+			sum += pair.getSecond();
+		}
+		if (!(sum > 0)) {
+			throw new IllegalArgumentException("no positive weight in " + n + " values");
+		}
+
+		probability = new double[n];
+		alias = new int[n];
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int nSmall = 0;
+		int nLarge = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = values2weights.get(i).getSecond() * n / sum;
+			if (scaled[i] < 1.) {
+				small[nSmall++] = i;
+			} else {
+				large[nLarge++] = i;
+			}
+		}
+		while (nSmall > 0 && nLarge > 0) {
+			int s = small[--nSmall];
+			int l = large[--nLarge];
+			probability[s] = scaled[s];
+			alias[s] = l;
+			scaled[l] = scaled[l] + scaled[s] - 1.;
+			if (scaled[l] < 1.) {
+				small[nSmall++] = l;
+			} else {
+				large[nLarge++] = l;
+			}
+		}
+		// the rest is 1 up to rounding errors
+		while (nLarge > 0) {
+			probability[large[--nLarge]] = 1.;
+		}
+		while (nSmall > 0) {
+			probability[small[--nSmall]] = 1.;
+		}
+	}
+
+	T sample(Random random) {
+		int i = random.nextInt(probability.length);
+		return random.nextDouble() < probability[i] ? values.get(i) : values.get(alias[i]);
+	}
+
+}
@@ -20,40 +20,52 @@
 
 package org.matsim.prepare.drt;
 
-import org.matsim.api.core.v01.population.Plan;
-import org.matsim.api.core.v01.population.Population;
-import org.matsim.core.population.PopulationUtils;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.prepare.population.OrderedParallelPersonAlgorithm;
+import org.matsim.prepare.population.StreamingPopulationWriterWithAttributes;
 
-import java.util.ArrayList;
-import java.util.List;
-
+/**
+ * Keeps only the selected plans and deletes their drt routes. The plans are streamed, so the memory does not depend
+ * on the size of the population.
+ */
 public class DeleteDRTRoutesFromPopulation {
 
 
 	public static void main(String[] args) {
 
 		String inputPopulation = "D:/svn/shared-svn/projects/pave/matsim-input-files/drt-test-demand/pave109.output_plans.xml.gz";
-		Population population = PopulationUtils.readPopulation(inputPopulation);
-
-
-		population.getPersons().values().parallelStream()
-				.forEach(person -> {
-					List<Plan> plansToDelete = new ArrayList<>();
-					person.getPlans().forEach(plan -> {
-								if (plan.equals(person.getSelectedPlan())){
-									TripStructureUtils.getLegs(plan)
-											.forEach(leg -> {
-												if(leg.getRoute() instanceof GenericRouteImpl && leg.getMode().equals("drt")){
-													leg.setRoute(null);
-												}
-											});
-								} else plansToDelete.add(plan);
-							}
-					);
-					plansToDelete.forEach(plan -> person.removePlan(plan));
+		String outputPopulation = "D:/svn/shared-svn/projects/pave/matsim-input-files/drt-test-demand/pave109.output_plans_selected-only-woDrtRoutes.xml.gz";
+		run(inputPopulation, outputPopulation);
+	}
+
+	public static void run(String inputPopulation, String outputPopulation) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+
+		// the attributes of the input population, e.g. its coordinate reference system, are written as well
+		try (StreamingPopulationWriterWithAttributes writer = new StreamingPopulationWriterWithAttributes(
+				outputPopulation, scenario.getPopulation().getAttributes(), null);
+				OrderedParallelPersonAlgorithm algorithm = new OrderedParallelPersonAlgorithm(
+						DeleteDRTRoutesFromPopulation::deleteDrtRoutes, writer)) {
+			reader.addAlgorithm(algorithm);
+			reader.readFile(inputPopulation);
+		}
+	}
+
+	static Person deleteDrtRoutes(Person person) {
+		person.getPlans().removeIf(plan -> plan != person.getSelectedPlan());
+		TripStructureUtils.getLegs(person.getSelectedPlan())
+				.forEach(leg -> {
+					if(leg.getRoute() instanceof GenericRouteImpl && leg.getMode().equals("drt")){
+						leg.setRoute(null);
+					}
 				});
-		PopulationUtils.writePopulation(population, "D:/svn/shared-svn/projects/pave/matsim-input-files/drt-test-demand/pave109.output_plans_selected-only-woDrtRoutes.xml.gz");
+		return person;
 	}
 }
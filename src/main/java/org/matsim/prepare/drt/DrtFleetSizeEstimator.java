@@ -0,0 +1,376 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.prepare.drt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.StreamingPopulationReader;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Estimates the drt fleet size which is needed to serve the drt trips of a plans file (e.g. the output plans of a drt
+ * run) within the usual drt constraints, without running a simulation. Meant to narrow down the range of fleet sizes
+ * before the expensive full runs, not to replace them.
+ * <p>
+ * The drt network is divided into square cells, and the free speed travel times between the nodes closest to the cell
+ * centres are computed once (one Dijkstra per cell, in parallel). The requests are then inserted greedily in the order
+ * of their departure times into the schedules of the vehicles: for every vehicle, every position of the pick up and
+ * the drop off after the stop the vehicle is already driving to is tried, with the maximum wait time, the maximum
+ * travel time (alpha * direct travel time + beta) of all passengers and the capacity as constraints; the insertion
+ * with the least additional drive time wins. If no vehicle can serve a request, a new vehicle is created at the pick
+ * up location. The number of vehicles at the end is the estimate.
+ * <p>
+ * Vehicles start where they are first needed and never reject, so the estimate tends to be lower than the fleet which
+ * a simulation with randomly placed vehicles needs, and the free speed travel times ignore congestion.
+ */
+public final class DrtFleetSizeEstimator {
+	private static final Logger log = Logger.getLogger(DrtFleetSizeEstimator.class);
+
+	private final Network network;
+	private final Map<Id<Node>, Integer> zoneOfNode = new HashMap<>();
+	private final float[][] travelTimes;
+
+	public static void main(String[] args) {
+		String networkFile = args.length > 0 ? args[0] : "output/berlin-drt-v5.5-1pct/berlin-drt-v5.5-1pct.output_network.xml.gz";
+		String plansFile = args.length > 1 ? args[1] : "output/berlin-drt-v5.5-1pct/berlin-drt-v5.5-1pct.output_plans.xml.gz";
+		String drtMode = args.length > 2 ? args[2] : "drt";
+		int seats = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		double maxWaitTime = args.length > 4 ? Double.parseDouble(args[4]) : 300.;
+		double maxTravelTimeAlpha = args.length > 5 ? Double.parseDouble(args[5]) : 1.7;
+		double maxTravelTimeBeta = args.length > 6 ? Double.parseDouble(args[6]) : 120.;
+		double stopDuration = args.length > 7 ? Double.parseDouble(args[7]) : 60.;
+		double cellSize = args.length > 8 ? Double.parseDouble(args[8]) : 500.;
+
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile(networkFile);
+		Network drtNetwork = NetworkUtils.createNetwork();
+		new TransportModeNetworkFilter(network).filter(drtNetwork, Collections.singleton(drtMode));
+
+		DrtFleetSizeEstimator estimator = new DrtFleetSizeEstimator(drtNetwork, cellSize);
+		List<Request> requests = readRequests(plansFile, drtMode);
+		int fleetSize = estimator.estimateFleetSize(requests, seats, maxWaitTime, maxTravelTimeAlpha, maxTravelTimeBeta, stopDuration);
+		log.info("Estimated fleet size for " + requests.size() + " " + drtMode + " trips: " + fleetSize + " vehicles with " + seats + " seats.");
+	}
+
+	static final class Request {
+		final Id<Link> fromLinkId;
+		final Id<Link> toLinkId;
+		final double time;
+
+		Request(Id<Link> fromLinkId, Id<Link> toLinkId, double time) {
+			this.fromLinkId = fromLinkId;
+			this.toLinkId = toLinkId;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * @return the drt legs of the selected plans, with the departure time of the leg
+	 */
+	static List<Request> readRequests(String plansFile, String drtMode) {
+		List<Request> requests = new ArrayList<>();
+		int[] legsWithoutDepartureTime = {0};
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+		reader.addAlgorithm(person -> {
+			Plan plan = person.getSelectedPlan();
+			for (Leg leg : TripStructureUtils.getLegs(plan)) {
+				if (leg.getMode().equals(drtMode) && leg.getRoute() != null) {
+					if (leg.getDepartureTime().isDefined()) {
+						requests.add(new Request(leg.getRoute().getStartLinkId(), leg.getRoute().getEndLinkId(), leg.getDepartureTime().seconds()));
+					} else {
+						legsWithoutDepartureTime[0]++;
+					}
+				}
+			}
+		});
+		reader.readFile(plansFile);
+		if (legsWithoutDepartureTime[0] > 0) {
+			log.warn(legsWithoutDepartureTime[0] + " " + drtMode + " legs without departure time are ignored.");
+		}
+		return requests;
+	}
+
+	/**
+	 * @param drtNetwork the network on which the drt vehicles drive
+	 * @param cellSize   the side length of the cells of the travel time matrix
+	 */
+	DrtFleetSizeEstimator(Network drtNetwork, double cellSize) {
+		this.network = drtNetwork;
+
+		// the node closest to the centre of every cell represents the cell
+		Map<List<Long>, Node> cellCentreNodes = new HashMap<>();
+		Map<Id<Node>, List<Long>> cellOfNode = new HashMap<>();
+		for (Node node : drtNetwork.getNodes().values()) {
+			List<Long> cell = Arrays.asList((long) Math.floor(node.getCoord().getX() / cellSize), (long) Math.floor(node.getCoord().getY() / cellSize));
+			cellOfNode.put(node.getId(), cell);
+			Coord centre = new Coord((cell.get(0) + 0.5) * cellSize, (cell.get(1) + 0.5) * cellSize);
+			cellCentreNodes.merge(cell, node, (current, candidate) ->
+					NetworkUtils.getEuclideanDistance(candidate.getCoord(), centre) < NetworkUtils.getEuclideanDistance(current.getCoord(), centre) ? candidate : current);
+		}
+		List<Node> zoneNodes = new ArrayList<>(cellCentreNodes.values());
+		zoneNodes.sort(Comparator.comparing(Node::getId));
+		Map<List<Long>, Integer> zoneOfCell = new HashMap<>();
+		for (int zone = 0; zone < zoneNodes.size(); zone++) {
+			zoneOfCell.put(cellOfNode.get(zoneNodes.get(zone).getId()), zone);
+		}
+		cellOfNode.forEach((nodeId, cell) -> zoneOfNode.put(nodeId, zoneOfCell.get(cell)));
+
+		// free speed graph as arrays, so that the Dijkstras do not need any maps
+		List<Node> nodes = new ArrayList<>(drtNetwork.getNodes().values());
+		Map<Id<Node>, Integer> nodeIndex = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			nodeIndex.put(nodes.get(i).getId(), i);
+		}
+		int[] firstLink = new int[nodes.size() + 1];
+		int[] linkToNode = new int[drtNetwork.getLinks().size()];
+		double[] linkTravelTime = new double[drtNetwork.getLinks().size()];
+		int l = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			firstLink[i] = l;
+			for (Link link : nodes.get(i).getOutLinks().values()) {
+				linkToNode[l] = nodeIndex.get(link.getToNode().getId());
+				linkTravelTime[l] = link.getLength() / link.getFreespeed();
+				l++;
+			}
+		}
+		firstLink[nodes.size()] = l;
+
+		int[] zoneNodeIndices = zoneNodes.stream().mapToInt(node -> nodeIndex.get(node.getId())).toArray();
+		travelTimes = new float[zoneNodes.size()][];
+		IntStream.range(0, zoneNodes.size()).parallel().forEach(origin -> {
+			double[] times = dijkstra(zoneNodeIndices[origin], firstLink, linkToNode, linkTravelTime);
+			float[] row = new float[zoneNodeIndices.length];
+			for (int destination = 0; destination < row.length; destination++) {
+				row[destination] = (float) times[zoneNodeIndices[destination]];
+			}
+			travelTimes[origin] = row;
+		});
+		log.info("Travel time matrix with " + zoneNodes.size() + " zones of " + cellSize + "m for " + nodes.size() + " drt nodes.");
+	}
+
+	private static double[] dijkstra(int start, int[] firstLink, int[] linkToNode, double[] linkTravelTime) {
+		double[] times = new double[firstLink.length - 1];
+		Arrays.fill(times, Double.POSITIVE_INFINITY);
+		times[start] = 0;
+		PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble(entry -> entry[0]));
+		queue.add(new double[]{0, start});
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int node = (int) entry[1];
+			if (entry[0] > times[node]) {
+				continue; // outdated entry
+			}
+			for (int l = firstLink[node]; l < firstLink[node + 1]; l++) {
+				double time = entry[0] + linkTravelTime[l];
+				if (time < times[linkToNode[l]]) {
+					times[linkToNode[l]] = time;
+					queue.add(new double[]{time, linkToNode[l]});
+				}
+			}
+		}
+		return times;
+	}
+
+	private static final class Stop {
+		final int zone;
+		final boolean pickUp;
+		final double latestTime;
+		double departureTime;
+
+		Stop(int zone, boolean pickUp, double latestTime) {
+			this.zone = zone;
+			this.pickUp = pickUp;
+			this.latestTime = latestTime;
+		}
+	}
+
+	private static final class Vehicle {
+		int zone;
+		double time;
+		int load = 0;
+		final List<Stop> stops = new ArrayList<>();
+
+		Vehicle(int zone, double time) {
+			this.zone = zone;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * @return the number of vehicles needed by the greedy insertion
+	 */
+	int estimateFleetSize(List<Request> requests, int capacity, double maxWaitTime, double maxTravelTimeAlpha,
+			double maxTravelTimeBeta, double stopDuration) {
+		List<Request> sortedRequests = new ArrayList<>(requests);
+		sortedRequests.sort(Comparator.comparingDouble(request -> request.time));
+		List<Vehicle> vehicles = new ArrayList<>();
+		int unservable = 0;
+
+		for (Request request : sortedRequests) {
+			int fromZone = zoneOfLink(request.fromLinkId);
+			int toZone = zoneOfLink(request.toLinkId);
+			if (fromZone < 0 || toZone < 0 || Double.isInfinite(travelTimes[fromZone][toZone])) {
+				unservable++;
+				continue;
+			}
+			double directTravelTime = travelTimes[fromZone][toZone];
+			Stop pickUp = new Stop(fromZone, true, request.time + maxWaitTime);
+			Stop dropOff = new Stop(toZone, false, request.time + maxTravelTimeAlpha * directTravelTime + maxTravelTimeBeta);
+
+			Vehicle bestVehicle = null;
+			int bestPickUpIndex = -1;
+			int bestDropOffIndex = -1;
+			double bestCost = Double.POSITIVE_INFINITY;
+			for (Vehicle vehicle : vehicles) {
+				passStops(vehicle, request.time);
+				int firstIndex = vehicle.stops.isEmpty() ? 0 : 1; // no diversion on the way to the next stop
+				if (earliestArrival(vehicle, request.time, fromZone) > pickUp.latestTime) {
+					continue;
+				}
+				double currentEnd = Math.max(schedule(vehicle, request.time, null, -1, null, -1, capacity, stopDuration, false), request.time);
+				for (int i = firstIndex; i <= vehicle.stops.size(); i++) {
+					for (int j = i; j <= vehicle.stops.size(); j++) {
+						double cost = schedule(vehicle, request.time, pickUp, i, dropOff, j, capacity, stopDuration, false) - currentEnd;
+						if (cost < bestCost) {
+							bestCost = cost;
+							bestVehicle = vehicle;
+							bestPickUpIndex = i;
+							bestDropOffIndex = j;
+						}
+					}
+				}
+			}
+
+			if (bestVehicle == null) {
+				bestVehicle = new Vehicle(fromZone, request.time);
+				vehicles.add(bestVehicle);
+				bestPickUpIndex = 0;
+				bestDropOffIndex = 0;
+			}
+			schedule(bestVehicle, request.time, pickUp, bestPickUpIndex, dropOff, bestDropOffIndex, capacity, stopDuration, true);
+		}
+
+		if (unservable > 0) {
+			log.warn(unservable + " requests can not be served on the drt network and are ignored.");
+		}
+		return vehicles.size();
+	}
+
+	/**
+	 * @return the zone of the to node of the link, or -1 if the link is not on the drt network
+	 */
+	private int zoneOfLink(Id<Link> linkId) {
+		Link link = network.getLinks().get(linkId);
+		return link == null ? -1 : zoneOfNode.get(link.getToNode().getId());
+	}
+
+	/**
+	 * Removes the stops which the vehicle has left before the given time.
+	 */
+	private static void passStops(Vehicle vehicle, double time) {
+		while (!vehicle.stops.isEmpty() && vehicle.stops.get(0).departureTime <= time) {
+			Stop stop = vehicle.stops.remove(0);
+			vehicle.zone = stop.zone;
+			vehicle.time = stop.departureTime;
+			vehicle.load += stop.pickUp ? 1 : -1;
+		}
+	}
+
+	private double earliestArrival(Vehicle vehicle, double now, int zone) {
+		if (vehicle.stops.isEmpty()) {
+			return Math.max(vehicle.time, now) + travelTimes[vehicle.zone][zone];
+		}
+		Stop next = vehicle.stops.get(0);
+		return next.departureTime + travelTimes[next.zone][zone];
+	}
+
+	/**
+	 * Drives through the stops of the vehicle with the pick up inserted before stop pickUpIndex and the drop off
+	 * before stop dropOffIndex (after the pick up if both indices are the same).
+	 *
+	 * @return the departure time at the last stop, or infinity if a time window or the capacity is violated (only
+	 *         checked if the schedule is not applied, a new vehicle gets its first request in any case)
+	 */
+	private double schedule(Vehicle vehicle, double now, Stop pickUp, int pickUpIndex, Stop dropOff, int dropOffIndex,
+			int capacity, double stopDuration, boolean apply) {
+		List<Stop> sequence = new ArrayList<>(vehicle.stops.size() + 2);
+		for (int i = 0; i <= vehicle.stops.size(); i++) {
+			if (pickUp != null && i == pickUpIndex) {
+				sequence.add(pickUp);
+			}
+			if (dropOff != null && i == dropOffIndex) {
+				sequence.add(dropOff);
+			}
+			if (i < vehicle.stops.size()) {
+				sequence.add(vehicle.stops.get(i));
+			}
+		}
+
+		int zone = vehicle.zone;
+		// an idle vehicle leaves when the request is submitted
+		double time = vehicle.stops.isEmpty() ? Math.max(vehicle.time, now) : vehicle.time;
+		int load = vehicle.load;
+		double[] departureTimes = new double[sequence.size()];
+		for (int i = 0; i < sequence.size(); i++) {
+			Stop stop = sequence.get(i);
+			double arrival = time + travelTimes[zone][stop.zone];
+			load += stop.pickUp ? 1 : -1;
+			if (!apply && (arrival > stop.latestTime || load > capacity)) {
+				return Double.POSITIVE_INFINITY;
+			}
+			time = arrival + stopDuration;
+			departureTimes[i] = time;
+			zone = stop.zone;
+		}
+
+		if (apply) {
+			for (int i = 0; i < sequence.size(); i++) {
+				sequence.get(i).departureTime = departureTimes[i];
+			}
+			vehicle.stops.clear();
+			vehicle.stops.addAll(sequence);
+		}
+		return time;
+	}
+
+}
@@ -27,10 +27,8 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.opencsv.CSVWriter;
-import org.apache.commons.math3.distribution.EnumeratedDistribution;
 import org.apache.commons.math3.util.Pair;
 import org.apache.log4j.Logger;
-import org.locationtech.jts.geom.Point;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
@@ -53,6 +51,7 @@ import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.router.StageActivityTypeIdentifier;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
@@ -75,6 +74,7 @@ public class DrtVehicleCreator {
 	private final String drtNetworkMode = "drt";
 	private final BerlinShpUtils shpUtils;
 	private final Network drtNetwork;
+	private final QuadTree<Link> startLinksIndex;
 	private List<Pair<Id<Link>, Double>> links2weights = new ArrayList();
 
 	public static void main(String[] args) {
@@ -88,7 +88,7 @@ public class DrtVehicleCreator {
 //		String vehiclesFilePrefix = "berlin-drt-v5.5.spandau_b-drt-by-actLocations-sqrt-";
 		String vehiclesFilePrefix = "berlin-drt-v5.5.drt-by-rndLocations-";
 
-		Set<Integer> numbersOfVehicles = new HashSet<>();
+		Set<Integer> numbersOfVehicles = new TreeSet<>();
 		numbersOfVehicles.add(20);
 		numbersOfVehicles.add(30);
 		numbersOfVehicles.add(50);
@@ -119,10 +119,8 @@ public class DrtVehicleCreator {
 		DrtVehicleCreator tvc = new DrtVehicleCreator(networkFile, drtServiceAreaShapeFile, ct);
 //		tvc.setLinkWeightsByActivities(populationFile, facilitiesFile);
 //		tvc.setWeightsToSquareRoot();
-		for (int numberOfVehicles: numbersOfVehicles) {
-//			tvc.createVehiclesByWeightedDraw(numberOfVehicles, seats, vehiclesFilePrefix);
-			tvc.createVehiclesByRandomPointInShape(numberOfVehicles, seats, vehiclesFilePrefix);
-		}
+//		tvc.createNestedVehiclesByWeightedDraw(numbersOfVehicles, seats, vehiclesFilePrefix);
+		tvc.createNestedVehiclesByRandomPointInShape(numbersOfVehicles, seats, vehiclesFilePrefix);
 }
 
 	public DrtVehicleCreator(String networkfile, String drtServiceAreaShapeFile, CoordinateTransformation ct) {
@@ -144,25 +142,54 @@ public class DrtVehicleCreator {
 		new TransportModeNetworkFilter(scenario.getNetwork()).filter(drtNetwork, filterTransportModes);
 		new NetworkWriter(drtNetwork).write("drtNetwork.xml.gz");
 
+		// only links which can be start links, so that no draw has to be rejected
+		double[] boundingBox = NetworkUtils.getBoundingBox(drtNetwork.getNodes().values());
+		startLinksIndex = new QuadTree<>(boundingBox[0], boundingBox[1], boundingBox[2], boundingBox[3]);
+		drtNetwork.getLinks().values().parallelStream().
+				filter(link -> link.getAllowedModes().contains(drtNetworkMode)).
+				filter(link -> shpUtils.isCoordInDrtServiceArea(link.getFromNode().getCoord()) && shpUtils.isCoordInDrtServiceArea(link.getToNode().getCoord())).
+				collect(Collectors.toList()).
+				forEach(link -> startLinksIndex.put(link.getCoord().getX(), link.getCoord().getY(), link));
+		log.info(startLinksIndex.size() + " of " + drtNetwork.getLinks().size() + " drt links can be start links.");
 	}
 
 	public final void createVehiclesByWeightedDraw(int amount, int seats, String vehiclesFilePrefix) {
-		List<DvrpVehicleSpecification> vehicles = new ArrayList<>();
-		EnumeratedDistribution<Id<Link>> weightedLinkDraw = new EnumeratedDistribution<>(links2weights);
+		createNestedVehiclesByWeightedDraw(Collections.singleton(amount), seats, vehiclesFilePrefix);
+	}
 
-		for (int i = 0 ; i< amount; i++) {
-			Id<Link> linkId = weightedLinkDraw.sample();
+	/**
+	 * Draws the start links of the largest fleet once and writes every smaller fleet as the first vehicles of that
+	 * fleet. The draws are independent, so every prefix is a draw of its own size, and a smaller fleet is always a
+	 * subset of a larger one (same vehicle ids and start links).
+	 */
+	public final void createNestedVehiclesByWeightedDraw(Collection<Integer> amounts, int seats, String vehiclesFilePrefix) {
+		AliasSampler<Id<Link>> weightedLinkDraw = new AliasSampler<>(links2weights);
+		List<Id<Link>> startLinkIds = new ArrayList<>();
+
+		for (int i = 0 ; i< Collections.max(amounts); i++) {
+			startLinkIds.add(weightedLinkDraw.sample(random));
+		}
+		writeNestedFleets(startLinkIds, amounts, seats, vehiclesFilePrefix);
+	}
+
+	private void writeNestedFleets(List<Id<Link>> startLinkIds, Collection<Integer> amounts, int seats, String vehiclesFilePrefix) {
+		List<DvrpVehicleSpecification> vehicles = new ArrayList<>();
+		for (int i = 0 ; i< startLinkIds.size(); i++) {
 			vehicles.add(ImmutableDvrpVehicleSpecification.newBuilder().id(Id.create("drt" + i, DvrpVehicle.class))
-					.startLinkId(linkId)
+					.startLinkId(startLinkIds.get(i))
 					.capacity(seats)
 					.serviceBeginTime(Math.round(1))
 					.serviceEndTime(Math.round(30 * 3600))
 					.build());
 		}
-		String fileNameBase = vehiclesFilePrefix + amount + "vehicles-" + seats + "seats";
-		new FleetWriter(vehicles.stream()).write(fileNameBase + ".xml.gz");
 
-		writeVehStartPositionsCSV(vehicles, fileNameBase);
+		for (int amount : amounts) {
+			List<DvrpVehicleSpecification> fleet = vehicles.subList(0, amount);
+			String fileNameBase = vehiclesFilePrefix + amount + "vehicles-" + seats + "seats";
+			new FleetWriter(fleet.stream()).write(fileNameBase + ".xml.gz");
+
+			writeVehStartPositionsCSV(fleet, fileNameBase);
+		}
 	}
 
 	private void writeVehStartPositionsCSV(List<DvrpVehicleSpecification> vehicles, String fileNameBase) {
@@ -231,41 +258,26 @@ public class DrtVehicleCreator {
 	}
 
 	public final void createVehiclesByRandomPointInShape(int amount, int seats, String vehiclesFilePrefix) {
-		List<DvrpVehicleSpecification> vehicles = new ArrayList<>();
+		createNestedVehiclesByRandomPointInShape(Collections.singleton(amount), seats, vehiclesFilePrefix);
+	}
 
-		for (int i = 0 ; i< amount; i++) {
-			Link link = null;
-			
-			while (link == null) {
-				Point p = shpUtils.getRandomPointInServiceArea(random);
-				link = NetworkUtils.getNearestLinkExactly(drtNetwork, ct.transform( MGC.point2Coord(p)));
-				if (shpUtils.isCoordInDrtServiceArea(link.getFromNode().getCoord()) && shpUtils.isCoordInDrtServiceArea(link.getToNode().getCoord())) {
-					if (link.getAllowedModes().contains(drtNetworkMode)) {
-						// ok
-					} else {
-						link = null;
-					}
-					// ok, the link is within the shape file
-				} else {
-					link = null;
-				}
-			}
+	/**
+	 * Same as {@link #createNestedVehiclesByWeightedDraw(Collection, int, String)}, but the start links are the links
+	 * next to random points in the service area. Only drt links with both nodes in the service area are considered,
+	 * the nearest one is the one with the nearest center.
+	 */
+	public final void createNestedVehiclesByRandomPointInShape(Collection<Integer> amounts, int seats, String vehiclesFilePrefix) {
+		List<Id<Link>> startLinkIds = new ArrayList<>();
+
+		for (int i = 0 ; i< Collections.max(amounts); i++) {
+			Coord coord = ct.transform(MGC.point2Coord(shpUtils.getRandomPointInServiceArea(random)));
+			Link link = startLinksIndex.getClosest(coord.getX(), coord.getY());
 			
 			if (i%100 == 0) log.info("#"+i);
 
-			vehicles.add(ImmutableDvrpVehicleSpecification.newBuilder().id(Id.create("drt" + i, DvrpVehicle.class))
-					.startLinkId(link.getId())
-					.capacity(seats)
-					.serviceBeginTime(Math.round(1))
-					.serviceEndTime(Math.round(30 * 3600))
-					.build());
-
-
+			startLinkIds.add(link.getId());
 		}
-		String fileNameBase = vehiclesFilePrefix + amount + "vehicles-" + seats + "seats";
-		new FleetWriter(vehicles.stream()).write(fileNameBase + ".xml.gz");
-
-		writeVehStartPositionsCSV(vehicles, fileNameBase);
+		writeNestedFleets(startLinkIds, amounts, seats, vehiclesFilePrefix);
 	}
 
 }
@@ -24,13 +24,15 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.api.core.v01.population.Population;
-import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.scenario.ScenarioUtils;
 
 /**
+* Writes the persons whose selected plan contains a drt leg, with only the selected plan. The plans are streamed, so
+* the memory does not depend on the size of the population.
+*
 * @author ikaddoura
 */
 
@@ -51,34 +53,35 @@ public class FilterSelectedPlansWithDrtMode {
 		
 		Config config = ConfigUtils.createConfig();
 		config.global().setCoordinateSystem("EPSG:31468");
-		config.plans().setInputFile(inputPlans);
 		config.plans().setInputCRS("EPSG:31468");
-		Scenario scInput = ScenarioUtils.loadScenario(config);
+		Scenario scInput = ScenarioUtils.createScenario(config);
 		
-		Scenario scOutput = ScenarioUtils.createScenario(ConfigUtils.createConfig());
-		Population popOutput = scOutput.getPopulation();
-		popOutput.getAttributes().putAttribute("coordinateReferenceSystem", "EPSG:31468");
+		StreamingPopulationReader reader = new StreamingPopulationReader(scInput);
 		
-		for (Person p : scInput.getPopulation().getPersons().values()){
-			if (p.getSelectedPlan().getPlanElements().stream().
-					filter(pe -> pe instanceof Leg).
-					map(l -> ((Leg) l).getMode()).
-					anyMatch(mode -> mode.equals(TransportMode.drt)))  {
-				Person personNew = popOutput.getFactory().createPerson(p.getId());
-
-				for (String attribute : p.getAttributes().getAsMap().keySet()) {
-					personNew.getAttributes().putAttribute(attribute, p.getAttributes().getAttribute(attribute));
-				}
-				personNew.addPlan(p.getSelectedPlan());
+		log.info("Filtering and writing population...");
+		// the persons are written in the coordinate system of the config, together with the other population attributes
+		try (StreamingPopulationWriterWithAttributes writer = new StreamingPopulationWriterWithAttributes(outputPlans,
+				scInput.getPopulation().getAttributes(), config.global().getCoordinateSystem());
+				OrderedParallelPersonAlgorithm algorithm = new OrderedParallelPersonAlgorithm(
+						FilterSelectedPlansWithDrtMode::filterSelectedPlanWithDrt, writer)) {
+			reader.addAlgorithm(algorithm);
+			reader.readFile(inputPlans);
+		}
+		log.info("Filtering and writing population... Done.");
+	}
 
-				popOutput.addPerson(personNew);
-			}
+	/**
+	 * @return the person with only the selected plan, or null if the selected plan has no drt leg
+	 */
+	static Person filterSelectedPlanWithDrt(Person p) {
+		if (p.getSelectedPlan().getPlanElements().stream().
+				filter(pe -> pe instanceof Leg).
+				map(l -> ((Leg) l).getMode()).
+				anyMatch(mode -> mode.equals(TransportMode.drt)))  {
+			p.getPlans().removeIf(plan -> plan != p.getSelectedPlan());
+			return p;
 		}
-		
-		log.info("Writing population...");
-		new PopulationWriter(scOutput.getPopulation()).write(outputPlans);
-		log.info("Writing population... Done.");
+		return null;
 	}
 
 }
-
@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.prepare.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.population.io.StreamingPopulationReader;
+import org.matsim.core.population.io.StreamingPopulationWriter;
+
+/**
+ * Person algorithm for a {@link StreamingPopulationReader} which transforms the persons in parallel and passes them on
+ * in the order of the input, e.g. to a {@link StreamingPopulationWriter}. The persons are collected into batches; a
+ * batch is transformed in the background while the reader parses the next one, so at most two batches are in memory.
+ * The transformation must not depend on other persons. Persons for which it returns null are dropped.
+ * <p>
+ * {@link #close()} has to be called after reading, it passes on the last batch.
+ */
+public final class OrderedParallelPersonAlgorithm implements PersonAlgorithm, AutoCloseable {
+
+	private final Function<Person, Person> transformation;
+	private final Consumer<Person> consumer;
+	private final int batchSize;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	private List<Person> batch;
+	private Future<List<Person>> previousBatch = null;
+
+	public OrderedParallelPersonAlgorithm(Function<Person, Person> transformation, Consumer<Person> consumer, int batchSize) {
+		this.transformation = transformation;
+		this.consumer = consumer;
+		this.batchSize = batchSize;
+		this.batch = new ArrayList<>(batchSize);
+	}
+
+	public OrderedParallelPersonAlgorithm(Function<Person, Person> transformation, Consumer<Person> consumer) {
+		this(transformation, consumer, 1000);
+	}
+
+	@Override
+	public void run(Person person) {
+		batch.add(person);
+		if (batch.size() == batchSize) {
+			submitBatch();
+		}
+	}
+
+	private void submitBatch() {
+		List<Person> persons = batch;
+		batch = new ArrayList<>(batchSize);
+		passOnPreviousBatch();
+		// the stream is ordered, so the transformed persons keep the order of the input
+		previousBatch = executor.submit(() -> persons.parallelStream()
+				.map(transformation)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList()));
+	}
+
+	private void passOnPreviousBatch() {
+		if (previousBatch != null) {
+			try {
+				previousBatch.get().forEach(consumer);
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException("Transforming the persons failed.", e);
+			}
+			previousBatch = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (!batch.isEmpty()) {
+				submitBatch();
+			}
+			passOnPreviousBatch();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
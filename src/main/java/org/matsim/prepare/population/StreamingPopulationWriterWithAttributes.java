@@ -0,0 +1,86 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.prepare.population;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.io.StreamingPopulationWriter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes the persons one by one like the {@link StreamingPopulationWriter}, but with the attributes of a population in
+ * the header, in particular its coordinateReferenceSystem, which the {@link StreamingPopulationWriter} does not write.
+ * The header is written when the first person arrives, so the attributes of a population which is read at the same
+ * time, e.g. by a StreamingPopulationReader, are complete by then.
+ * <p>
+ * {@link #close()} has to be called after the last person.
+ */
+public final class StreamingPopulationWriterWithAttributes implements Consumer<Person>, AutoCloseable {
+
+	private final String filename;
+	private final Attributes attributes;
+	private final String coordinateReferenceSystem;
+	private PopulationWriter writer = null;
+
+	/**
+	 * @param attributes                the attributes written to the header, they are copied when the first person
+	 *                                  arrives
+	 * @param coordinateReferenceSystem the coordinate reference system of the written persons, null to keep the one of
+	 *                                  the attributes
+	 */
+	public StreamingPopulationWriterWithAttributes(String filename, Attributes attributes, String coordinateReferenceSystem) {
+		this.filename = filename;
+		this.attributes = attributes;
+		this.coordinateReferenceSystem = coordinateReferenceSystem;
+	}
+
+	@Override
+	public void accept(Person person) {
+		startIfNecessary();
+		writer.writePerson(person);
+	}
+
+	private void startIfNecessary() {
+		if (writer == null) {
+			Population header = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+			for (Map.Entry<String, Object> attribute : attributes.getAsMap().entrySet()) {
+				header.getAttributes().putAttribute(attribute.getKey(), attribute.getValue());
+			}
+			if (coordinateReferenceSystem != null) {
+				header.getAttributes().putAttribute("coordinateReferenceSystem", coordinateReferenceSystem);
+			}
+			writer = new PopulationWriter(header);
+			writer.writeStartPlans(filename);
+		}
+	}
+
+	@Override
+	public void close() {
+		startIfNecessary();
+		writer.writeEndPlans();
+	}
+
+}
@@ -35,6 +35,10 @@ public class BerlinExperimentalConfigGroup extends ReflectiveConfigGroup {
 
     private static final String POPULATION_DOWNSAMPLE_FACTOR = "populationDownsampleFactor";
     private static final String TAG_DRT_LINKS_BUFFER_AROUND_SERVICE_AREA_SHP = "tagDrtLinksBufferAroundServiceAreaShp";
+    private static final String WRITE_PHASE_TIMINGS = "writePhaseTimings";
+    private static final String DRT_NETWORK_CACHE_DIRECTORY = "drtNetworkCacheDirectory";
+    private static final String DRT_SPEED_UP_STATE_FILE = "drtSpeedUpStateFile";
+    private static final String DRT_SPEED_UP_MAX_RELATIVE_DRIFT = "drtSpeedUpMaxRelativeDrift";
 	
 	public BerlinExperimentalConfigGroup() {
 		super(GROUP_NAME);
@@ -46,6 +50,10 @@ public class BerlinExperimentalConfigGroup extends ReflectiveConfigGroup {
 	
 	private double populationDownsampleFactor = 1.0;
     private double tagDrtLinksBufferAroundServiceAreaShp = 2000.0;
+    private boolean writePhaseTimings = false;
+    private String drtNetworkCacheDirectory = null;
+    private String drtSpeedUpStateFile = null;
+    private double drtSpeedUpMaxRelativeDrift = -1.0;
 	
     @StringGetter(POPULATION_DOWNSAMPLE_FACTOR)
     public double getPopulationDownsampleFactor() {
@@ -66,6 +74,59 @@ public class BerlinExperimentalConfigGroup extends ReflectiveConfigGroup {
     public void setTagDrtLinksBufferAroundServiceAreaShp(double tagDrtLinksBufferAroundServiceAreaShp) {
         this.tagDrtLinksBufferAroundServiceAreaShp = tagDrtLinksBufferAroundServiceAreaShp;
     }
+
+    @StringGetter(WRITE_PHASE_TIMINGS)
+    public boolean isWritePhaseTimings() {
+        return writePhaseTimings;
+    }
+
+    @StringSetter(WRITE_PHASE_TIMINGS)
+    public void setWritePhaseTimings(boolean writePhaseTimings) {
+        this.writePhaseTimings = writePhaseTimings;
+    }
+
+    @StringGetter(DRT_NETWORK_CACHE_DIRECTORY)
+    public String getDrtNetworkCacheDirectory() {
+        return drtNetworkCacheDirectory;
+    }
+
+    /**
+     * The drt links of the network are stored in this directory and reused by the following runs with the same
+     * network, service area and buffer. null (the default) switches the cache off.
+     */
+    @StringSetter(DRT_NETWORK_CACHE_DIRECTORY)
+    public void setDrtNetworkCacheDirectory(String drtNetworkCacheDirectory) {
+        this.drtNetworkCacheDirectory = drtNetworkCacheDirectory;
+    }
+
+    @StringGetter(DRT_SPEED_UP_STATE_FILE)
+    public String getDrtSpeedUpStateFile() {
+        return drtSpeedUpStateFile;
+    }
+
+    /**
+     * drt_speed_up_state.csv of a previous run, its waiting times and in-vehicle beeline speeds replace the initial
+     * values of the drt speed up. null (the default) starts with the initial values of the config.
+     */
+    @StringSetter(DRT_SPEED_UP_STATE_FILE)
+    public void setDrtSpeedUpStateFile(String drtSpeedUpStateFile) {
+        this.drtSpeedUpStateFile = drtSpeedUpStateFile;
+    }
+
+    @StringGetter(DRT_SPEED_UP_MAX_RELATIVE_DRIFT)
+    public double getDrtSpeedUpMaxRelativeDrift() {
+        return drtSpeedUpMaxRelativeDrift;
+    }
+
+    /**
+     * If the drt estimates of a simulated iteration differ by more than this fraction from the previous simulated
+     * iteration, the next iteration is simulated as well. A negative value (the default) keeps the fixed interval of
+     * the drt speed up.
+     */
+    @StringSetter(DRT_SPEED_UP_MAX_RELATIVE_DRIFT)
+    public void setDrtSpeedUpMaxRelativeDrift(double drtSpeedUpMaxRelativeDrift) {
+        this.drtSpeedUpMaxRelativeDrift = drtSpeedUpMaxRelativeDrift;
+    }
 			
 }
 
@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Population which only keeps the persons of a sample while the plans file is read. All other persons are dropped
+ * right after they are parsed, so the full population is never held in memory.
+ * <p>
+ * <b>Note that the rejected persons are still fully parsed and built</b>, including their plans and routes, because
+ * the plans reader only hands over complete persons. This saves the memory of the full population and the removal
+ * pass afterwards, but not the parsing time.
+ * <p>
+ * Whether a person is in the sample is decided by a stable hash of the person id. Samples are thus reproducible,
+ * independent of the random seed, and nested: a 1% sample is a subset of the 5% sample.
+ */
+final class DownsamplingPopulation implements Population {
+
+	private final Population delegate;
+	private final double sample;
+	private int parsedPersons = 0;
+
+	DownsamplingPopulation(Population delegate, double sample) {
+		this.delegate = delegate;
+		this.sample = sample;
+	}
+
+	@Override
+	public void addPerson(Person person) {
+		parsedPersons++;
+		if (isInSample(person.getId(), sample)) {
+			delegate.addPerson(person);
+		}
+	}
+
+	int getParsedPersons() {
+		return parsedPersons;
+	}
+
+	/**
+	 * @return true if the person belongs to the sample of the given size (0..1)
+	 */
+	static boolean isInSample(Id<Person> personId, double sample) {
+		return hashToUnitInterval(personId.toString()) < sample;
+	}
+
+	/**
+	 * Maps a string to [0,1). FNV-1a over the characters followed by the splitmix64 finalizer, so that ids which only
+	 * differ in the last digits are spread evenly.
+	 */
+	static double hashToUnitInterval(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 30;
+		hash *= 0xbf58476d1ce4e5b9L;
+		hash ^= hash >>> 27;
+		hash *= 0x94d049bb133111ebL;
+		hash ^= hash >>> 31;
+		return (hash >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public PopulationFactory getFactory() {
+		return delegate.getFactory();
+	}
+
+	@Override
+	public String getName() {
+		return delegate.getName();
+	}
+
+	@Override
+	public void setName(String name) {
+		delegate.setName(name);
+	}
+
+	@Override
+	public Map<Id<Person>, ? extends Person> getPersons() {
+		return delegate.getPersons();
+	}
+
+	@Override
+	public Person removePerson(Id<Person> personId) {
+		return delegate.removePerson(personId);
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return delegate.getAttributes();
+	}
+
+}
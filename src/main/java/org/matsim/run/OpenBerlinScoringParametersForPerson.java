@@ -0,0 +1,181 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ScoringParameterSet;
+import org.matsim.core.config.groups.ScenarioConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scoring.functions.ActivityUtilityParameters;
+import org.matsim.core.scoring.functions.ScoringParameters;
+import org.matsim.core.scoring.functions.ScoringParametersForPerson;
+import org.matsim.pt.PtConstants;
+import org.matsim.pt.config.TransitConfigGroup;
+
+import playground.vsp.scoring.IncomeDependentUtilityOfMoneyPersonScoringParameters;
+
+/**
+ * Income-dependent scoring parameters (the marginal utility of money is taken from
+ * {@link IncomeDependentUtilityOfMoneyPersonScoringParameters}) which derive the activity parameters for the
+ * duration-based OpenBerlin activity types (e.g. "work_3600.0") from a small rule set, see
+ * {@link #createActivityParams(String)}.
+ * <p>
+ * Instead of adding the parameters for all types and durations from 600 to 97200 sec to the config (about 810
+ * parameter sets), the parameters of every person are built from the config and the derived parameters of the activity
+ * types in the person's plans. The derived parameters are created once per activity type and shared by all persons;
+ * the config is not changed. The parameters of a person are built again if the selected plan contains an activity type
+ * which was not in the plans before.
+ * <p>
+ * As the config does not contain the derived parameters, a run from the output config also needs this binding, see
+ * {@link RunBerlinScenario#prepareControler}.
+ */
+public final class OpenBerlinScoringParametersForPerson implements ScoringParametersForPerson {
+
+	private static final Pattern TYPE_WITH_DURATION = Pattern.compile("^(home|work|leisure|shopping|other)_(\\d+(?:\\.\\d+)?)$");
+
+	private final PlanCalcScoreConfigGroup planCalcScoreConfigGroup;
+	private final ScenarioConfigGroup scenarioConfigGroup;
+	private final TransitConfigGroup transitConfigGroup;
+	private final ScoringParametersForPerson incomeDependentParameters;
+
+	private final Map<String, ActivityUtilityParameters.Builder> derivedActivityParams = new ConcurrentHashMap<>();
+	private final Map<Id<Person>, ScoringParameters> params = new ConcurrentHashMap<>();
+
+	@Inject
+	OpenBerlinScoringParametersForPerson(PlanCalcScoreConfigGroup planCalcScoreConfigGroup, ScenarioConfigGroup scenarioConfigGroup,
+			TransitConfigGroup transitConfigGroup, IncomeDependentUtilityOfMoneyPersonScoringParameters incomeDependentParameters) {
+		this.planCalcScoreConfigGroup = planCalcScoreConfigGroup;
+		this.scenarioConfigGroup = scenarioConfigGroup;
+		this.transitConfigGroup = transitConfigGroup;
+		this.incomeDependentParameters = incomeDependentParameters;
+	}
+
+	@Override
+	public ScoringParameters getScoringParameters(Person person) {
+		ScoringParameters scoringParameters = params.get(person.getId());
+		if (scoringParameters == null || !containsActivityTypes(scoringParameters, person.getSelectedPlan())) {
+			scoringParameters = createScoringParameters(person);
+			params.put(person.getId(), scoringParameters);
+		}
+		return scoringParameters;
+	}
+
+	private ScoringParameters createScoringParameters(Person person) {
+		ScoringParameterSet parameterSet = planCalcScoreConfigGroup.getScoringParameters(PopulationUtils.getSubpopulation(person));
+		ScoringParameters.Builder builder = new ScoringParameters.Builder(planCalcScoreConfigGroup, parameterSet, scenarioConfigGroup);
+
+		if (transitConfigGroup.isUseTransit()) {
+			// same as in the income dependent (and the default) scoring parameters
+			ActivityParams transitActivityParams = new ActivityParams(PtConstants.TRANSIT_ACTIVITY_TYPE);
+			transitActivityParams.setTypicalDuration(120.0);
+			transitActivityParams.setOpeningTime(0.);
+			transitActivityParams.setClosingTime(0.);
+			ActivityUtilityParameters.Builder transitActivityBuilder = new ActivityUtilityParameters.Builder(transitActivityParams);
+			transitActivityBuilder.setScoreAtAll(false);
+			builder.setActivityParameters(PtConstants.TRANSIT_ACTIVITY_TYPE, transitActivityBuilder);
+		}
+
+		builder.setMarginalUtilityOfMoney(incomeDependentParameters.getScoringParameters(person).marginalUtilityOfMoney);
+
+		for (Plan plan : person.getPlans()) {
+			for (PlanElement planElement : plan.getPlanElements()) {
+				if (planElement instanceof Activity) {
+					String type = ((Activity) planElement).getType();
+					if (parameterSet.getActivityParams(type) == null) {
+						ActivityUtilityParameters.Builder derived = getDerivedActivityParams(type);
+						if (derived != null) {
+							builder.setActivityParameters(type, derived);
+						}
+					}
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the memoized builder of the derived parameters, or null if the activity type does not follow the pattern
+	 */
+	private ActivityUtilityParameters.Builder getDerivedActivityParams(String activityType) {
+		ActivityUtilityParameters.Builder derived = derivedActivityParams.get(activityType);
+		if (derived == null) {
+			ActivityParams activityParams = createActivityParams(activityType);
+			if (activityParams == null) {
+				return null;
+			}
+			derived = derivedActivityParams.computeIfAbsent(activityParams.getActivityType(), type -> new ActivityUtilityParameters.Builder(activityParams));
+		}
+		return derived;
+	}
+
+	private static boolean containsActivityTypes(ScoringParameters scoringParameters, Plan plan) {
+		if (plan == null) {
+			return true;
+		}
+		for (PlanElement planElement : plan.getPlanElements()) {
+			if (planElement instanceof Activity && !scoringParameters.utilParams.containsKey(((Activity) planElement).getType())) {
+				// types which are neither in the config nor derived are reported by the activity scoring as before
+				if (createActivityParams(((Activity) planElement).getType()) != null) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Derives the activity parameters for an activity type "[home|work|leisure|shopping|other]_[typical duration]".
+	 * These are the same parameters as previously generated in {@link RunBerlinScenario#prepareConfig}.
+	 *
+	 * @return the parameters or null if the activity type does not follow the pattern
+	 */
+	public static ActivityParams createActivityParams(String activityType) {
+		Matcher matcher = TYPE_WITH_DURATION.matcher(activityType);
+		if (!matcher.matches()) {
+			return null;
+		}
+		double typicalDuration = Double.parseDouble(matcher.group(2));
+		ActivityParams params = new ActivityParams(activityType).setTypicalDuration(typicalDuration);
+		switch (matcher.group(1)) {
+			case "work":
+				return params.setOpeningTime(6. * 3600.).setClosingTime(20. * 3600.);
+			case "leisure":
+				return params.setOpeningTime(9. * 3600.).setClosingTime(27. * 3600.);
+			case "shopping":
+				return params.setOpeningTime(8. * 3600.).setClosingTime(20. * 3600.);
+			default:
+				return params;
+		}
+	}
+
+}
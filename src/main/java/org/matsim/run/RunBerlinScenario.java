@@ -24,10 +24,9 @@ import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorModule;
 import com.google.inject.Singleton;
 import org.apache.log4j.Logger;
 import org.matsim.analysis.RunPersonTripAnalysis;
-import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
-import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.contrib.drt.routing.DrtRoute;
 import org.matsim.contrib.drt.routing.DrtRouteFactory;
 import org.matsim.core.config.Config;
@@ -41,21 +40,19 @@ import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryLogging;
 import org.matsim.core.gbl.Gbl;
-import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.routes.RouteFactories;
 import org.matsim.core.router.AnalysisMainModeIdentifier;
+import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.scoring.functions.ScoringParametersForPerson;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.prepare.population.AssignIncome;
 import org.matsim.run.drt.OpenBerlinIntermodalPtDrtRouterModeIdentifier;
 import org.matsim.run.drt.RunDrtOpenBerlinScenario;
-import playground.vsp.scoring.IncomeDependentUtilityOfMoneyPersonScoringParameters;
+import org.matsim.run.phaseTiming.PhaseTimingModule;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Random;
 
 import static org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks;
 
@@ -115,10 +112,16 @@ public final class RunBerlinScenario {
 				bind(AnalysisMainModeIdentifier.class).to(OpenBerlinIntermodalPtDrtRouterModeIdentifier.class);
 				
 				//use income-dependent marginal utility of money for scoring
-				bind(ScoringParametersForPerson.class).to(IncomeDependentUtilityOfMoneyPersonScoringParameters.class).in(Singleton.class);
+				bind(ScoringParametersForPerson.class).to(OpenBerlinScoringParametersForPerson.class).in(Singleton.class);
 			}
 		} );
 
+		BerlinExperimentalConfigGroup berlinCfg = ConfigUtils.addOrGetModule(controler.getConfig(), BerlinExperimentalConfigGroup.class);
+		if (berlinCfg.isWritePhaseTimings()) {
+			// wall time, cpu time, allocations and gc per iteration phase and replanning strategy
+			controler.addOverridingModule( new PhaseTimingModule() );
+		}
+
 		return controler;
 	}
 	
@@ -134,16 +137,22 @@ public final class RunBerlinScenario {
 		 * as GenericRouteImpls and will later cause exceptions in DrtRequestCreator. So we do this here, although this
 		 * class is also used for runs without drt.
 		 */
-		final Scenario scenario = ScenarioUtils.createScenario( config );
+		final MutableScenario scenario = ScenarioUtils.createMutableScenario( config );
 
 		RouteFactories routeFactories = scenario.getPopulation().getFactory().getRouteFactories();
 		routeFactories.setRouteFactory(DrtRoute.class, new DrtRouteFactory());
-		
-		ScenarioUtils.loadScenario(scenario);
 
 		BerlinExperimentalConfigGroup berlinCfg = ConfigUtils.addOrGetModule(config, BerlinExperimentalConfigGroup.class);
 		if (berlinCfg.getPopulationDownsampleFactor() != 1.0) {
-			downsample(scenario.getPopulation().getPersons(), berlinCfg.getPopulationDownsampleFactor());
+			// downsample while reading, so the persons which are not in the sample are dropped right after parsing
+			Population population = scenario.getPopulation();
+			DownsamplingPopulation downsamplingPopulation = new DownsamplingPopulation( population, berlinCfg.getPopulationDownsampleFactor() );
+			scenario.setPopulation( downsamplingPopulation );
+			ScenarioUtils.loadScenario(scenario);
+			scenario.setPopulation( population );
+			log.warn( "Population downsampled from " + downsamplingPopulation.getParsedPersons() + " to " + population.getPersons().size() + " agents." ) ;
+		} else {
+			ScenarioUtils.loadScenario(scenario);
 		}
 
 		AssignIncome.assignIncomeToPersonSubpopulationAccordingToGermanyAverage(scenario.getPopulation());
@@ -199,13 +208,8 @@ public final class RunBerlinScenario {
 		config.qsim().setTrafficDynamics( TrafficDynamics.kinematicWaves );
 				
 		// activities:
-		for ( long ii = 600 ; ii <= 97200; ii+=600 ) {
-			config.planCalcScore().addActivityParams( new ActivityParams( "home_" + ii + ".0" ).setTypicalDuration( ii ) );
-			config.planCalcScore().addActivityParams( new ActivityParams( "work_" + ii + ".0" ).setTypicalDuration( ii ).setOpeningTime(6. * 3600. ).setClosingTime(20. * 3600. ) );
-			config.planCalcScore().addActivityParams( new ActivityParams( "leisure_" + ii + ".0" ).setTypicalDuration( ii ).setOpeningTime(9. * 3600. ).setClosingTime(27. * 3600. ) );
-			config.planCalcScore().addActivityParams( new ActivityParams( "shopping_" + ii + ".0" ).setTypicalDuration( ii ).setOpeningTime(8. * 3600. ).setClosingTime(20. * 3600. ) );
-			config.planCalcScore().addActivityParams( new ActivityParams( "other_" + ii + ".0" ).setTypicalDuration( ii ) );
-		}
+		// the parameters for the duration-based activity types (home_600.0, work_3600.0, ...) are derived on demand,
+		// see OpenBerlinScoringParametersForPerson
 		config.planCalcScore().addActivityParams( new ActivityParams( "freight" ).setTypicalDuration( 12.*3600. ) );
 
 		ConfigUtils.applyCommandline( config, typedArgs ) ;
@@ -250,13 +254,6 @@ public final class RunBerlinScenario {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
-	
-	private static void downsample( final Map<Id<Person>, ? extends Person> map, final double sample ) {
-		final Random rnd = MatsimRandom.getLocalInstance();
-		log.warn( "Population downsampled from " + map.size() + " agents." ) ;
-		map.values().removeIf( person -> rnd.nextDouble() > sample ) ;
-		log.warn( "Population downsampled to " + map.size() + " agents." ) ;
-	}
 
 }
 
@@ -0,0 +1,243 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+/**
+ * Takes the time stamps of the controler phases and counts the events thrown during the mobsim. The phases of the
+ * whole run are delimited by the calls of {@link #runStarts()} and {@link #runFinished()} and the controler listener
+ * calls:
+ * <ul>
+ * <li>controler setup: run starts until startup (injector creation and core listeners)</li>
+ * <li>prepare for sim: startup until the first iteration starts (startup listeners and prepare for sim)</li>
+ * <li>per iteration:
+ * <ul>
+ * <li>replanning: iteration starts until before mobsim (replanning, prepare for mobsim and the plans dump)</li>
+ * <li>mobsim: before mobsim until after mobsim (including writing the events)</li>
+ * <li>scoring: after mobsim until iteration ends</li>
+ * <li>iteration end: iteration ends until the next iteration starts or the shutdown (the iteration ends listeners,
+ * e.g. the score, leg and mode statistics)</li>
+ * </ul>
+ * </li>
+ * <li>shutdown: shutdown until the run has finished (shutdown listeners and the output_* files)</li>
+ * </ul>
+ * As the order of the listeners of one kind is not defined, the borders between the phases are approximate.
+ * <p>
+ * The peak heap is the maximum of the used heap, sampled every {@value #HEAP_SAMPLING_MILLIS} ms and at every phase
+ * border, so short peaks between two samples can be missed.
+ */
+final class MacroBenchmarkListener implements StartupListener, IterationStartsListener, BeforeMobsimListener,
+		AfterMobsimListener, IterationEndsListener, ShutdownListener, BasicEventHandler {
+
+	private static final long HEAP_SAMPLING_MILLIS = 50;
+
+	static final class IterationTimes {
+		final int iteration;
+		long iterationStarts;
+		long beforeMobsim;
+		long afterMobsim;
+		long iterationEnds;
+		long nextIterationStarts;
+		long events;
+
+		IterationTimes(int iteration) {
+			this.iteration = iteration;
+		}
+
+		double replanningSeconds() {
+			return seconds(iterationStarts, beforeMobsim);
+		}
+
+		double mobsimSeconds() {
+			return seconds(beforeMobsim, afterMobsim);
+		}
+
+		double scoringSeconds() {
+			return seconds(afterMobsim, iterationEnds);
+		}
+
+		double iterationEndSeconds() {
+			return seconds(iterationEnds, nextIterationStarts);
+		}
+
+		double eventsPerSecond() {
+			double mobsimSeconds = mobsimSeconds();
+			return mobsimSeconds > 0. ? events / mobsimSeconds : 0.;
+		}
+	}
+
+	private final List<IterationTimes> iterations = new ArrayList<>();
+	private IterationTimes current;
+	private long eventCount;
+
+	private long runStarts;
+	private long startup;
+	private long shutdown;
+	private long runFinished;
+
+	private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+	private final ScheduledExecutorService heapSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "benchmark heap sampler");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private volatile long peakHeapBytes;
+
+	/**
+	 * Starts the heap sampling, so the listener should be created before the scenario is loaded.
+	 */
+	MacroBenchmarkListener() {
+		heapSampler.scheduleAtFixedRate(this::sampleHeap, 0, HEAP_SAMPLING_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * To be called before the controler is created.
+	 */
+	void runStarts() {
+		runStarts = System.nanoTime();
+	}
+
+	@Override
+	public void notifyStartup(StartupEvent event) {
+		startup = System.nanoTime();
+		sampleHeap();
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		long now = System.nanoTime();
+		finishIterationEndPhase(now);
+		current = new IterationTimes(event.getIteration());
+		current.iterationStarts = now;
+		iterations.add(current);
+		sampleHeap();
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		current.beforeMobsim = System.nanoTime();
+		eventCount = 0;
+		sampleHeap();
+	}
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		current.afterMobsim = System.nanoTime();
+		current.events = eventCount;
+		sampleHeap();
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		current.iterationEnds = System.nanoTime();
+		sampleHeap();
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		shutdown = System.nanoTime();
+		finishIterationEndPhase(shutdown);
+		sampleHeap();
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		eventCount++;
+	}
+
+	@Override
+	public void reset(int iteration) {
+		// the count is reset before each mobsim
+	}
+
+	/**
+	 * To be called after the controler has returned, closes the shutdown phase and stops the heap sampling.
+	 */
+	void runFinished() {
+		runFinished = System.nanoTime();
+		finishIterationEndPhase(runFinished);
+		heapSampler.shutdownNow();
+		sampleHeap();
+	}
+
+	private void finishIterationEndPhase(long now) {
+		if (current != null && current.nextIterationStarts == 0) {
+			current.nextIterationStarts = now;
+		}
+	}
+
+	private void sampleHeap() {
+		// only the sampler thread and the controler thread write, a lost update only loses one sample
+		long used = memory.getHeapMemoryUsage().getUsed();
+		if (used > peakHeapBytes) {
+			peakHeapBytes = used;
+		}
+	}
+
+	List<IterationTimes> getIterations() {
+		return iterations;
+	}
+
+	double controlerSetupSeconds() {
+		return seconds(runStarts, startup);
+	}
+
+	double prepareForSimSeconds() {
+		return seconds(startup, iterations.isEmpty() ? shutdown : iterations.get(0).iterationStarts);
+	}
+
+	double shutdownSeconds() {
+		return seconds(shutdown, runFinished);
+	}
+
+	/**
+	 * @return the maximum sampled used heap since this listener was created
+	 */
+	long getPeakHeapBytes() {
+		return peakHeapBytes;
+	}
+
+	static double seconds(long from, long to) {
+		return from == 0 || to == 0 ? 0. : (to - from) / 1e9;
+	}
+
+}
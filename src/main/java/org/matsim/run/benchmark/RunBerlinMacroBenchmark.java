@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.run.BerlinExperimentalConfigGroup;
+import org.matsim.run.RunBerlinScenario;
+
+/**
+ * Reproducible end-to-end benchmark of {@link RunBerlinScenario}: fixed random seed, fixed number of iterations and
+ * a fixed population sample. Writes the time per phase, the peak heap and the events per second to
+ * <code>benchmark.json</code> in the output directory, so that runs of different commits can be compared.
+ * <p>
+ * Arguments: config file, number of iterations, population downsample factor, output directory, followed by optional
+ * config options (--config:...). Use <code>-Dbenchmark.label=...</code> to tag the report, e.g. with a commit id.
+ */
+public final class RunBerlinMacroBenchmark {
+
+	private static final Logger log = Logger.getLogger(RunBerlinMacroBenchmark.class);
+
+	static final long RANDOM_SEED = 4711;
+
+	public static void main(String[] args) {
+		String configFile = args.length > 0 ? args[0] : "scenarios/berlin-v5.5-1pct/input/berlin-v5.5-1pct.config.xml";
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		double downsampleFactor = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+		String outputDirectory = args.length > 3 ? args[3] : "output/berlin-v5.5-1pct-benchmark";
+
+		String[] configArgs = new String[Math.max(1, args.length - 3)];
+		configArgs[0] = configFile;
+		if (args.length > 4) {
+			System.arraycopy(args, 4, configArgs, 1, args.length - 4);
+		}
+
+		run(configArgs, iterations, downsampleFactor, outputDirectory);
+	}
+
+	public static void run(String[] configArgs, int iterations, double downsampleFactor, String outputDirectory) {
+		log.info("Benchmark run with config arguments " + Arrays.toString(configArgs) + ", " + iterations
+				+ " iteration(s) and population downsample factor " + downsampleFactor);
+
+		MacroBenchmarkListener listener = new MacroBenchmarkListener();
+		long start = System.nanoTime();
+
+		Config config = RunBerlinScenario.prepareConfig(configArgs);
+		config.global().setRandomSeed(RANDOM_SEED);
+		config.controler().setLastIteration(config.controler().getFirstIteration() + iterations - 1);
+		config.controler().setOutputDirectory(outputDirectory);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		ConfigUtils.addOrGetModule(config, BerlinExperimentalConfigGroup.class).setPopulationDownsampleFactor(downsampleFactor);
+
+		Scenario scenario = RunBerlinScenario.prepareScenario(config);
+		long scenarioLoaded = System.nanoTime();
+
+		listener.runStarts();
+		Controler controler = RunBerlinScenario.prepareControler(scenario);
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addControlerListenerBinding().toInstance(listener);
+				addEventHandlerBinding().toInstance(listener);
+			}
+		});
+		controler.run();
+		listener.runFinished();
+		long end = System.nanoTime();
+
+		String reportFile = config.controler().getOutputDirectory() + "/benchmark.json";
+		writeReport(reportFile, config, scenario, listener, MacroBenchmarkListener.seconds(start, scenarioLoaded),
+				MacroBenchmarkListener.seconds(start, end));
+		log.info("Benchmark report written to " + reportFile);
+	}
+
+	private static void writeReport(String file, Config config, Scenario scenario, MacroBenchmarkListener listener,
+			double scenarioLoadSeconds, double totalSeconds) {
+		double replanning = 0.;
+		double mobsim = 0.;
+		double scoring = 0.;
+		double iterationEnd = 0.;
+		long events = 0;
+
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(file)) {
+			writer.write("{\n");
+			writer.write("  \"label\": \"" + escape(System.getProperty("benchmark.label", "")) + "\",\n");
+			writer.write("  \"config\": \"" + escape(String.valueOf(config.getContext())) + "\",\n");
+			writer.write("  \"randomSeed\": " + config.global().getRandomSeed() + ",\n");
+			writer.write("  \"persons\": " + scenario.getPopulation().getPersons().size() + ",\n");
+			writer.write("  \"globalThreads\": " + config.global().getNumberOfThreads() + ",\n");
+			writer.write("  \"qsimThreads\": " + config.qsim().getNumberOfThreads() + ",\n");
+			writer.write("  \"availableProcessors\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+			writer.write("  \"javaVersion\": \"" + System.getProperty("java.version") + "\",\n");
+			writer.write("  \"iterations\": [\n");
+			int count = 0;
+			for (MacroBenchmarkListener.IterationTimes times : listener.getIterations()) {
+				writer.write(String.format(Locale.US,
+						"    {\"iteration\": %d, \"replanningSeconds\": %.3f, \"mobsimSeconds\": %.3f, \"scoringSeconds\": %.3f, "
+								+ "\"iterationEndSeconds\": %.3f, \"events\": %d, \"eventsPerSecond\": %.1f}%s\n",
+						times.iteration, times.replanningSeconds(), times.mobsimSeconds(), times.scoringSeconds(),
+						times.iterationEndSeconds(), times.events, times.eventsPerSecond(),
+						++count < listener.getIterations().size() ? "," : ""));
+				replanning += times.replanningSeconds();
+				mobsim += times.mobsimSeconds();
+				scoring += times.scoringSeconds();
+				iterationEnd += times.iterationEndSeconds();
+				events += times.events;
+			}
+			writer.write("  ],\n");
+			writer.write(String.format(Locale.US, "  \"scenarioLoadSeconds\": %.3f,\n", scenarioLoadSeconds));
+			writer.write(String.format(Locale.US, "  \"controlerSetupSeconds\": %.3f,\n", listener.controlerSetupSeconds()));
+			writer.write(String.format(Locale.US, "  \"prepareForSimSeconds\": %.3f,\n", listener.prepareForSimSeconds()));
+			writer.write(String.format(Locale.US, "  \"replanningSeconds\": %.3f,\n", replanning));
+			writer.write(String.format(Locale.US, "  \"mobsimSeconds\": %.3f,\n", mobsim));
+			writer.write(String.format(Locale.US, "  \"scoringSeconds\": %.3f,\n", scoring));
+			writer.write(String.format(Locale.US, "  \"iterationEndSeconds\": %.3f,\n", iterationEnd));
+			writer.write(String.format(Locale.US, "  \"shutdownSeconds\": %.3f,\n", listener.shutdownSeconds()));
+			writer.write(String.format(Locale.US, "  \"totalSeconds\": %.3f,\n", totalSeconds));
+			writer.write(String.format(Locale.US, "  \"eventsPerSecond\": %.1f,\n", mobsim > 0. ? events / mobsim : 0.));
+			writer.write("  \"peakHeapBytes\": " + listener.getPeakHeapBytes() + "\n");
+			writer.write("}\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+}
@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.geotools.data.FileDataStore;
 import org.geotools.data.FileDataStoreFinder;
@@ -35,6 +36,9 @@ import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.core.utils.gis.ShapeFileReader;
@@ -42,17 +46,22 @@ import org.matsim.core.utils.io.UncheckedIOException;
 import org.opengis.feature.simple.SimpleFeature;
 
 /**
+* The point in polygon tests are answered by a spatial index of prepared geometries, so only the polygons whose
+* envelope contains the point are tested. All methods may be called concurrently.
+*
 * @author ikaddoura
 */
 
 public final class BerlinShpUtils {
 
 	private Map<Integer, Geometry> serviceAreaGeometries;
-	private Map<Double, Map<Integer, Geometry>> serviceAreaGeometriesWithBuffer = new HashMap<>();
+	private STRtree serviceAreaIndex;
+	private final Map<Double, STRtree> serviceAreaIndexWithBuffer = new ConcurrentHashMap<>();
 
 	public BerlinShpUtils(String drtServiceAreaShapeFile) {	
 		if (drtServiceAreaShapeFile != null && drtServiceAreaShapeFile != "" && drtServiceAreaShapeFile != "null" ) {
 			this.serviceAreaGeometries = loadShapeFile(drtServiceAreaShapeFile);
+			this.serviceAreaIndex = createIndex(serviceAreaGeometries);
 		}
 	}
 
@@ -79,17 +88,15 @@ public final class BerlinShpUtils {
 	}
 
 	public boolean isCoordInDrtServiceArea(Coord coord) {
-		return isCoordInArea(coord, serviceAreaGeometries);
+		return isCoordInArea(coord, serviceAreaIndex);
 	}
 	
 	public boolean isCoordInDrtServiceAreaWithBuffer(Coord coord, double buffer) {
-		if (!serviceAreaGeometriesWithBuffer.containsKey(buffer)) {
-			serviceAreaGeometriesWithBuffer.put(buffer, prepareAndSaveGeometriesWithBuffer(serviceAreaGeometries, buffer));
-		}
-		return isCoordInArea(coord, serviceAreaGeometriesWithBuffer.get(buffer));
+		return isCoordInArea(coord, serviceAreaIndexWithBuffer.computeIfAbsent(buffer,
+				b -> createIndex(prepareGeometriesWithBuffer(serviceAreaGeometries, b))));
 	}
 	
-	private Map<Integer, Geometry> prepareAndSaveGeometriesWithBuffer(Map<Integer, Geometry> geometries, double buffer) {
+	private Map<Integer, Geometry> prepareGeometriesWithBuffer(Map<Integer, Geometry> geometries, double buffer) {
 		Map<Integer, Geometry> geometriesWithBuffer = new HashMap<>();
 		for (Map.Entry<Integer, Geometry> entry: geometries.entrySet()) {
 			geometriesWithBuffer.put(entry.getKey(), entry.getValue().buffer(buffer));
@@ -97,16 +104,27 @@ public final class BerlinShpUtils {
 		return geometriesWithBuffer;
 	}
 
-	private boolean isCoordInArea(Coord coord, Map<Integer, Geometry> areaGeometries) {
-		boolean coordInArea = false;
-		for (Geometry geometry : areaGeometries.values()) {
-			Point p = MGC.coord2Point(coord);
+	private static STRtree createIndex(Map<Integer, Geometry> geometries) {
+		STRtree index = new STRtree();
+		for (Geometry geometry : geometries.values()) {
+			index.insert(geometry.getEnvelopeInternal(), PreparedGeometryFactory.prepare(geometry));
+		}
+		// queries are read-only (and therefore thread-safe) once the tree is built
+		index.build();
+		return index;
+	}
 
-			if (p.within(geometry)) {
-				coordInArea = true;
+	private static boolean isCoordInArea(Coord coord, STRtree areaIndex) {
+		Point p = MGC.coord2Point(coord);
+		@SuppressWarnings("unchecked")
+		List<PreparedGeometry> candidates = areaIndex.query(p.getEnvelopeInternal());
+		for (PreparedGeometry geometry : candidates) {
+			// the same as p.within(geometry)
+			if (geometry.contains(p)) {
+				return true;
 			}
 		}
-		return coordInArea;
+		return false;
 	}
 	
 	static Collection<SimpleFeature> getAllFeatures(final URL url) {
@@ -0,0 +1,291 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.drt;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.passenger.events.DrtRequestSubmittedEvent;
+import org.matsim.contrib.drt.passenger.events.DrtRequestSubmittedEventHandler;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
+import org.matsim.contrib.drt.speedup.DrtSpeedUpParams;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.dvrp.passenger.PassengerDroppedOffEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerDroppedOffEventHandler;
+import org.matsim.contrib.dvrp.passenger.PassengerPickedUpEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerPickedUpEventHandler;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.run.BerlinExperimentalConfigGroup;
+
+/**
+ * Measures the average waiting time and in-vehicle beeline speed of every drt mode in the iterations in which drt is
+ * simulated, i.e. the two estimates which the drt speed up uses for teleporting drt users in the other iterations.
+ * <p>
+ * The last measured estimates are written to drt_speed_up_state.csv at shutdown. {@link #applyState(Config, String)}
+ * reads such a file into the initial waiting time and beeline speed of the {@link DrtSpeedUpParams}, so that the next
+ * run starts with the estimates of the previous one instead of the defaults.
+ * <p>
+ * With a maximum relative drift &gt;= 0, the simulated iterations are chosen adaptively: if the estimates of a simulated
+ * iteration differ by more than that fraction from those of the previous simulated iteration, the next iteration is
+ * simulated as well, otherwise the next simulated iteration follows after the configured intervalDetailedIteration.
+ * If a simulated iteration has no drt pick ups, there is no new estimate and the configured interval applies. The
+ * decision is kept in this listener. As the drt speed up only decides by iteration % intervalDetailedIteration of its
+ * params, the decision for the next iteration is handed over by setting that interval at the end of each iteration;
+ * the configured interval is restored at shutdown. The switch on and switch off fractions still apply.
+ */
+final class DrtSpeedUpStateListener implements DrtRequestSubmittedEventHandler, PassengerPickedUpEventHandler,
+		PassengerDroppedOffEventHandler, IterationEndsListener, ShutdownListener {
+
+	private static final Logger log = Logger.getLogger(DrtSpeedUpStateListener.class);
+
+	static final String FILE_NAME = "drt_speed_up_state.csv";
+
+	private final Network network;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final double maxRelativeDrift;
+	private final Map<String, ModeState> modeStates = new HashMap<>();
+
+	@Inject
+	DrtSpeedUpStateListener(Config config, Network network, OutputDirectoryHierarchy controlerIO) {
+		this.network = network;
+		this.controlerIO = controlerIO;
+		BerlinExperimentalConfigGroup berlinCfg = ConfigUtils.addOrGetModule(config, BerlinExperimentalConfigGroup.class);
+		this.maxRelativeDrift = berlinCfg.getDrtSpeedUpMaxRelativeDrift();
+		for (DrtConfigGroup drtCfg : MultiModeDrtConfigGroup.get(config).getModalElements()) {
+			drtCfg.getDrtSpeedUpParams().ifPresent(params -> {
+				ModeState state = new ModeState(params);
+				if (berlinCfg.getDrtSpeedUpStateFile() != null) {
+					// warm start: the first simulated iteration is compared to the estimates of the previous run
+					state.waitingTime = params.getInitialWaitingTime();
+					state.inVehicleBeelineSpeed = params.getInitialInVehicleBeelineSpeed();
+				}
+				modeStates.put(drtCfg.getMode(), state);
+			});
+		}
+	}
+
+	private static final class ModeState {
+		private final DrtSpeedUpParams params;
+		private final int intervalDetailedIteration;
+		private double waitingTime = Double.NaN;
+		private double inVehicleBeelineSpeed = Double.NaN;
+		private int nextSimulatedIteration = -1;
+
+		private final Map<Id<Request>, DrtRequestSubmittedEvent> submittedRequests = new HashMap<>();
+		private final Map<Id<Request>, Double> pickUpTimes = new HashMap<>();
+		private int pickUps = 0;
+		private double waitingTimeSum = 0;
+		private double beelineDistanceSum = 0;
+		private double inVehicleTimeSum = 0;
+
+		private ModeState(DrtSpeedUpParams params) {
+			this.params = params;
+			this.intervalDetailedIteration = params.getIntervalDetailedIteration();
+		}
+	}
+
+	@Override
+	public void handleEvent(DrtRequestSubmittedEvent event) {
+		ModeState state = modeStates.get(event.getMode());
+		if (state != null) {
+			state.submittedRequests.put(event.getRequestId(), event);
+		}
+	}
+
+	@Override
+	public void handleEvent(PassengerPickedUpEvent event) {
+		ModeState state = modeStates.get(event.getMode());
+		if (state != null) {
+			DrtRequestSubmittedEvent submitted = state.submittedRequests.get(event.getRequestId());
+			if (submitted != null) {
+				state.pickUps++;
+				state.waitingTimeSum += event.getTime() - submitted.getTime();
+				state.pickUpTimes.put(event.getRequestId(), event.getTime());
+			}
+		}
+	}
+
+	@Override
+	public void handleEvent(PassengerDroppedOffEvent event) {
+		ModeState state = modeStates.get(event.getMode());
+		if (state != null) {
+			DrtRequestSubmittedEvent submitted = state.submittedRequests.remove(event.getRequestId());
+			Double pickUpTime = state.pickUpTimes.remove(event.getRequestId());
+			if (submitted != null && pickUpTime != null) {
+				Coord from = network.getLinks().get(submitted.getFromLinkId()).getToNode().getCoord();
+				Coord to = network.getLinks().get(submitted.getToLinkId()).getToNode().getCoord();
+				state.beelineDistanceSum += CoordUtils.calcEuclideanDistance(from, to);
+				state.inVehicleTimeSum += event.getTime() - pickUpTime;
+			}
+		}
+	}
+
+	@Override
+	public void reset(int iteration) {
+		for (ModeState state : modeStates.values()) {
+			state.submittedRequests.clear();
+			state.pickUpTimes.clear();
+			state.pickUps = 0;
+			state.waitingTimeSum = 0;
+			state.beelineDistanceSum = 0;
+			state.inVehicleTimeSum = 0;
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		int iteration = event.getIteration();
+		for (Map.Entry<String, ModeState> entry : modeStates.entrySet()) {
+			ModeState state = entry.getValue();
+			double drift = Double.NaN;
+			// no pick ups: drt was teleported in this iteration (or nobody used it)
+			if (state.pickUps > 0 && state.inVehicleTimeSum > 0) {
+				double waitingTime = state.waitingTimeSum / state.pickUps;
+				double inVehicleBeelineSpeed = state.beelineDistanceSum / state.inVehicleTimeSum;
+				drift = Math.max(relativeChange(state.waitingTime, waitingTime),
+						relativeChange(state.inVehicleBeelineSpeed, inVehicleBeelineSpeed));
+				log.info("drt speed up state of mode " + entry.getKey() + " in iteration " + iteration + ": waiting time "
+						+ waitingTime + ", in-vehicle beeline speed " + inVehicleBeelineSpeed + ", relative drift " + drift);
+				state.waitingTime = waitingTime;
+				state.inVehicleBeelineSpeed = inVehicleBeelineSpeed;
+			}
+			state.nextSimulatedIteration = getNextSimulatedIteration(iteration, state.nextSimulatedIteration, drift,
+					maxRelativeDrift, state.intervalDetailedIteration);
+
+			if (maxRelativeDrift >= 0 && state.nextSimulatedIteration >= 0) {
+				state.params.setIntervalDetailedIteration(getIntervalDetailedIteration(iteration, state.nextSimulatedIteration));
+			}
+		}
+	}
+
+	/**
+	 * @param nextSimulatedIteration the next simulated iteration chosen so far, -1 for none
+	 * @param drift                  the relative drift of the estimates in this iteration, NaN if drt was not
+	 *                               simulated or nobody was picked up
+	 * @return the next iteration, in which drt is simulated, or -1 for none
+	 */
+	static int getNextSimulatedIteration(int iteration, int nextSimulatedIteration, double drift, double maxRelativeDrift,
+			int intervalDetailedIteration) {
+		if (!Double.isNaN(drift)) {
+			return iteration + (drift > maxRelativeDrift ? 1 : intervalDetailedIteration);
+		}
+		if (nextSimulatedIteration >= 0 && nextSimulatedIteration <= iteration) {
+			// simulated without a pick up, so without a new estimate: continue with the configured interval
+			return iteration + intervalDetailedIteration;
+		}
+		return nextSimulatedIteration;
+	}
+
+	/**
+	 * @return the intervalDetailedIteration for the drt speed up, so that the iteration after the given one is simulated
+	 *         if and only if it is the next simulated iteration
+	 */
+	static int getIntervalDetailedIteration(int iteration, int nextSimulatedIteration) {
+		return iteration + 1 == nextSimulatedIteration ? iteration + 1 : iteration + 2;
+	}
+
+	/**
+	 * @return the relative change, or infinity if there is no previous value
+	 */
+	private static double relativeChange(double previous, double current) {
+		if (Double.isNaN(previous) || previous == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.abs(current - previous) / previous;
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		Map<String, double[]> estimatesPerMode = new TreeMap<>();
+		for (Map.Entry<String, ModeState> entry : modeStates.entrySet()) {
+			ModeState state = entry.getValue();
+			state.params.setIntervalDetailedIteration(state.intervalDetailedIteration);
+			if (!Double.isNaN(state.waitingTime)) {
+				estimatesPerMode.put(entry.getKey(), new double[] { state.waitingTime, state.inVehicleBeelineSpeed });
+			}
+		}
+		writeState(controlerIO.getOutputFilename(FILE_NAME), estimatesPerMode);
+	}
+
+	/**
+	 * @param estimatesPerMode the waiting time and in-vehicle beeline speed of every mode
+	 */
+	static void writeState(String stateFile, Map<String, double[]> estimatesPerMode) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(stateFile)) {
+			writer.write("mode;waitingTime;inVehicleBeelineSpeed");
+			writer.newLine();
+			for (Map.Entry<String, double[]> entry : estimatesPerMode.entrySet()) {
+				writer.write(String.format(Locale.US, "%s;%.3f;%.5f", entry.getKey(), entry.getValue()[0],
+						entry.getValue()[1]));
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Sets the initial waiting time and in-vehicle beeline speed of the drt speed up of every mode in the state file.
+	 * Modes which are not in the file keep their initial values.
+	 */
+	static void applyState(Config config, String stateFile) {
+		Map<String, DrtSpeedUpParams> paramsPerMode = new HashMap<>();
+		for (DrtConfigGroup drtCfg : MultiModeDrtConfigGroup.get(config).getModalElements()) {
+			drtCfg.getDrtSpeedUpParams().ifPresent(params -> paramsPerMode.put(drtCfg.getMode(), params));
+		}
+		try (BufferedReader reader = IOUtils.getBufferedReader(stateFile)) {
+			reader.readLine(); // header
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				String[] columns = line.split(";");
+				DrtSpeedUpParams params = paramsPerMode.get(columns[0]);
+				if (params != null) {
+					params.setInitialWaitingTime(Double.parseDouble(columns[1]));
+					params.setInitialInVehicleBeelineSpeed(Double.parseDouble(columns[2]));
+					log.info("drt speed up of mode " + columns[0] + " starts with waiting time " + columns[1]
+							+ " and in-vehicle beeline speed " + columns[2] + " from " + stateFile);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,278 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.drt;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
+import org.matsim.contrib.dvrp.fleet.FleetReader;
+import org.matsim.contrib.dvrp.fleet.FleetSpecificationImpl;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.run.BerlinExperimentalConfigGroup;
+
+/**
+ * Runs {@link RunDrtOpenBerlinScenario} once per drt fleet file, several runs at the same time. Every run is started in
+ * its own JVM, because MatsimRandom and the output directory logging are static and would be shared by runs in one
+ * JVM. The drt network, the most expensive part of the preparation, is created once before the runs and stored in the
+ * drt network cache of {@link BerlinExperimentalConfigGroup}, which all runs read; if the config has no cache
+ * directory, <code>drtNetworkCache</code> in the output directory is used.
+ * <p>
+ * After all runs, the drt customer stats of the last iteration of every run are collected into
+ * <code>drt_fleet_size_sweep.csv</code> in the output directory of the config: rides, rejections, rejection rate,
+ * waiting times, in-vehicle time and the detour factor (mean ride distance / mean direct distance).
+ * <p>
+ * Arguments: config file, drt mode, number of concurrent runs, comma separated fleet files, followed by optional
+ * config options (--config:...). The available processors are split evenly between the concurrent runs. The runs
+ * get the -X and -D options of this JVM, so the memory of the machine has to suffice for the given -Xmx times the
+ * number of concurrent runs. The console output of every run is written to <code>&lt;fleet&gt;.log</code> in the
+ * output directory.
+ */
+public final class RunDrtFleetSizeSweep {
+
+	private static final Logger log = Logger.getLogger(RunDrtFleetSizeSweep.class);
+
+	private static final String[] SUMMARY_COLUMNS = { "rides", "rejections", "rejectionRate", "wait_average",
+			"wait_p95", "inVehicleTravelTime_mean" };
+
+	public static void main(String[] args) {
+		String configFile = args.length > 0 ? args[0] : "scenarios/berlin-v5.5-1pct/input/drt/berlin-drt-v5.5-1pct.config.xml";
+		String drtMode = args.length > 1 ? args[1] : "drt";
+		int concurrentRuns = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		List<String> fleetFiles = args.length > 3 ? Arrays.asList(args[3].split(",")) : Arrays.asList(
+				"berlin-drt-v5.5.drt-by-rndLocations-100vehicles-4seats.xml.gz",
+				"berlin-drt-v5.5.drt-by-rndLocations-200vehicles-4seats.xml.gz");
+
+		String[] configArgs = new String[Math.max(1, args.length - 3)];
+		configArgs[0] = configFile;
+		if (args.length > 4) {
+			System.arraycopy(args, 4, configArgs, 1, args.length - 4);
+		}
+
+		run(configArgs, drtMode, fleetFiles, concurrentRuns);
+	}
+
+	public static void run(String[] configArgs, String drtMode, List<String> fleetFiles, int concurrentRuns) {
+		int threadsPerRun = Math.max(1, Runtime.getRuntime().availableProcessors() / concurrentRuns);
+		log.info("Fleet size sweep with " + fleetFiles.size() + " fleet(s), " + concurrentRuns
+				+ " concurrent run(s) and " + threadsPerRun + " thread(s) per run.");
+
+		Config baseConfig = RunDrtOpenBerlinScenario.prepareConfig(configArgs);
+		String outputDirectory = baseConfig.controler().getOutputDirectory();
+		new File(outputDirectory).mkdirs();
+		BerlinExperimentalConfigGroup berlinCfg = ConfigUtils.addOrGetModule(baseConfig, BerlinExperimentalConfigGroup.class);
+		String cacheDirectory = berlinCfg.getDrtNetworkCacheDirectory();
+		if (cacheDirectory == null || cacheDirectory.equals("") || cacheDirectory.equals("null")) {
+			cacheDirectory = new File(outputDirectory, "drtNetworkCache").getAbsolutePath();
+			berlinCfg.setDrtNetworkCacheDirectory(cacheDirectory);
+		}
+		prepareDrtNetworkCache(baseConfig);
+
+		List<List<String>> commands = new ArrayList<>();
+		List<Config> configs = new ArrayList<>();
+		for (String fleetFile : fleetFiles) {
+			String fleetName = fleetName(fleetFile);
+			String runId = baseConfig.controler().getRunId() == null ? fleetName : baseConfig.controler().getRunId() + "-" + fleetName;
+			String vehiclesFile = new File(fleetFile).exists() ? new File(fleetFile).getAbsolutePath() : fleetFile;
+
+			List<String> command = new ArrayList<>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			for (String jvmArgument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+				if (jvmArgument.startsWith("-X") || jvmArgument.startsWith("-D")) {
+					command.add(jvmArgument);
+				}
+			}
+			command.add("-XX:ActiveProcessorCount=" + threadsPerRun);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(SingleRun.class.getName());
+			command.add(drtMode);
+			command.add(vehiclesFile);
+			command.addAll(Arrays.asList(configArgs));
+			command.add("--config:controler.outputDirectory=" + outputDirectory + "/" + fleetName);
+			command.add("--config:controler.runId=" + runId);
+			command.add("--config:global.numberOfThreads=" + threadsPerRun);
+			command.add("--config:qsim.numberOfThreads=" + threadsPerRun);
+			command.add("--config:" + BerlinExperimentalConfigGroup.GROUP_NAME + ".drtNetworkCacheDirectory=" + cacheDirectory);
+			commands.add(command);
+
+			// only to read the fleet size for the summary
+			Config config = RunDrtOpenBerlinScenario.prepareConfig(configArgs);
+			getDrtConfigGroup(config, drtMode).setVehiclesFile(vehiclesFile);
+			configs.add(config);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrentRuns, commands.size())));
+		try {
+			List<Future<Map<String, String>>> summaries = new ArrayList<>();
+			for (int i = 0; i < commands.size(); i++) {
+				List<String> command = commands.get(i);
+				String fleetName = fleetName(fleetFiles.get(i));
+				summaries.add(executor.submit(() -> {
+					File logFile = new File(outputDirectory, fleetName + ".log");
+					Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile).start();
+					int exitCode = process.waitFor();
+					if (exitCode != 0) {
+						throw new RuntimeException("Exit code " + exitCode + ", see " + logFile);
+					}
+					return readLastCustomerStats(outputDirectory + "/" + fleetName, drtMode);
+				}));
+			}
+
+			try (BufferedWriter writer = IOUtils.getBufferedWriter(outputDirectory + "/drt_fleet_size_sweep.csv")) {
+				writer.write("fleetFile;vehicles;" + String.join(";", SUMMARY_COLUMNS) + ";detourFactor");
+				writer.newLine();
+				for (int i = 0; i < configs.size(); i++) {
+					Map<String, String> stats;
+					try {
+						stats = summaries.get(i).get();
+					} catch (InterruptedException | ExecutionException e) {
+						throw new RuntimeException("Run with fleet " + fleetFiles.get(i) + " failed.", e);
+					}
+					Config config = configs.get(i);
+					FleetSpecificationImpl fleet = new FleetSpecificationImpl();
+					new FleetReader(fleet).parse(getDrtConfigGroup(config, drtMode).getVehiclesFileUrl(config.getContext()));
+
+					StringBuilder row = new StringBuilder(fleetFiles.get(i)).append(';').append(fleet.getVehicleSpecifications().size());
+					for (String column : SUMMARY_COLUMNS) {
+						row.append(';').append(stats.getOrDefault(column, "NaN"));
+					}
+					row.append(';').append(String.format(Locale.US, "%.4f", detourFactor(stats)));
+					writer.write(row.toString());
+					writer.newLine();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		log.info("Fleet size sweep summary written to " + outputDirectory + "/drt_fleet_size_sweep.csv");
+	}
+
+	/**
+	 * Adds the drt modes to the network like {@link RunDrtOpenBerlinScenario#prepareScenario(Config)}, so the drt links
+	 * are stored in the cache directory before the runs start and no run has to create or write them.
+	 */
+	private static void prepareDrtNetworkCache(Config config) {
+		BerlinExperimentalConfigGroup berlinCfg = ConfigUtils.addOrGetModule(config, BerlinExperimentalConfigGroup.class);
+		if (berlinCfg.getTagDrtLinksBufferAroundServiceAreaShp() < 0.0) {
+			return;
+		}
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readURL(config.network().getInputFileURL(config.getContext()));
+		for (DrtConfigGroup drtCfg : MultiModeDrtConfigGroup.get(config).getModalElements()) {
+			String drtServiceAreaShapeFile = drtCfg.getDrtServiceAreaShapeFile();
+			if (drtServiceAreaShapeFile != null && !drtServiceAreaShapeFile.equals("") && !drtServiceAreaShapeFile.equals("null")) {
+				RunDrtOpenBerlinScenario.addDRTmode(scenario, drtCfg.getMode(), drtServiceAreaShapeFile,
+						berlinCfg.getTagDrtLinksBufferAroundServiceAreaShp(), berlinCfg.getDrtNetworkCacheDirectory());
+			}
+		}
+	}
+
+	/**
+	 * One run of the sweep in its own JVM. Arguments: drt mode, fleet file, config file, followed by the config options.
+	 */
+	public static final class SingleRun {
+
+		public static void main(String[] args) {
+			String drtMode = args[0];
+			String fleetFile = args[1];
+			Config config = RunDrtOpenBerlinScenario.prepareConfig(Arrays.copyOfRange(args, 2, args.length));
+			getDrtConfigGroup(config, drtMode).setVehiclesFile(fleetFile);
+			Scenario scenario = RunDrtOpenBerlinScenario.prepareScenario(config);
+			Controler controler = RunDrtOpenBerlinScenario.prepareControler(scenario);
+			controler.run();
+		}
+
+	}
+
+	/**
+	 * @return the values of the last line of the drt customer stats, by column name
+	 */
+	static Map<String, String> readLastCustomerStats(String outputDirectory, String drtMode) {
+		Map<String, String> stats = new HashMap<>();
+		File[] files = new File(outputDirectory).listFiles((dir, name) -> name.endsWith("drt_customer_stats_" + drtMode + ".csv"));
+		if (files == null || files.length == 0) {
+			log.warn("No drt customer stats of mode " + drtMode + " in " + outputDirectory);
+			return stats;
+		}
+		try (BufferedReader reader = IOUtils.getBufferedReader(files[0].getPath())) {
+			String[] header = reader.readLine().split(";");
+			String lastLine = null;
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (!line.isEmpty()) {
+					lastLine = line;
+				}
+			}
+			if (lastLine != null) {
+				String[] values = lastLine.split(";");
+				for (int i = 0; i < Math.min(header.length, values.length); i++) {
+					stats.put(header[i], values[i]);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return stats;
+	}
+
+	static double detourFactor(Map<String, String> stats) {
+		if (!stats.containsKey("distance_m_mean") || !stats.containsKey("directDistance_m_mean")) {
+			return Double.NaN;
+		}
+		return Double.parseDouble(stats.get("distance_m_mean")) / Double.parseDouble(stats.get("directDistance_m_mean"));
+	}
+
+	private static DrtConfigGroup getDrtConfigGroup(Config config, String drtMode) {
+		return MultiModeDrtConfigGroup.get(config).getModalElements().stream()
+				.filter(drtCfg -> drtCfg.getMode().equals(drtMode))
+				.findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("No drt mode " + drtMode + " in the config."));
+	}
+
+	private static String fleetName(String fleetFile) {
+		String name = new File(fleetFile).getName();
+		return name.replaceAll("\\.xml(\\.gz)?$", "");
+	}
+
+}
@@ -19,14 +19,26 @@
 
 package org.matsim.run.drt;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import com.google.inject.Singleton;
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.run.DrtConfigs;
 import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
@@ -44,13 +56,15 @@ import org.matsim.core.network.algorithms.MultimodalNetworkCleaner;
 import org.matsim.core.router.AnalysisMainModeIdentifier;
 import org.matsim.core.router.MainModeIdentifier;
 import org.matsim.core.scoring.functions.ScoringParametersForPerson;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.run.BerlinExperimentalConfigGroup;
+import org.matsim.run.OpenBerlinScoringParametersForPerson;
 import org.matsim.run.RunBerlinScenario;
 
 import ch.sbb.matsim.config.SwissRailRaptorConfigGroup;
-import playground.vsp.scoring.IncomeDependentUtilityOfMoneyPersonScoringParameters;
 
 /**
  * This class starts a simulation run with DRT.
@@ -106,7 +120,7 @@ public final class RunDrtOpenBerlinScenario {
 				bind(AnalysisMainModeIdentifier.class).to(OpenBerlinIntermodalPtDrtRouterAnalysisModeIdentifier.class);
 
 				//use income-dependent marginal utility of money for scoring
-				bind(ScoringParametersForPerson.class).to(IncomeDependentUtilityOfMoneyPersonScoringParameters.class).in(Singleton.class);
+				bind(ScoringParametersForPerson.class).to(OpenBerlinScoringParametersForPerson.class).in(Singleton.class);
 			}
 		});
 
@@ -120,6 +134,8 @@ public final class RunDrtOpenBerlinScenario {
 		Scenario scenario = RunBerlinScenario.prepareScenario( config );
 		BerlinExperimentalConfigGroup berlinCfg = ConfigUtils.addOrGetModule(config, BerlinExperimentalConfigGroup.class);
 
+		// operators with the same service area share the indexed geometries
+		Map<String, BerlinShpUtils> shpUtilsPerShapeFile = new HashMap<>();
 		for (DrtConfigGroup drtCfg : MultiModeDrtConfigGroup.get(config).getModalElements()) {
 			
 			String drtServiceAreaShapeFile = drtCfg.getDrtServiceAreaShapeFile();
@@ -129,12 +145,14 @@ public final class RunDrtOpenBerlinScenario {
 				// This is even more true since drt started to route on a freespeed TT matrix (Nov '20).
 				// A buffer of 10km to the service area Berlin includes the A10 on some useful stretches outside Berlin.
 				if(berlinCfg.getTagDrtLinksBufferAroundServiceAreaShp() >= 0.0) {
-					addDRTmode(scenario, drtCfg.getMode(), drtServiceAreaShapeFile, berlinCfg.getTagDrtLinksBufferAroundServiceAreaShp());
+					addDRTmode(scenario, drtCfg.getMode(), drtServiceAreaShapeFile,
+							() -> shpUtilsPerShapeFile.computeIfAbsent(drtServiceAreaShapeFile, BerlinShpUtils::new),
+							berlinCfg.getTagDrtLinksBufferAroundServiceAreaShp(), berlinCfg.getDrtNetworkCacheDirectory());
 				}
 				
 				tagTransitStopsInServiceArea(scenario.getTransitSchedule(), 
 						DRT_ACCESS_EGRESS_TO_PT_STOP_FILTER_ATTRIBUTE, DRT_ACCESS_EGRESS_TO_PT_STOP_FILTER_VALUE, 
-						drtServiceAreaShapeFile,
+						shpUtilsPerShapeFile.computeIfAbsent(drtServiceAreaShapeFile, BerlinShpUtils::new),
 						"stopFilter", "station_S/U/RE/RB",
 						// some S+U stations are located slightly outside the shp File, e.g. U7 Neukoelln, U8
 						// Hermannstr., so allow buffer around the shape.
@@ -176,21 +194,59 @@ public final class RunDrtOpenBerlinScenario {
 	}
 	
 	public static void addDRTmode(Scenario scenario, String drtNetworkMode, String drtServiceAreaShapeFile, double buffer) {
+		addDRTmode(scenario, drtNetworkMode, drtServiceAreaShapeFile, buffer, null);
+	}
+
+	/**
+	 * Adds the drt mode to all car links with at least one node in the buffered service area and removes it again
+	 * from the links which are not part of the largest connected drt network. If a cache directory is given, the drt
+	 * links are stored in a file there, which is found again by a hash of the network, the shape file, the buffer and
+	 * the mode; the following runs read the drt links from this file and skip the tagging and the cleaning.
+	 */
+	public static void addDRTmode(Scenario scenario, String drtNetworkMode, String drtServiceAreaShapeFile, double buffer,
+			String cacheDirectory) {
+		addDRTmode(scenario, drtNetworkMode, drtServiceAreaShapeFile, () -> new BerlinShpUtils(drtServiceAreaShapeFile),
+				buffer, cacheDirectory);
+	}
+
+	/**
+	 * @param shpUtilsSupplier the service area of the shape file, only loaded if the drt links are not read from the cache
+	 */
+	private static void addDRTmode(Scenario scenario, String drtNetworkMode, String drtServiceAreaShapeFile,
+			Supplier<BerlinShpUtils> shpUtilsSupplier, double buffer, String cacheDirectory) {
 		
 		log.info("Adjusting network...");
-		
-		BerlinShpUtils shpUtils = new BerlinShpUtils( drtServiceAreaShapeFile );
 
-		int counter = 0;
+		String cacheFile = null;
+		String fingerprint = null;
+		if (cacheDirectory != null && !cacheDirectory.equals("") && !cacheDirectory.equals("null")) {
+			long key = hashKey(scenario.getNetwork(), drtNetworkMode, drtServiceAreaShapeFile, buffer);
+			cacheFile = new File(cacheDirectory, "drtLinks_" + drtNetworkMode + "_" + Long.toHexString(key) + ".txt.gz")
+					.toString();
+			fingerprint = "# links=" + scenario.getNetwork().getLinks().size() + " fingerprint=" + Long.toHexString(key);
+			if (readDrtLinks(scenario.getNetwork(), drtNetworkMode, cacheFile, fingerprint)) {
+				return;
+			}
+		}
+
+		BerlinShpUtils shpUtils = shpUtilsSupplier.get();
+
+		// the point in polygon tests are independent, only the network is changed afterwards in the order of the links
+		List<Link> links = new ArrayList<>(scenario.getNetwork().getLinks().values());
+		boolean[] linksInServiceArea = new boolean[links.size()];
+		IntStream.range(0, links.size()).parallel().forEach(i -> {
+			Link link = links.get(i);
+			linksInServiceArea[i] = link.getAllowedModes().contains(TransportMode.car)
+					&& (shpUtils.isCoordInDrtServiceAreaWithBuffer(link.getFromNode().getCoord(), buffer)
+							|| shpUtils.isCoordInDrtServiceAreaWithBuffer(link.getToNode().getCoord(), buffer));
+		});
+
 		int counterInside = 0;
 		int counterOutside = 0;
-		for (Link link : scenario.getNetwork().getLinks().values()) {
-			if (counter % 10000 == 0)
-				log.info("link #" + counter);
-			counter++;
+		for (int i = 0; i < links.size(); i++) {
+			Link link = links.get(i);
 			if (link.getAllowedModes().contains(TransportMode.car)) {
-				if (shpUtils.isCoordInDrtServiceAreaWithBuffer(link.getFromNode().getCoord(), buffer)
-						|| shpUtils.isCoordInDrtServiceAreaWithBuffer(link.getToNode().getCoord(), buffer)) {
+				if (linksInServiceArea[i]) {
 					Set<String> allowedModes = new HashSet<>(link.getAllowedModes());
 					
 					allowedModes.add(drtNetworkMode);
@@ -208,31 +264,122 @@ public final class RunDrtOpenBerlinScenario {
 			}
 		}
 		
-		log.info("Total links: " + counter);
+		log.info("Total links: " + links.size());
 		log.info("Total links inside service area: " + counterInside);
 		log.info("Total links outside service area: " + counterOutside);
 		
 		Set<String> modes = new HashSet<>();
 		modes.add(drtNetworkMode);
 		new MultimodalNetworkCleaner(scenario.getNetwork()).run(modes);
+
+		if (cacheFile != null) {
+			writeDrtLinks(scenario.getNetwork(), drtNetworkMode, cacheFile, fingerprint);
+		}
+	}
+
+	/**
+	 * @return true, if the file fits to the network and the drt mode has been added to its links
+	 */
+	private static boolean readDrtLinks(Network network, String drtNetworkMode, String cacheFile, String fingerprint) {
+		if (!new File(cacheFile).exists()) {
+			return false;
+		}
+		List<Link> drtLinks = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(cacheFile)) {
+			if (!fingerprint.equals(reader.readLine())) {
+				log.info("The network, the service area or the buffer have changed since " + cacheFile + " was written.");
+				return false;
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Link link = network.getLinks().get(Id.createLinkId(line));
+				if (link == null) {
+					log.warn("Link " + line + " of " + cacheFile + " is not part of the network, the drt links are created again.");
+					return false;
+				}
+				drtLinks.add(link);
+			}
+		} catch (IOException | UncheckedIOException e) {
+			log.warn("Could not read " + cacheFile + ", the drt links are created again.", e);
+			return false;
+		}
+		for (Link link : drtLinks) {
+			Set<String> allowedModes = new HashSet<>(link.getAllowedModes());
+			allowedModes.add(drtNetworkMode);
+			link.setAllowedModes(allowedModes);
+		}
+		log.info("Read " + drtLinks.size() + " drt links from " + cacheFile);
+		return true;
+	}
+
+	private static void writeDrtLinks(Network network, String drtNetworkMode, String cacheFile, String fingerprint) {
+		new File(cacheFile).getParentFile().mkdirs();
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(cacheFile)) {
+			writer.write(fingerprint);
+			writer.newLine();
+			for (Link link : network.getLinks().values()) {
+				if (link.getAllowedModes().contains(drtNetworkMode)) {
+					writer.write(link.getId().toString());
+					writer.newLine();
+				}
+			}
+			log.info("Wrote drt links to " + cacheFile);
+		} catch (IOException | UncheckedIOException e) {
+			log.warn("Could not write " + cacheFile, e);
+		}
+	}
+
+	/**
+	 * The hash of the links does not depend on their order. The shape file is identified by its path, size and last
+	 * modification; for a shape file which is not a local file (e.g. an url), only the path is used.
+	 */
+	private static long hashKey(Network network, String drtNetworkMode, String drtServiceAreaShapeFile, double buffer) {
+		long linksHash = 0;
+		for (Link link : network.getLinks().values()) {
+			long linkHash = link.getId().toString().hashCode();
+			linkHash = 31 * linkHash + link.getFromNode().getCoord().hashCode();
+			linkHash = 31 * linkHash + link.getToNode().getCoord().hashCode();
+			linkHash = 31 * linkHash + link.getAllowedModes().hashCode();
+			linksHash = linksHash + linkHash * 0x9E3779B97F4A7C15L;
+		}
+		long hash = 31 * 17 + linksHash;
+		File file = new File(drtServiceAreaShapeFile);
+		hash = 31 * hash + (file.exists() ? file.getAbsolutePath() : drtServiceAreaShapeFile).hashCode();
+		if (file.exists()) {
+			hash = 31 * hash + Long.hashCode(file.length());
+			hash = 31 * hash + Long.hashCode(file.lastModified());
+		}
+		hash = 31 * hash + Double.hashCode(buffer);
+		hash = 31 * hash + drtNetworkMode.hashCode();
+		return hash;
 	}
 	
 	private static void tagTransitStopsInServiceArea(TransitSchedule transitSchedule, 
 			String newAttributeName, String newAttributeValue, 
-			String drtServiceAreaShapeFile, 
+			BerlinShpUtils shpUtils, 
 			String oldFilterAttribute, String oldFilterValue,
 			double bufferAroundServiceArea) {
 		log.info("Tagging pt stops marked for intermodal access/egress in the service area.");
-		BerlinShpUtils shpUtils = new BerlinShpUtils( drtServiceAreaShapeFile );
+		List<TransitStopFacility> stops = new ArrayList<>();
 		for (TransitStopFacility stop: transitSchedule.getFacilities().values()) {
 			if (stop.getAttributes().getAttribute(oldFilterAttribute) != null) {
 				if (stop.getAttributes().getAttribute(oldFilterAttribute).equals(oldFilterValue)) {
-					if (shpUtils.isCoordInDrtServiceAreaWithBuffer(stop.getCoord(), bufferAroundServiceArea)) {
-						stop.getAttributes().putAttribute(newAttributeName, newAttributeValue);
-					}
+					stops.add(stop);
 				}
 			}
 		}
+		// the stops are classified in parallel, the attributes are not thread-safe and therefore set afterwards
+		boolean[] stopsInServiceArea = new boolean[stops.size()];
+		IntStream.range(0, stops.size()).parallel().forEach(i -> stopsInServiceArea[i] = shpUtils
+				.isCoordInDrtServiceAreaWithBuffer(stops.get(i).getCoord(), bufferAroundServiceArea));
+		int counterInside = 0;
+		for (int i = 0; i < stops.size(); i++) {
+			if (stopsInServiceArea[i]) {
+				stops.get(i).getAttributes().putAttribute(newAttributeName, newAttributeValue);
+				counterInside++;
+			}
+		}
+		log.info(counterInside + " of " + stops.size() + " pt stops are tagged.");
 	}
 
 }
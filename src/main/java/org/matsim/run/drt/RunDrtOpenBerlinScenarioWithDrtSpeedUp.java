@@ -19,6 +19,7 @@
 
 package org.matsim.run.drt;
 
+import com.google.inject.Singleton;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.Person;
@@ -27,9 +28,11 @@ import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
 import org.matsim.contrib.drt.speedup.DrtSpeedUpParams;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Controler;
 import org.matsim.optDRT.MultiModeOptDrtConfigGroup;
 import org.matsim.optDRT.OptDrt;
+import org.matsim.run.BerlinExperimentalConfigGroup;
 import org.matsim.run.RunBerlinScenario;
 
 /**
@@ -56,6 +59,12 @@ public class RunDrtOpenBerlinScenarioWithDrtSpeedUp {
 			}
 		}
 
+		BerlinExperimentalConfigGroup berlinCfg = ConfigUtils.addOrGetModule(config, BerlinExperimentalConfigGroup.class);
+		if (berlinCfg.getDrtSpeedUpStateFile() != null) {
+			// warm start with the drt estimates of a previous run
+			DrtSpeedUpStateListener.applyState(config, berlinCfg.getDrtSpeedUpStateFile());
+		}
+
 		Scenario scenario = RunDrtOpenBerlinScenario.prepareScenario(config);
 		for (Person person : scenario.getPopulation().getPersons().values()) {
 			person.getPlans().removeIf((plan) -> plan != person.getSelectedPlan());
@@ -63,6 +72,15 @@ public class RunDrtOpenBerlinScenarioWithDrtSpeedUp {
 
 		Controler controler = RunDrtOpenBerlinScenario.prepareControler(scenario);
 
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				bind(DrtSpeedUpStateListener.class).in(Singleton.class);
+				addControlerListenerBinding().to(DrtSpeedUpStateListener.class);
+				addEventHandlerBinding().to(DrtSpeedUpStateListener.class);
+			}
+		});
+
 		OptDrt.addAsOverridingModule(controler,
 				ConfigUtils.addOrGetModule(scenario.getConfig(), MultiModeOptDrtConfigGroup.class));
 		
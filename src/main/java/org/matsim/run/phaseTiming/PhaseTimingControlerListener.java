@@ -0,0 +1,298 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.phaseTiming;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.StrategyConfigGroup;
+import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.replanning.GenericPlanStrategy;
+import org.matsim.core.replanning.PlanStrategy;
+import org.matsim.core.replanning.ReplanningUtils;
+import org.matsim.core.replanning.StrategyManager;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes wall time, process cpu time, allocated bytes and gc count/time per iteration phase to phase_timing.csv.
+ * The phases are delimited by the controler listener calls:
+ * <ul>
+ * <li>replanning: iteration starts until before mobsim (replanning incl. re-routing and prepare for mobsim)</li>
+ * <li>mobsim: before mobsim until after mobsim (incl. events handling and writing)</li>
+ * <li>scoring: after mobsim until iteration ends</li>
+ * <li>iterationEnd: iteration ends until the next iteration starts or shutdown (dumps, statistics)</li>
+ * </ul>
+ * As the order of the listeners of one kind is not defined, the borders between the phases are approximate.
+ * <p>
+ * In addition, each innovative strategy of the {@link StrategyManager} is wrapped in a {@link TimedPlanStrategy}, and
+ * its number of calls and time are written after each replanning phase. Selector-only strategies are left untouched.
+ * <p>
+ * Allocated bytes are taken from the per-thread allocation counters of the jvm. Allocations of threads which terminate
+ * between two phase borders after their last sample are therefore not counted.
+ */
+public class PhaseTimingControlerListener implements StartupListener, IterationStartsListener, BeforeMobsimListener,
+		AfterMobsimListener, IterationEndsListener, ShutdownListener {
+
+	private static final Logger log = Logger.getLogger(PhaseTimingControlerListener.class);
+
+	static final String FILE_NAME = "phase_timing.csv";
+
+	private final StrategyManager strategyManager;
+	private final StrategyConfigGroup strategyConfigGroup;
+	private final ControlerConfigGroup controlerConfigGroup;
+	private final OutputDirectoryHierarchy controlerIO;
+
+	private final List<TimedPlanStrategy> timedStrategies = new ArrayList<>();
+	private final Map<Long, Long> allocatedBytesPerThread = new HashMap<>();
+
+	private final com.sun.management.OperatingSystemMXBean operatingSystem;
+	private final com.sun.management.ThreadMXBean threads;
+	private final List<GarbageCollectorMXBean> garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+	private BufferedWriter writer;
+	private int iteration;
+	private String currentPhase;
+	private Sample lastSample;
+
+	private static final class Sample {
+		long wallNanos;
+		long cpuNanos;
+		long allocatedBytes;
+		long gcCount;
+		long gcMillis;
+	}
+
+	@Inject
+	PhaseTimingControlerListener(StrategyManager strategyManager, StrategyConfigGroup strategyConfigGroup,
+								 ControlerConfigGroup controlerConfigGroup, OutputDirectoryHierarchy controlerIO) {
+		this.strategyManager = strategyManager;
+		this.strategyConfigGroup = strategyConfigGroup;
+		this.controlerConfigGroup = controlerConfigGroup;
+		this.controlerIO = controlerIO;
+
+		java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		this.operatingSystem = os instanceof com.sun.management.OperatingSystemMXBean ? (com.sun.management.OperatingSystemMXBean) os : null;
+
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+			this.threads = (com.sun.management.ThreadMXBean) threadMXBean;
+			this.threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			this.threads = null;
+			log.warn("Thread allocated memory is not supported by this jvm. Allocated bytes will be written as -1.");
+		}
+	}
+
+	@Override
+	public void notifyStartup(StartupEvent event) {
+		wrapInnovativeStrategies();
+		writer = IOUtils.getBufferedWriter(controlerIO.getOutputFilename(FILE_NAME));
+		try {
+			writer.write("iteration;phase;wallSeconds;cpuSeconds;allocatedBytes;gcCount;gcSeconds;calls");
+			writer.newLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		switchPhase("replanning");
+		iteration = event.getIteration();
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		switchPhase("mobsim");
+		for (TimedPlanStrategy strategy : timedStrategies) {
+			long calls = strategy.takeCalls();
+			long nanos = strategy.takeNanos();
+			if (calls > 0 || nanos > 0) {
+				writeRow(iteration + ";strategy:" + strategy.getName() + String.format(Locale.US, ";%.3f;;;;;", nanos / 1e9) + calls);
+			}
+		}
+	}
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		switchPhase("scoring");
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		switchPhase("iterationEnd");
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		switchPhase(null);
+		try {
+			writer.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes the current phase (writes its row) and starts the next one.
+	 */
+	private void switchPhase(String nextPhase) {
+		Sample sample = takeSample();
+		if (currentPhase != null && lastSample != null) {
+			long allocatedBytes = threads == null ? -1 : sample.allocatedBytes;
+			writeRow(String.format(Locale.US, "%d;%s;%.3f;%.3f;%d;%d;%.3f;", iteration, currentPhase,
+					(sample.wallNanos - lastSample.wallNanos) / 1e9,
+					operatingSystem == null ? -1. : (sample.cpuNanos - lastSample.cpuNanos) / 1e9,
+					allocatedBytes, sample.gcCount - lastSample.gcCount, (sample.gcMillis - lastSample.gcMillis) / 1e3));
+		}
+		currentPhase = nextPhase;
+		lastSample = sample;
+	}
+
+	private Sample takeSample() {
+		Sample sample = new Sample();
+		sample.wallNanos = System.nanoTime();
+		sample.cpuNanos = operatingSystem == null ? 0 : operatingSystem.getProcessCpuTime();
+		sample.allocatedBytes = takeAllocatedBytes();
+		for (GarbageCollectorMXBean garbageCollector : garbageCollectors) {
+			sample.gcCount += Math.max(0, garbageCollector.getCollectionCount());
+			sample.gcMillis += Math.max(0, garbageCollector.getCollectionTime());
+		}
+		return sample;
+	}
+
+	/**
+	 * @return bytes allocated by all live threads since the last call
+	 */
+	private long takeAllocatedBytes() {
+		if (threads == null) {
+			return 0;
+		}
+		long[] ids = threads.getAllThreadIds();
+		long[] bytes = threads.getThreadAllocatedBytes(ids);
+		Map<Long, Long> previous = new HashMap<>(allocatedBytesPerThread);
+		allocatedBytesPerThread.clear();
+		long allocated = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (bytes[i] >= 0) {
+				allocated += bytes[i] - previous.getOrDefault(ids[i], 0L);
+				allocatedBytesPerThread.put(ids[i], bytes[i]);
+			}
+		}
+		return allocated;
+	}
+
+	private void writeRow(String row) {
+		try {
+			writer.write(row);
+			writer.newLine();
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Replaces the innovative strategies by timed wrappers. All strategies of a subpopulation are removed and re-added
+	 * in the same order with the same weights, so the strategy choice is not changed. As the switch-off change requests
+	 * registered by the {@link StrategyManager} refer to the original strategies, they are registered again for the
+	 * wrappers, following the same rules as the {@link StrategyManager}.
+	 */
+	private void wrapInnovativeStrategies() {
+		int firstIteration = controlerConfigGroup.getFirstIteration();
+		int globalInnovationDisableAfter = (int) ((controlerConfigGroup.getLastIteration() - firstIteration)
+				* strategyConfigGroup.getFractionOfIterationsToDisableInnovation() + firstIteration);
+
+		Map<String, List<StrategySettings>> settingsPerSubpopulation = new LinkedHashMap<>();
+		for (StrategySettings settings : strategyConfigGroup.getStrategySettings()) {
+			settingsPerSubpopulation.computeIfAbsent(settings.getSubpopulation(), s -> new ArrayList<>()).add(settings);
+		}
+
+		for (Map.Entry<String, List<StrategySettings>> entry : settingsPerSubpopulation.entrySet()) {
+			String subpopulation = entry.getKey();
+			List<StrategySettings> settingsList = entry.getValue();
+			List<GenericPlanStrategy<Plan, Person>> strategies = new ArrayList<>(strategyManager.getStrategies(subpopulation));
+			List<Double> weights = new ArrayList<>(strategyManager.getWeights(subpopulation));
+			if (strategies.size() != settingsList.size()) {
+				log.warn("Strategies of subpopulation " + subpopulation + " do not match the strategy settings in the config. "
+						+ "Strategies of this subpopulation are not timed.");
+				continue;
+			}
+
+			for (GenericPlanStrategy<Plan, Person> strategy : strategies) {
+				strategyManager.removeStrategy((PlanStrategy) strategy, subpopulation);
+			}
+
+			for (int i = 0; i < strategies.size(); i++) {
+				PlanStrategy strategy = (PlanStrategy) strategies.get(i);
+				StrategySettings settings = settingsList.get(i);
+				if (ReplanningUtils.isOnlySelector(strategy)) {
+					strategyManager.addStrategy(strategy, subpopulation, weights.get(i));
+					continue;
+				}
+
+				String name = subpopulation == null ? settings.getStrategyName() : settings.getStrategyName() + "@" + subpopulation;
+				TimedPlanStrategy timedStrategy = new TimedPlanStrategy(strategy, name);
+				strategyManager.addStrategy(timedStrategy, subpopulation, weights.get(i));
+				timedStrategies.add(timedStrategy);
+
+				int disableAfter = settings.getDisableAfter();
+				if (disableAfter > globalInnovationDisableAfter || disableAfter == -1) {
+					disableAfter = globalInnovationDisableAfter;
+				}
+				if (disableAfter >= firstIteration) {
+					strategyManager.addChangeRequest(disableAfter + 1, timedStrategy, subpopulation, 0.);
+				}
+				// otherwise the StrategyManager has already set the weight to 0
+			}
+		}
+		log.info("Timing " + timedStrategies.size() + " innovative replanning strategies.");
+	}
+
+}
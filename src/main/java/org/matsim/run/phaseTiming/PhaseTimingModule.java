@@ -0,0 +1,39 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.phaseTiming;
+
+import com.google.inject.Singleton;
+import org.matsim.core.controler.AbstractModule;
+
+/**
+ * Installs the {@link PhaseTimingControlerListener}, which writes wall time, cpu time, allocated bytes and gc time per
+ * iteration phase and the time spent in each innovative replanning strategy to phase_timing.csv.
+ * <p>
+ * Innovative strategies are wrapped for timing, so this module can not be combined with the dynamic shutdown which
+ * expects all strategies to be {@link org.matsim.core.replanning.PlanStrategyImpl}s.
+ */
+public class PhaseTimingModule extends AbstractModule {
+
+	@Override
+	public void install() {
+		this.bind(PhaseTimingControlerListener.class).in(Singleton.class);
+		this.addControlerListenerBinding().to(PhaseTimingControlerListener.class);
+	}
+}
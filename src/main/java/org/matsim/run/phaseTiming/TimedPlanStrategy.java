@@ -0,0 +1,92 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run.phaseTiming;
+
+import org.matsim.api.core.v01.population.HasPlansAndId;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.replanning.PlanStrategy;
+import org.matsim.core.replanning.ReplanningContext;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delegates to a plan strategy and sums up the number of persons handed to it and the time spent in it. Most of the
+ * work of an innovative strategy (e.g. routing) is done in {@link #finish()}, where the strategy modules handle the
+ * collected plans.
+ */
+final class TimedPlanStrategy implements PlanStrategy {
+
+	private final PlanStrategy delegate;
+	private final String name;
+
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+
+	TimedPlanStrategy(PlanStrategy delegate, String name) {
+		this.delegate = delegate;
+		this.name = name;
+	}
+
+	@Override
+	public void run(HasPlansAndId<Plan, Person> person) {
+		long start = System.nanoTime();
+		delegate.run(person);
+		nanos.add(System.nanoTime() - start);
+		calls.increment();
+	}
+
+	@Override
+	public void init(ReplanningContext replanningContext) {
+		long start = System.nanoTime();
+		delegate.init(replanningContext);
+		nanos.add(System.nanoTime() - start);
+	}
+
+	@Override
+	public void finish() {
+		long start = System.nanoTime();
+		delegate.finish();
+		nanos.add(System.nanoTime() - start);
+	}
+
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return number of persons handled since the last call, resets the counter
+	 */
+	long takeCalls() {
+		return calls.sumThenReset();
+	}
+
+	/**
+	 * @return time in nanoseconds spent in this strategy since the last call, resets the counter
+	 */
+	long takeNanos() {
+		return nanos.sumThenReset();
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+}
@@ -20,7 +20,7 @@ public class AbfallChessboardUtils {
 
 	static String linkChessboardDump = "j(0,9)R";
 	static String linkChessboardDepot = "j(0,7)R";
-	static Carrier carrierChessboard = CarrierImpl.newInstance(Id.create("Carrier_Chessboard", Carrier.class));
+	static final Id<Carrier> carrierChessboardId = Id.create("Carrier_Chessboard", Carrier.class);
 
 	/**
 	 * Creates shipments for the chessboard network with the input of the volume
@@ -28,10 +28,11 @@ public class AbfallChessboardUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsForChessboardI(HashMap<String, Carrier> carrierMap, int garbageToCollect,
-			Map<Id<Link>, ? extends Link> allLinks, double volumeBigDustbin, double serviceTimePerBigTrashcan,
-			Scenario scenario, Carriers carriers) {
+	static void createShipmentsForChessboardI(AbfallUtils abfallUtils, HashMap<String, Carrier> carrierMap,
+			int garbageToCollect, Map<Id<Link>, ? extends Link> allLinks, double volumeBigDustbin,
+			double serviceTimePerBigTrashcan, Scenario scenario, Carriers carriers) {
 		Map<Id<Link>, Link> garbageLinks = new HashMap<Id<Link>, Link>();
+		Carrier carrierChessboard = CarrierImpl.newInstance(carrierChessboardId);
 		carrierMap.clear();
 		carrierMap.put("carrierChessboard", carrierChessboard);
 		double distanceWithShipments = 0;
@@ -42,9 +43,9 @@ public class AbfallChessboardUtils {
 			}
 		}
 		Id<Link> linkDumpId = Id.createLinkId(linkChessboardDump);
-		AbfallUtils.createShipmentsForCarrierII(garbageToCollect, volumeBigDustbin, serviceTimePerBigTrashcan,
+		abfallUtils.createShipmentsForCarrierII(garbageToCollect, volumeBigDustbin, serviceTimePerBigTrashcan,
 				distanceWithShipments, garbageLinks, scenario, carrierChessboard, linkDumpId, carriers);
-		AbfallUtils.districtsWithShipments.add("Chessboard");
+		abfallUtils.districtsWithShipments.add("Chessboard");
 		carriers.addCarrier(carrierChessboard);
 
 	}
@@ -56,10 +57,11 @@ public class AbfallChessboardUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsForChessboardII(HashMap<String, Carrier> carrierMap, double garbagePerMeterToCollect,
-			Map<Id<Link>, ? extends Link> allLinks, double volumeBigDustbin, double serviceTimePerBigTrashcan,
-			Scenario scenario, Carriers carriers) {
+	static void createShipmentsForChessboardII(AbfallUtils abfallUtils, HashMap<String, Carrier> carrierMap,
+			double garbagePerMeterToCollect, Map<Id<Link>, ? extends Link> allLinks, double volumeBigDustbin,
+			double serviceTimePerBigTrashcan, Scenario scenario, Carriers carriers) {
 		Map<Id<Link>, Link> garbageLinks = new HashMap<Id<Link>, Link>();
+		Carrier carrierChessboard = CarrierImpl.newInstance(carrierChessboardId);
 		carrierMap.clear();
 		carrierMap.put("carrierChessboard", carrierChessboard);
 		double distanceWithShipments = 0;
@@ -70,9 +72,9 @@ public class AbfallChessboardUtils {
 			}
 		}
 		Id<Link> linkDumpId = Id.createLinkId(linkChessboardDump);
-		AbfallUtils.createShipmentsForCarrierI(garbagePerMeterToCollect, volumeBigDustbin, serviceTimePerBigTrashcan,
+		abfallUtils.createShipmentsForCarrierI(garbagePerMeterToCollect, volumeBigDustbin, serviceTimePerBigTrashcan,
 				garbageLinks, scenario, carrierChessboard, linkDumpId, carriers);
-		AbfallUtils.districtsWithShipments.add("Chessboard");
+		abfallUtils.districtsWithShipments.add("Chessboard");
 		carriers.addCarrier(carrierChessboard);
 
 	}
@@ -111,7 +113,7 @@ public class AbfallChessboardUtils {
 		CarrierCapabilities carrierCapabilities = CarrierCapabilities.Builder.newInstance()
 				.addType(carrierVehicleTypes.getVehicleTypes().values().iterator().next()).addVehicle(vehicleDepot).setFleetSize(fleetSize).build();
 
-		carrierChessboard.setCarrierCapabilities(carrierCapabilities);
+		carriers.getCarriers().get(carrierChessboardId).setCarrierCapabilities(carrierCapabilities);
 
 		// Fahrzeugtypen den Anbietern zuordenen
 		new CarrierVehicleTypeLoader(carriers).loadVehicleTypes(carrierVehicleTypes);
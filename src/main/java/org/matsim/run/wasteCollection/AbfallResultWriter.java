@@ -0,0 +1,317 @@
+package org.matsim.run.wasteCollection;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.Carriers;
+import org.matsim.contrib.freight.carrier.ScheduledTour;
+import org.matsim.contrib.freight.carrier.Tour;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.vehicles.VehicleType;
+
+/**
+ * Writes the tour statistics (02_SummaryOutput.txt) carrier by carrier, as soon
+ * as the plan of a carrier is available, e.g. while jsprit is still solving the
+ * remaining carriers, see {@link AbfallUtils#setResultWriter(AbfallResultWriter)}.
+ * The tours are only read once; the totals needed by
+ * {@link AbfallUtils#outputSummary} are kept in {@link TourStatistics} per depot
+ * and in counters per dump, so nothing has to be collected until all carriers
+ * are solved.
+ */
+final class AbfallResultWriter implements Closeable {
+
+	/**
+	 * The depots of the summary, found by the ids of their vehicles, e.g.
+	 * TruckNordringDiesel.
+	 */
+	static final String[] depots = { "Forckenbeck", "Malmoeer", "Nordring", "Gradestrasse", "Chessboard" };
+
+	private final Network network;
+	private final BufferedWriter writer;
+	private final Map<Id<VehicleType>, VehicleType> vehicleTypes = new LinkedHashMap<Id<VehicleType>, VehicleType>();
+	private final Map<String, Integer> usedNumberPerVehicleType = new LinkedHashMap<String, Integer>();
+	private final List<String> toursWithOverconsumption = new ArrayList<String>();
+
+	private final boolean electricCar;
+	private final double energyConsumptionPerDistance;
+	private final double energyConsumptionPerWeight;
+
+	private final Map<String, TourStatistics> statisticsPerDepot = new LinkedHashMap<String, TourStatistics>();
+	// the chessboard has only a few vehicles, its summary lists every tour
+	private final List<Double> tourDistancesChessboard = new ArrayList<Double>();
+	private final List<Double> energyConsumptionsChessboard = new ArrayList<Double>();
+	private int carriersWithShipments = 0;
+	private int garbageRuhleben = 0;
+	private int garbagePankow = 0;
+	private int garbageReinickendorf = 0;
+	private int garbageUmladestationGradestrasse = 0;
+	private int garbageGruenauerStr = 0;
+
+	/**
+	 * The vehicle types are the ones of the first carrier of the scenario, so the
+	 * carriers have to be created before.
+	 *
+	 * @param file the file for the tour statistics or null, if only the totals are
+	 *             needed
+	 */
+	AbfallResultWriter(Scenario scenario, String file) throws IOException {
+		this.network = scenario.getNetwork();
+		Carriers allCarriers = (Carriers) scenario.getScenarioElement("carriers");
+		Carrier testCarrier = allCarriers.getCarriers().values().iterator().next();
+		boolean electric = false;
+		double consumptionPerDistance = 0;
+		double consumptionPerWeight = 0;
+		for (VehicleType usedType : testCarrier.getCarrierCapabilities().getVehicleTypes()) {
+			vehicleTypes.put(usedType.getId(), usedType);
+			usedNumberPerVehicleType.put(usedType.getId().toString(), 0);
+			if (isElectric(usedType)) {
+				electric = true;
+				consumptionPerDistance = getConsumptionPerKm(usedType);
+				consumptionPerWeight = 1.4;
+			}
+		}
+		this.electricCar = electric;
+		this.energyConsumptionPerDistance = consumptionPerDistance;
+		this.energyConsumptionPerWeight = consumptionPerWeight;
+		for (String depot : depots) {
+			statisticsPerDepot.put(depot, new TourStatistics());
+		}
+
+		if (file != null) {
+			writer = new BufferedWriter(new FileWriter(file, true));
+			String now = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(new Date());
+			writer.write("Tourenstatisitik erstellt am: " + now + "\n\n");
+		} else {
+			writer = null;
+		}
+	}
+
+	/**
+	 * Adds the tours of the selected plan of the carrier to the totals and writes
+	 * its statistics. Has to be called once per carrier.
+	 */
+	void writeCarrier(Carrier singleCarrier) throws IOException {
+		List<ScheduledTour> tours = new ArrayList<ScheduledTour>(singleCarrier.getSelectedPlan().getScheduledTours());
+		double[] tourDistances = new double[tours.size()];
+		double totalDistance = 0;
+		int numCollections = 0;
+
+		for (int tourNumber = 0; tourNumber < tours.size(); tourNumber++) {
+			ScheduledTour scheduledTour = tours.get(tourNumber);
+			String vehicleId = scheduledTour.getVehicle().getId().toString();
+			String depot = null;
+			for (String singleDepot : depots) {
+				if (vehicleId.contains("Truck" + singleDepot))
+					depot = singleDepot;
+			}
+			double distanceTour = 0;
+			int sizeTour = 0;
+			for (Tour.TourElement element : scheduledTour.getTour().getTourElements()) {
+				if (element instanceof Tour.Pickup) {
+					numCollections++;
+					if (depot != null)
+						sizeTour = sizeTour + ((Tour.Pickup) element).getShipment().getSize();
+				}
+				if (element instanceof Tour.Delivery) {
+					Tour.Delivery deliveryElement = (Tour.Delivery) element;
+					countGarbageAtDump(deliveryElement.getLocation(), deliveryElement.getShipment().getSize());
+				}
+				if (element instanceof Tour.Leg) {
+					Tour.Leg legElement = (Tour.Leg) element;
+					if (legElement.getRoute().getDistance() != 0)
+						distanceTour = distanceTour
+								+ RouteUtils.calcDistance((NetworkRoute) legElement.getRoute(), 0, 0, network);
+				}
+			}
+			tourDistances[tourNumber] = distanceTour;
+			totalDistance = totalDistance + distanceTour;
+			usedNumberPerVehicleType.merge(scheduledTour.getVehicle().getType().getId().toString(), 1, Integer::sum);
+
+			if (depot != null) {
+				double distance = Math.round(distanceTour / 1000);
+				double energy = Math.round((distanceTour / 1000) * energyConsumptionPerDistance
+						+ (double) (sizeTour / 1000) * energyConsumptionPerWeight);
+				statisticsPerDepot.get(depot).addTour(sizeTour, distance, energy);
+				if (depot.equals("Chessboard")) {
+					tourDistancesChessboard.add(distance);
+					energyConsumptionsChessboard.add(energy);
+				}
+			}
+		}
+		if (singleCarrier.getShipments().size() > 0)
+			carriersWithShipments++;
+
+		if (writer != null)
+			writeCarrier(singleCarrier, tours, tourDistances, totalDistance, numCollections);
+	}
+
+	private void countGarbageAtDump(Id<Link> dump, int size) {
+		if (dump == Id.createLinkId(AbfallUtils.linkMhkwRuhleben))
+			garbageRuhleben = garbageRuhleben + size;
+		if (dump == Id.createLinkId(AbfallUtils.linkMpsPankow))
+			garbagePankow = garbagePankow + size;
+		if (dump == Id.createLinkId(AbfallUtils.linkMpsReinickendorf))
+			garbageReinickendorf = garbageReinickendorf + size;
+		if (dump == Id.createLinkId(AbfallUtils.linkUmladestationGradestrasse))
+			garbageUmladestationGradestrasse = garbageUmladestationGradestrasse + size;
+		if (dump == Id.createLinkId(AbfallUtils.linkGruenauerStr))
+			garbageGruenauerStr = garbageGruenauerStr + size;
+	}
+
+	private void writeCarrier(Carrier singleCarrier, List<ScheduledTour> tours, double[] tourDistances,
+			double totalDistance, int numCollections) throws IOException {
+		writer.write("\n\n" + "Version: " + singleCarrier.getId().toString() + "\n");
+		writer.write("\tAnzahl der Abholstellen (Soll): \t\t\t\t\t" + singleCarrier.getShipments().size() + "\n");
+		writer.write("\tAnzahl der Abholstellen ohne Abholung: \t\t\t\t"
+				+ (singleCarrier.getShipments().size() - numCollections) + "\n");
+		writer.write("\tAnzahl der Fahrzeuge:\t\t\t\t\t\t\t\t" + tours.size() + "\n");
+		for (VehicleType singleVehicleType : vehicleTypes.values()) {
+			if (singleCarrier.getId().toString().equals(singleVehicleType.getDescription())) {
+				writer.write("\t\t\tAnzahl Typ " + singleVehicleType.getId().toString() + ":\t\t\t\t"
+						+ usedNumberPerVehicleType.get(singleVehicleType.getId().toString()) + "\n");
+			}
+		}
+		writer.write("\n" + "\tGefahrene Kilometer insgesamt:\t\t\t\t\t\t" + Math.round(totalDistance / 1000) + " km\n");
+		writer.write("\tVerfügbare Fahrzeugtypen:\t\t\t\t\t\n\n");
+		for (VehicleType singleVehicleType : vehicleTypes.values()) {
+			writer.write("\t\t\tID: " + singleVehicleType.getId() + "\t\tAntrieb: "
+					+ singleVehicleType.getEngineInformation().getAttributes().getAttribute("fuelType").toString()
+					+ "\t\tKapazität: " + singleVehicleType.getCapacity().getOther() + "\t\tFixkosten:"
+					+ singleVehicleType.getCostInformation().getFixedCosts() + " €");
+			if (isElectric(singleVehicleType)) {
+				double electricityConsumptionPer100km = getConsumptionPerKm(singleVehicleType);
+				double electricityCapacityinkWh = getCapacityInKWh(singleVehicleType);
+				writer.write("\t\tLadekapazität: " + electricityCapacityinkWh + " kWh\t\tVerbrauch: "
+						+ electricityConsumptionPer100km + " kWh/100km\t\tReichweite: "
+						+ (int) Math.round(electricityCapacityinkWh / electricityConsumptionPer100km) + " km\n");
+			} else
+				writer.write("\n");
+		}
+		writer.write("\n\n" + "\tTourID\t\t\t\t\t\tdistance (max Distance) (km)\tconsumption (capacity) (kWh)\n\n");
+
+		for (int tourNumber = 0; tourNumber < tours.size(); tourNumber++) {
+			VehicleType vehicleType = tours.get(tourNumber).getVehicle().getType();
+			String tourId = vehicleType.getId() + "-Tour " + (tourNumber + 1);
+			writer.write("\t" + tourId + "\t\t" + (int) Math.round(tourDistances[tourNumber] / 1000));
+			if (isElectric(vehicleType)) {
+				double electricityCapacityinkWh = getCapacityInKWh(vehicleType);
+				double distanceRange = (int) Math.round(electricityCapacityinkWh / getConsumptionPerKm(vehicleType));
+				int consumption = (int) Math.round((tourDistances[tourNumber] / 1000) * getConsumptionPerKm(vehicleType));
+				if (consumption > electricityCapacityinkWh)
+					toursWithOverconsumption.add(tourId);
+				writer.write(" (" + distanceRange + ")\t\t\t\t\t\t" + consumption + " (" + electricityCapacityinkWh + ")");
+			} else
+				writer.write("\t\t\t\t\t\t\t\t\t\t");
+			writer.newLine();
+		}
+		// the statistics of a carrier are complete, even if the following carriers fail
+		writer.flush();
+	}
+
+	/**
+	 * @return true, if the fuelType is electricity, the value of the electric
+	 *         vehicles in the vehicleTypes.xml
+	 */
+	static boolean isElectric(VehicleType vehicleType) {
+		return vehicleType.getEngineInformation().getAttributes().getAttribute("fuelType").equals("electricity");
+	}
+
+	private static double getConsumptionPerKm(VehicleType vehicleType) {
+		return (double) vehicleType.getEngineInformation().getAttributes().getAttribute("engeryConsumptionPerKm");
+	}
+
+	private static double getCapacityInKWh(VehicleType vehicleType) {
+		return (double) vehicleType.getEngineInformation().getAttributes().getAttribute("engeryCapacity");
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (writer != null)
+			writer.close();
+	}
+
+	/**
+	 * @return the tours of electric vehicles, which need more energy than the
+	 *         capacity of their battery
+	 */
+	List<String> getToursWithOverconsumption() {
+		return toursWithOverconsumption;
+	}
+
+	TourStatistics getStatistics(String depot) {
+		return statisticsPerDepot.get(depot);
+	}
+
+	/**
+	 * @return the number of tours of all depots
+	 */
+	int getNumberOfTours() {
+		int numberOfTours = 0;
+		for (TourStatistics statistics : statisticsPerDepot.values()) {
+			numberOfTours = numberOfTours + statistics.getNumberOfTours();
+		}
+		return numberOfTours;
+	}
+
+	/**
+	 * @return the garbage collected by the tours of all depots in kg
+	 */
+	int getCollectedGarbage() {
+		int garbage = 0;
+		for (TourStatistics statistics : statisticsPerDepot.values()) {
+			garbage = garbage + statistics.getGarbage();
+		}
+		return garbage;
+	}
+
+	List<Double> getTourDistancesChessboard() {
+		return tourDistancesChessboard;
+	}
+
+	List<Double> getEnergyConsumptionsChessboard() {
+		return energyConsumptionsChessboard;
+	}
+
+	boolean isElectricCar() {
+		return electricCar;
+	}
+
+	int getCarriersWithShipments() {
+		return carriersWithShipments;
+	}
+
+	int getGarbageRuhleben() {
+		return garbageRuhleben;
+	}
+
+	int getGarbagePankow() {
+		return garbagePankow;
+	}
+
+	int getGarbageReinickendorf() {
+		return garbageReinickendorf;
+	}
+
+	int getGarbageUmladestationGradestrasse() {
+		return garbageUmladestationGradestrasse;
+	}
+
+	int getGarbageGruenauerStr() {
+		return garbageGruenauerStr;
+	}
+
+}
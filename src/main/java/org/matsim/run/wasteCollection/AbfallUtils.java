@@ -1,42 +1,51 @@
 package org.matsim.run.wasteCollection;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 import org.apache.log4j.Logger;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.freight.Freight;
 import org.matsim.contrib.freight.FreightConfigGroup;
 import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities.FleetSize;
 import org.matsim.contrib.freight.carrier.CarrierPlan;
+import org.matsim.contrib.freight.carrier.CarrierPlanXmlReader;
 import org.matsim.contrib.freight.carrier.CarrierPlanXmlWriterV2;
 import org.matsim.contrib.freight.carrier.CarrierShipment;
 import org.matsim.contrib.freight.carrier.CarrierUtils;
+import org.matsim.contrib.freight.carrier.CarrierVehicle;
 import org.matsim.contrib.freight.carrier.CarrierVehicleTypes;
 import org.matsim.contrib.freight.carrier.Carriers;
 import org.matsim.contrib.freight.carrier.ScheduledTour;
 import org.matsim.contrib.freight.carrier.TimeWindow;
-import org.matsim.contrib.freight.carrier.Tour;
-import org.matsim.contrib.freight.carrier.Tour.Delivery;
-import org.matsim.contrib.freight.carrier.Tour.Leg;
-import org.matsim.contrib.freight.carrier.Tour.Pickup;
-import org.matsim.contrib.freight.carrier.Tour.TourElement;
 import org.matsim.contrib.freight.controler.CarrierModule;
 import org.matsim.contrib.freight.jsprit.MatsimJspritFactory;
 import org.matsim.contrib.freight.jsprit.NetworkBasedTransportCosts;
@@ -49,23 +58,33 @@ import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
-import org.matsim.core.population.routes.NetworkRoute;
-import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.vehicles.VehicleType;
 import org.opengis.feature.simple.SimpleFeature;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 import com.graphhopper.jsprit.analysis.toolbox.Plotter;
 import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
-import com.graphhopper.jsprit.core.algorithm.box.SchrimpfFactory;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
 import com.graphhopper.jsprit.core.util.Solutions;
 
 /**
+ * Plans the waste collection of one day or scenario. An instance holds the
+ * counters and results of its planning, so several days or scenarios can be
+ * planned concurrently with separate instances (and separate carriers). The
+ * links of each district are created once with
+ * {@link #createMapWithLinksInDistricts(Collection, Map)} and can be shared by
+ * all instances, as they are immutable.
+ * 
  * @author Ricardo Ewert
  *
  */
@@ -73,39 +92,87 @@ class AbfallUtils {
 
 	static final Logger log = Logger.getLogger(AbfallUtils.class);
 
-	static int amountOfCollectedDustbins;
-	static int matsimIterations;
-	static int jspritIterations;
-	static double costsJsprit = 0;
-	static int noPickup = 0;
-	static int allGarbage = 0;
-	static int numberOfShipments = 0;
-	static int garbageRuhleben = 0;
-	static int garbagePankow = 0;
-	static int garbageReinickenD = 0;
-	static int garbageGradestr = 0;
-	static int garbageGruenauerStr = 0;
-	static String linkMhkwRuhleben = "142010";
-	static String linkMpsPankow = "145812";
-	static String linkMpsReinickendorf = "59055";
-	static String linkUmladestationGradestrasse = "71781";
-	static String linkGruenauerStr = "97944";
-	static List<String> districtsWithShipments = new ArrayList<String>();
-	static List<String> districtsWithNoShipments = new ArrayList<String>();
-	static HashMap<String, String> dataEnt = new HashMap<String, String>();
-	static Multimap<String, String> linksInDistricts;
-	static boolean streetAlreadyInGarbageLinks = false;
+	static final String linkMhkwRuhleben = "142010";
+	static final String linkMpsPankow = "145812";
+	static final String linkMpsReinickendorf = "59055";
+	static final String linkUmladestationGradestrasse = "71781";
+	static final String linkGruenauerStr = "97944";
 
 	/**
-	 * Creates a map for getting the name of the attribute, where you can find the
-	 * dump for the selected day of pickup.
+	 * The name of the attribute, where you can find the dump for the selected day
+	 * of pickup.
 	 */
-	private static void createMapEnt() {
-		dataEnt.put("MO", "Mo-Ent");
-		dataEnt.put("DI", "Di-Ent");
-		dataEnt.put("MI", "Mi-Ent");
-		dataEnt.put("DO", "Do-Ent");
-		dataEnt.put("FR", "Fr-Ent");
+	private static final Map<String, String> dataEnt = Map.of("MO", "Mo-Ent", "DI", "Di-Ent", "MI", "Mi-Ent", "DO",
+			"Do-Ent", "FR", "Fr-Ent");
+
+	private final ListMultimap<String, String> linksInDistricts;
+
+	int amountOfCollectedDustbins;
+	int jspritIterations;
+	int warmStartIterations;
+	int warmStartedCarriers = 0;
+	int maxShipmentsPerCluster = 0;
+	long maxMatrixBytes = 512L * 1024 * 1024;
+	CongestedTravelTimes congestedTravelTimes;
+	AbfallResultWriter resultWriter;
+	int decomposedCarriers = 0;
+	int numberOfClusters = 0;
+	double secondsJsprit = 0;
+	double costsJsprit = 0;
+	int noPickup = 0;
+	int allGarbage = 0;
+	int numberOfShipments = 0;
+	int garbageRuhleben = 0;
+	int garbagePankow = 0;
+	int garbageReinickenD = 0;
+	int garbageGradestr = 0;
+	int garbageGruenauerStr = 0;
+	final List<String> districtsWithShipments = new ArrayList<String>();
+	final List<String> districtsWithNoShipments = new ArrayList<String>();
+
+	/**
+	 * @param linksInDistricts the links of each district, see
+	 *                         {@link #createMapWithLinksInDistricts(Collection, Map)}
+	 */
+	AbfallUtils(ListMultimap<String, String> linksInDistricts) {
+		this.linksInDistricts = ImmutableListMultimap.copyOf(linksInDistricts);
+	}
+
+	/**
+	 * Carriers with more shipments are split into spatial clusters, which are
+	 * solved independently by jsprit. This reduces the run time and memory for
+	 * large districts, but the tours can not cross the borders of the clusters.
+	 * 0 (the default) switches the decomposition off.
+	 */
+	void setMaxShipmentsPerCluster(int maxShipmentsPerCluster) {
+		this.maxShipmentsPerCluster = maxShipmentsPerCluster;
+	}
+
+	/**
+	 * The maximum size of one {@link TravelTimeAndDistanceMatrix} (per carrier and
+	 * vehicle type). Carriers with larger matrices are solved with the network
+	 * based transport costs instead. The default is 512 MB.
+	 */
+	void setMaxMatrixBytes(long maxMatrixBytes) {
+		this.maxMatrixBytes = maxMatrixBytes;
+	}
+
+	/**
+	 * If set, jsprit plans the tours with these travel times instead of the
+	 * freespeeds of the links. null (the default) switches them off.
+	 */
+	void setCongestedTravelTimes(CongestedTravelTimes congestedTravelTimes) {
+		this.congestedTravelTimes = congestedTravelTimes;
+	}
+
+	/**
+	 * If set, the statistics of every carrier are written by this writer as soon
+	 * as jsprit has solved the carrier, while the remaining carriers are still
+	 * solved, and {@link #outputSummary} uses its totals. null (the default)
+	 * collects the totals in {@link #outputSummary}.
+	 */
+	void setResultWriter(AbfallResultWriter resultWriter) {
+		this.resultWriter = resultWriter;
 	}
 
 	/**
@@ -126,37 +193,149 @@ class AbfallUtils {
 
 	/**
 	 * Creates a multimap where you can find behind every district every link
-	 * containing this district.
+	 * containing this district. A link belongs to a district if the district
+	 * contains the middle of the link.
 	 * 
-	 * @param
+	 * The districts are indexed in a {@link STRtree} of {@link PreparedGeometry}s,
+	 * so every link is only tested against the districts whose envelope contains
+	 * the middle of the link. The links are classified in parallel; the multimap is
+	 * filled afterwards in the iteration order of the links, so it is the same as
+	 * with a sequential classification.
+	 * 
+	 * @return the ids of the links by district name
 	 */
-	static void createMapWithLinksInDistricts(Collection<SimpleFeature> districts,
+	static ListMultimap<String, String> createMapWithLinksInDistricts(Collection<SimpleFeature> districts,
 			Map<Id<Link>, ? extends Link> allLinks) {
-		linksInDistricts = ArrayListMultimap.create();
-		double x, y, xCoordFrom, xCoordTo, yCoordFrom, yCoordTo;
-		Point p;
 		log.info("Started creating Multimap with all links of each district...");
-		for (Link link : allLinks.values()) {
-			xCoordFrom = link.getFromNode().getCoord().getX();
-			xCoordTo = link.getToNode().getCoord().getX();
-			yCoordFrom = link.getFromNode().getCoord().getY();
-			yCoordTo = link.getToNode().getCoord().getY();
-			if (xCoordFrom > xCoordTo)
-				x = xCoordFrom - ((xCoordFrom - xCoordTo) / 2);
-			else
-				x = xCoordTo - ((xCoordTo - xCoordFrom) / 2);
-			if (yCoordFrom > yCoordTo)
-				y = yCoordFrom - ((yCoordFrom - yCoordTo) / 2);
-			else
-				y = yCoordTo - ((yCoordTo - yCoordFrom) / 2);
-			p = MGC.xy2Point(x, y);
-			for (SimpleFeature district : districts) {
-				if (((Geometry) district.getDefaultGeometry()).contains(p)) {
-					linksInDistricts.put(district.getAttribute("Ortsteil").toString(), link.getId().toString());
-				}
+		List<String> districtNames = new ArrayList<String>(districts.size());
+		STRtree districtIndex = new STRtree();
+		for (SimpleFeature district : districts) {
+			Geometry geometry = (Geometry) district.getDefaultGeometry();
+			districtIndex.insert(geometry.getEnvelopeInternal(), new IndexedDistrict(districtNames.size(),
+					PreparedGeometryFactory.prepare(geometry)));
+			districtNames.add(district.getAttribute("Ortsteil").toString());
+		}
+		// queries are read-only (and therefore thread-safe) once the tree is built
+		districtIndex.build();
+
+		List<Link> links = new ArrayList<Link>(allLinks.values());
+		int[][] districtsOfLinks = new int[links.size()][];
+		IntStream.range(0, links.size()).parallel().forEach(i -> {
+			Point p = getMiddleOfLink(links.get(i));
+			@SuppressWarnings("unchecked")
+			List<IndexedDistrict> candidates = districtIndex.query(p.getEnvelopeInternal());
+			districtsOfLinks[i] = candidates.stream().filter(candidate -> candidate.geometry.contains(p))
+					.mapToInt(candidate -> candidate.index).sorted().toArray();
+		});
+
+		ListMultimap<String, String> linksInDistricts = ArrayListMultimap.create();
+		for (int i = 0; i < links.size(); i++) {
+			for (int district : districtsOfLinks[i]) {
+				linksInDistricts.put(districtNames.get(district), links.get(i).getId().toString());
 			}
 		}
 		log.info("Finished creating Multimap with all links of each district!");
+		return ImmutableListMultimap.copyOf(linksInDistricts);
+	}
+
+	/**
+	 * Same as {@link #createMapWithLinksInDistricts(Collection, Map)}, but the
+	 * result is stored in the given file (link;district per line, gzipped if the
+	 * file name ends with .gz) and read from there on the next call. The first
+	 * line of the file contains a fingerprint of the links and districts; if it
+	 * does not fit, the mapping is created again and the file is replaced.
+	 */
+	static ListMultimap<String, String> createMapWithLinksInDistricts(Collection<SimpleFeature> districts,
+			Map<Id<Link>, ? extends Link> allLinks, String linksInDistrictsFile) {
+		String fingerprint = createFingerprint(districts, allLinks);
+		if (new File(linksInDistrictsFile).exists()) {
+			try (BufferedReader reader = IOUtils.getBufferedReader(linksInDistrictsFile)) {
+				if (fingerprint.equals(reader.readLine())) {
+					ListMultimap<String, String> linksInDistricts = ArrayListMultimap.create();
+					String line;
+					while ((line = reader.readLine()) != null) {
+						int separator = line.indexOf(';');
+						linksInDistricts.put(line.substring(separator + 1), line.substring(0, separator));
+					}
+					log.info("Read links of each district from " + linksInDistrictsFile);
+					return ImmutableListMultimap.copyOf(linksInDistricts);
+				}
+				log.info("Links or districts have changed since " + linksInDistrictsFile + " was written.");
+			} catch (IOException | UncheckedIOException e) {
+				log.warn("Could not read " + linksInDistrictsFile + ", the links of each district are created again.", e);
+			}
+		}
+		ListMultimap<String, String> linksInDistricts = createMapWithLinksInDistricts(districts, allLinks);
+
+		Multimap<String, String> districtsOfLinks = ArrayListMultimap.create();
+		for (Entry<String, String> linkInDistrict : linksInDistricts.entries()) {
+			districtsOfLinks.put(linkInDistrict.getValue(), linkInDistrict.getKey());
+		}
+		new File(linksInDistrictsFile).getAbsoluteFile().getParentFile().mkdirs();
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(linksInDistrictsFile)) {
+			writer.write(fingerprint);
+			writer.newLine();
+			// the lines are written in the order of the links, so reading them gives the same multimap
+			for (Link link : allLinks.values()) {
+				for (String district : districtsOfLinks.get(link.getId().toString())) {
+					writer.write(link.getId().toString() + ";" + district);
+					writer.newLine();
+				}
+			}
+			log.info("Wrote links of each district to " + linksInDistrictsFile);
+		} catch (IOException | UncheckedIOException e) {
+			log.warn("Could not write " + linksInDistrictsFile, e);
+		}
+		return linksInDistricts;
+	}
+
+	private static String createFingerprint(Collection<SimpleFeature> districts,
+			Map<Id<Link>, ? extends Link> allLinks) {
+		long hash = 17;
+		for (Link link : allLinks.values()) {
+			Point p = getMiddleOfLink(link);
+			hash = 31 * hash + link.getId().toString().hashCode();
+			hash = 31 * hash + Double.hashCode(p.getX());
+			hash = 31 * hash + Double.hashCode(p.getY());
+		}
+		for (SimpleFeature district : districts) {
+			Geometry geometry = (Geometry) district.getDefaultGeometry();
+			hash = 31 * hash + district.getAttribute("Ortsteil").toString().hashCode();
+			// all vertices, so that an edited polygon with the same envelope and number of points gives another hash
+			for (Coordinate coordinate : geometry.getCoordinates()) {
+				hash = 31 * hash + Double.hashCode(coordinate.x);
+				hash = 31 * hash + Double.hashCode(coordinate.y);
+			}
+		}
+		return "# links=" + allLinks.size() + " districts=" + districts.size() + " fingerprint="
+				+ Long.toHexString(hash);
+	}
+
+	private static Point getMiddleOfLink(Link link) {
+		double x, y, xCoordFrom, xCoordTo, yCoordFrom, yCoordTo;
+		xCoordFrom = link.getFromNode().getCoord().getX();
+		xCoordTo = link.getToNode().getCoord().getX();
+		yCoordFrom = link.getFromNode().getCoord().getY();
+		yCoordTo = link.getToNode().getCoord().getY();
+		if (xCoordFrom > xCoordTo)
+			x = xCoordFrom - ((xCoordFrom - xCoordTo) / 2);
+		else
+			x = xCoordTo - ((xCoordTo - xCoordFrom) / 2);
+		if (yCoordFrom > yCoordTo)
+			y = yCoordFrom - ((yCoordFrom - yCoordTo) / 2);
+		else
+			y = yCoordTo - ((yCoordTo - yCoordFrom) / 2);
+		return MGC.xy2Point(x, y);
+	}
+
+	private static final class IndexedDistrict {
+		private final int index;
+		private final PreparedGeometry geometry;
+
+		private IndexedDistrict(int index, PreparedGeometry geometry) {
+			this.index = index;
+			this.geometry = geometry;
+		}
 	}
 
 	/**
@@ -187,7 +366,6 @@ class AbfallUtils {
 		config.controler().setOverwriteFileSetting(OverwriteFileSetting.overwriteExistingFiles);
 
 		config.controler().setLastIteration(lastIteration);
-		matsimIterations = lastIteration + 1;
 		config.global().setRandomSeed(4177);
 		config.controler().setOverwriteFileSetting(OverwriteFileSetting.overwriteExistingFiles);
 		config.global().setCoordinateSystem(TransformationFactory.GK4);
@@ -208,7 +386,7 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsForSelectedArea(Collection<SimpleFeature> districtsWithGarbage,
+	void createShipmentsForSelectedArea(Collection<SimpleFeature> districtsWithGarbage,
 			List<String> districtsForShipments, String day, HashMap<String, Id<Link>> garbageDumps, Scenario scenario,
 			Carriers carriers, HashMap<String, Carrier> carrierMap, Map<Id<Link>, ? extends Link> allLinks,
 			double volumeBigDustbin, double serviceTimePerBigTrashcan) {
@@ -217,7 +395,7 @@ class AbfallUtils {
 		int garbageToCollect = 0;
 		String depot = null;
 		Map<Id<Link>, Link> garbageLinks = new HashMap<Id<Link>, Link>();
-		createMapEnt();
+		Map<Id<Link>, Integer> linkPositions = createLinkPositions(allLinks);
 		for (String districtToCollect : districtsForShipments) {
 			for (SimpleFeature districtInformation : districtsWithGarbage) {
 				if (districtInformation.getAttribute("Ortsteil").equals(districtToCollect)) {
@@ -225,25 +403,8 @@ class AbfallUtils {
 						garbageToCollect = (int) ((double) districtInformation.getAttribute(day) * 1000);
 						dumpId = garbageDumps.get(districtInformation.getAttribute(dataEnt.get(day)));
 						depot = districtInformation.getAttribute("Depot").toString();
-						for (Link link : allLinks.values()) {
-							for (String linkInDistrict : linksInDistricts.get(districtToCollect)) {
-								if (Id.createLinkId(linkInDistrict) == link.getId()) {
-									if (link.getFreespeed() < 14 && link.getAllowedModes().contains("car")) {
-										for (Link garbageLink : garbageLinks.values()) {
-											if (link.getFromNode() == garbageLink.getToNode()
-													&& link.getToNode() == garbageLink.getFromNode())
-												streetAlreadyInGarbageLinks = true;
-
-										}
-										if (streetAlreadyInGarbageLinks != true) {
-											garbageLinks.put(link.getId(), link);
-											distanceWithShipments = distanceWithShipments + link.getLength();
-										}
-										streetAlreadyInGarbageLinks = false;
-									}
-								}
-							}
-						}
+						distanceWithShipments = distanceWithShipments
+								+ addGarbageLinksOfDistrict(districtToCollect, allLinks, linkPositions, garbageLinks);
 					} else {
 						log.warn("At District " + districtInformation.getAttribute("Ortsteil").toString()
 								+ " no garbage will be collected at " + day);
@@ -272,7 +433,7 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsWithGarbagePerMeter(Collection<SimpleFeature> districtsWithGarbage,
+	void createShipmentsWithGarbagePerMeter(Collection<SimpleFeature> districtsWithGarbage,
 			HashMap<String, Double> areasForShipmentPerMeterMap, String day, HashMap<String, Id<Link>> garbageDumps,
 			Scenario scenario, Carriers carriers, HashMap<String, Carrier> carrierMap,
 			Map<Id<Link>, ? extends Link> allLinks, double volumeBigDustbin, double serviceTimePerBigTrashcan) {
@@ -280,32 +441,15 @@ class AbfallUtils {
 		double distanceWithShipments = 0;
 		String depot = null;
 		Map<Id<Link>, Link> garbageLinks = new HashMap<Id<Link>, Link>();
-		createMapEnt();
+		Map<Id<Link>, Integer> linkPositions = createLinkPositions(allLinks);
 		for (String districtToCollect : areasForShipmentPerMeterMap.keySet()) {
 			for (SimpleFeature districtInformation : districtsWithGarbage) {
 				if (districtInformation.getAttribute("Ortsteil").equals(districtToCollect)) {
 					if ((double) districtInformation.getAttribute(day) > 0) {
 						dumpId = garbageDumps.get(districtInformation.getAttribute(dataEnt.get(day)));
 						depot = districtInformation.getAttribute("Depot").toString();
-						for (Link link : allLinks.values()) {
-							for (String linkInDistrict : linksInDistricts.get(districtToCollect)) {
-								if (Id.createLinkId(linkInDistrict) == link.getId()) {
-									if (link.getFreespeed() < 14 && link.getAllowedModes().contains("car")) {
-										for (Link garbageLink : garbageLinks.values()) {
-											if (link.getFromNode() == garbageLink.getToNode()
-													&& link.getToNode() == garbageLink.getFromNode())
-												streetAlreadyInGarbageLinks = true;
-
-										}
-										if (streetAlreadyInGarbageLinks != true) {
-											garbageLinks.put(link.getId(), link);
-											distanceWithShipments = distanceWithShipments + link.getLength();
-										}
-										streetAlreadyInGarbageLinks = false;
-									}
-								}
-							}
-						}
+						distanceWithShipments = distanceWithShipments
+								+ addGarbageLinksOfDistrict(districtToCollect, allLinks, linkPositions, garbageLinks);
 					} else {
 						log.warn("At District " + districtInformation.getAttribute("Ortsteil").toString()
 								+ " no garbage will be collected at " + day);
@@ -334,7 +478,7 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsGarbagePerVolume(Collection<SimpleFeature> districtsWithGarbage,
+	void createShipmentsGarbagePerVolume(Collection<SimpleFeature> districtsWithGarbage,
 			HashMap<String, Integer> areasForShipmentPerVolumeMap, String day, HashMap<String, Id<Link>> garbageDumps,
 			Scenario scenario, Carriers carriers, HashMap<String, Carrier> carrierMap,
 			Map<Id<Link>, ? extends Link> allLinks, double volumeBigDustbin, double serviceTimePerBigTrashcan) {
@@ -342,33 +486,15 @@ class AbfallUtils {
 		double distanceWithShipments = 0;
 		String depot = null;
 		Map<Id<Link>, Link> garbageLinks = new HashMap<Id<Link>, Link>();
-		createMapEnt();
+		Map<Id<Link>, Integer> linkPositions = createLinkPositions(allLinks);
 		for (String districtToCollect : areasForShipmentPerVolumeMap.keySet()) {
 			for (SimpleFeature districtInformation : districtsWithGarbage) {
 				if (districtInformation.getAttribute("Ortsteil").equals(districtToCollect)) {
 					if ((double) districtInformation.getAttribute(day) > 0) {
 						dumpId = garbageDumps.get(districtInformation.getAttribute(dataEnt.get(day)));
 						depot = districtInformation.getAttribute("Depot").toString();
-						for (Link link : allLinks.values()) {
-							for (String linkInDistrict : linksInDistricts.get(districtToCollect)) {
-								if (Id.createLinkId(linkInDistrict) == link.getId()) {
-									if (link.getFreespeed() < 14 && link.getAllowedModes().contains("car")) {
-										for (Link garbageLink : garbageLinks.values()) {
-											if (link.getFromNode() == garbageLink.getToNode()
-													&& link.getToNode() == garbageLink.getFromNode())
-												streetAlreadyInGarbageLinks = true;
-
-										}
-										if (streetAlreadyInGarbageLinks != true) {
-											garbageLinks.put(link.getId(), link);
-											distanceWithShipments = distanceWithShipments + link.getLength();
-										}
-										streetAlreadyInGarbageLinks = false;
-
-									}
-								}
-							}
-						}
+						distanceWithShipments = distanceWithShipments
+								+ addGarbageLinksOfDistrict(districtToCollect, allLinks, linkPositions, garbageLinks);
 					} else {
 						log.warn("At District " + districtInformation.getAttribute("Ortsteil").toString()
 								+ " no garbage will be collected at " + day);
@@ -396,7 +522,7 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsForSelectedDay(Collection<SimpleFeature> districtsWithGarbage, String day,
+	void createShipmentsForSelectedDay(Collection<SimpleFeature> districtsWithGarbage, String day,
 			HashMap<String, Id<Link>> garbageDumps, Scenario scenario, Carriers carriers,
 			HashMap<String, Carrier> carrierMap, Map<Id<Link>, ? extends Link> allLinks, double volumeBigTrashcan,
 			double serviceTimePerBigDustbin, boolean oneCarrierForEachDistrict) {
@@ -406,7 +532,7 @@ class AbfallUtils {
 		String usedCarrier = null;
 		String district = null;
 		Map<Id<Link>, Link> garbageLinks = new HashMap<Id<Link>, Link>();
-		createMapEnt();
+		Map<Id<Link>, Integer> linkPositions = createLinkPositions(allLinks);
 //		carrierMap.clear();
 		for (SimpleFeature districtInformation : districtsWithGarbage) {
 			if ((double) districtInformation.getAttribute(day) > 0) {
@@ -419,27 +545,8 @@ class AbfallUtils {
 					carrierMap.put(district, newCarrier);
 					usedCarrier = district;
 				}
-				for (Link link : allLinks.values()) {
-					for (String linkInDistrict : linksInDistricts
-							.get(districtInformation.getAttribute("Ortsteil").toString())) {
-						if (Id.createLinkId(linkInDistrict) == link.getId()) {
-							if (link.getFreespeed() < 14 && link.getAllowedModes().contains("car")) {
-								for (Link garbageLink : garbageLinks.values()) {
-									if (link.getFromNode() == garbageLink.getToNode()
-											&& link.getToNode() == garbageLink.getFromNode())
-										streetAlreadyInGarbageLinks = true;
-
-								}
-								if (streetAlreadyInGarbageLinks != true) {
-									garbageLinks.put(link.getId(), link);
-									distanceWithShipments = distanceWithShipments + link.getLength();
-								}
-								streetAlreadyInGarbageLinks = false;
-
-							}
-						}
-					}
-				}
+				distanceWithShipments = distanceWithShipments + addGarbageLinksOfDistrict(
+						districtInformation.getAttribute("Ortsteil").toString(), allLinks, linkPositions, garbageLinks);
 			} else {
 				log.warn("At District " + districtInformation.getAttribute("Ortsteil").toString()
 						+ " no garbage will be collected at " + day);
@@ -483,6 +590,59 @@ class AbfallUtils {
 		return newCarrier;
 	}
 
+	/**
+	 * Returns the position of every link in the iteration order of allLinks.
+	 */
+	private static Map<Id<Link>, Integer> createLinkPositions(Map<Id<Link>, ? extends Link> allLinks) {
+		Map<Id<Link>, Integer> linkPositions = new HashMap<Id<Link>, Integer>(allLinks.size() * 2);
+		for (Id<Link> linkId : allLinks.keySet()) {
+			linkPositions.put(linkId, linkPositions.size());
+		}
+		return linkPositions;
+	}
+
+	/**
+	 * Adds the links of the district, where garbage is collected, to the
+	 * garbageLinks. These are the car links with a freespeed below 14 m/s; if both
+	 * directions of a street are in the district, only the first one in the order
+	 * of allLinks gets garbage. The links are added in the order of allLinks, so the
+	 * resulting shipments do not depend on the order of the links in
+	 * linksInDistricts.
+	 * 
+	 * @return the sum of the lengths of the added links
+	 */
+	private double addGarbageLinksOfDistrict(String district, Map<Id<Link>, ? extends Link> allLinks,
+			Map<Id<Link>, Integer> linkPositions, Map<Id<Link>, Link> garbageLinks) {
+		List<Link> linksOfDistrict = new ArrayList<Link>();
+		for (String linkInDistrict : linksInDistricts.get(district)) {
+			Link link = allLinks.get(Id.createLinkId(linkInDistrict));
+			if (link != null) {
+				linksOfDistrict.add(link);
+			}
+		}
+		linksOfDistrict.sort(Comparator.comparingInt(link -> linkPositions.get(link.getId())));
+
+		double distance = 0;
+		for (Link link : linksOfDistrict) {
+			if (link.getFreespeed() < 14 && link.getAllowedModes().contains("car")
+					&& !isOppositeLinkInGarbageLinks(link, garbageLinks)) {
+				garbageLinks.put(link.getId(), link);
+				distance = distance + link.getLength();
+			}
+		}
+		return distance;
+	}
+
+	private static boolean isOppositeLinkInGarbageLinks(Link link, Map<Id<Link>, Link> garbageLinks) {
+		for (Link outLink : link.getToNode().getOutLinks().values()) {
+			Link garbageLink = garbageLinks.get(outLink.getId());
+			if (garbageLink != null && garbageLink.getFromNode() == link.getToNode()
+					&& garbageLink.getToNode() == link.getFromNode())
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Creates a Shipment for every garbagelink and ads all shipments to myCarrier.
 	 * The volumeGarbage is in garbage per meter. So the volumeGarbage of every
@@ -490,7 +650,7 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsForCarrierI(double garbagePerMeterToCollect, double volumeBigDustbin,
+	void createShipmentsForCarrierI(double garbagePerMeterToCollect, double volumeBigDustbin,
 			double serviceTimePerBigTrashcan, Map<Id<Link>, Link> garbageLinks, Scenario scenario, Carrier thisCarrier,
 			Id<Link> dumpId, Carriers carriers) {
 
@@ -522,7 +682,7 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	static void createShipmentsForCarrierII(int garbageToCollect, double volumeBigDustbin,
+	void createShipmentsForCarrierII(int garbageToCollect, double volumeBigDustbin,
 			double serviceTimePerBigTrashcan, double distanceWithShipments, Map<Id<Link>, Link> garbageLinks,
 			Scenario scenario, Carrier thisCarrier, Id<Link> garbageDumpId, Carriers carriers) {
 		int count = 1;
@@ -569,7 +729,7 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	private static void countingGarbage(Id<Link> garbageDumpId, int volumeGarbage) {
+	private void countingGarbage(Id<Link> garbageDumpId, int volumeGarbage) {
 		allGarbage = allGarbage + volumeGarbage;
 		if (garbageDumpId.equals(Id.createLinkId(linkGruenauerStr)))
 			garbageGruenauerStr = garbageGruenauerStr + volumeGarbage;
@@ -585,52 +745,392 @@ class AbfallUtils {
 
 	/**
 	 * Solves with jsprit and gives a xml output of the plans and a plot of the
-	 * solution
+	 * solution. The carriers are solved by as many workers as processors are
+	 * available; this does not change the number of threads of the MATSim run.
 	 * 
 	 * @param
 	 */
-	static void solveWithJsprit(Scenario scenario, Carriers carriers, HashMap<String, Carrier> carrierMap,
+	void solveWithJsprit(Scenario scenario, Carriers carriers, HashMap<String, Carrier> carrierMap,
 			int jspritIteration) {
+		solveWithJsprit(scenario, carriers, carrierMap, jspritIteration,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Solves with jsprit and gives a xml output of the plans and a plot of the
+	 * solution. The problems of the carriers are independent, so they are solved
+	 * concurrently by the given number of workers, which share one (thread-safe)
+	 * NetworkBasedTransportCosts. Every carrier gets its own random number
+	 * generator, seeded with the global random seed and the carrier id, and the
+	 * solutions are processed in the order of the carrierMap, so the plans do not
+	 * depend on the scheduling of the threads.
+	 * 
+	 * @param
+	 */
+	void solveWithJsprit(Scenario scenario, Carriers carriers, HashMap<String, Carrier> carrierMap,
+			int jspritIteration, int numberOfThreads) {
+		solveWithJsprit(scenario, carriers, carrierMap, jspritIteration, numberOfThreads, null);
+	}
+
+	/**
+	 * Same as {@link #solveWithJsprit(Scenario, Carriers, HashMap, int, int)}, but
+	 * if a matrix cache directory is given, jsprit looks up the travel times and
+	 * distances in a {@link TravelTimeAndDistanceMatrix} per carrier and vehicle
+	 * type, which is stored in this directory and reused by the following runs.
+	 * The selected plans are still routed on the network.
+	 * 
+	 * @param
+	 */
+	void solveWithJsprit(Scenario scenario, Carriers carriers, HashMap<String, Carrier> carrierMap,
+			int jspritIteration, int numberOfThreads, String matrixCacheDirectory) {
+		solveWithJsprit(scenario, carriers, carrierMap, jspritIteration, numberOfThreads, matrixCacheDirectory,
+				new Carriers(), jspritIteration);
+	}
+
+	/**
+	 * Same as {@link #solveWithJsprit(Scenario, Carriers, HashMap, int, int, String)},
+	 * but the selected plan of each carrier in previousCarriers (see
+	 * {@link #readPreviousCarrierPlans(String)}) is used as initial solution, see
+	 * {@link WarmStartSolution}. Carriers with an initial solution are solved with
+	 * warmStartIterations instead of jspritIteration iterations; the others are
+	 * solved from scratch.
+	 * 
+	 * @param
+	 */
+	void solveWithJsprit(Scenario scenario, Carriers carriers, HashMap<String, Carrier> carrierMap,
+			int jspritIteration, int numberOfThreads, String matrixCacheDirectory, Carriers previousCarriers,
+			int warmStartIterations) {
 
-		int carrierCount = 1;
 		CarrierVehicleTypes vehicleTypes = (CarrierVehicleTypes) scenario.getScenarioElement("carrierVehicleTypes");
 		Network network = scenario.getNetwork();
 		Builder netBuilder = NetworkBasedTransportCosts.Builder.newInstance(network,
 				vehicleTypes.getVehicleTypes().values());
-		final NetworkBasedTransportCosts netBasedCosts = netBuilder.build();
 		netBuilder.setTimeSliceWidth(1800);
+		if (congestedTravelTimes != null)
+			netBuilder.setTravelTime(congestedTravelTimes);
+		final NetworkBasedTransportCosts netBasedCosts = netBuilder.build();
+		final CongestedTravelTimes travelTimes = congestedTravelTimes;
+		final long maxBytes = maxMatrixBytes;
+		// the hash of the whole network is the same for all matrices, so it is only computed once
+		final long networkHash = matrixCacheDirectory == null ? 0
+				: TravelTimeAndDistanceMatrix.hashNetwork(network, MATRIX_TIME_SLICE_WIDTH,
+						getNumberOfMatrixTimeSlices(scenario, congestedTravelTimes));
+		jspritIterations = jspritIteration;
+		this.warmStartIterations = warmStartIterations;
+		if (!previousCarriers.getCarriers().isEmpty())
+			log.info("Warm start with " + warmStartIterations + " jsprit iterations for the carriers of the "
+					+ previousCarriers.getCarriers().size() + " previous carrier plans.");
+
+		List<Carrier> carriersToSolve = new ArrayList<Carrier>(carrierMap.values());
+		List<List<Carrier>> subCarriersToSolve = new ArrayList<List<Carrier>>();
+		int numberOfProblems = 0;
+		for (Carrier singleCarrier : carriersToSolve) {
+			List<Carrier> subCarriers = decompose(scenario, singleCarrier);
+			subCarriersToSolve.add(subCarriers);
+			numberOfProblems = numberOfProblems + subCarriers.size();
+		}
+		long start = System.currentTimeMillis();
+		ExecutorService executor = Executors
+				.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, numberOfProblems)));
+		try {
+			List<List<Future<JspritSolution>>> solutions = new ArrayList<List<Future<JspritSolution>>>();
+			for (int i = 0; i < carriersToSolve.size(); i++) {
+				Carrier previousCarrier = previousCarriers.getCarriers().get(carriersToSolve.get(i).getId());
+				CarrierPlan previousPlan = previousCarrier == null ? null : previousCarrier.getSelectedPlan();
+				List<Future<JspritSolution>> solutionsOfCarrier = new ArrayList<Future<JspritSolution>>();
+				for (Carrier subCarrier : subCarriersToSolve.get(i)) {
+					solutionsOfCarrier.add(executor.submit(() -> solveCarrier(scenario, subCarrier, netBasedCosts,
+							jspritIteration, matrixCacheDirectory, networkHash, maxBytes, travelTimes, previousPlan,
+							warmStartIterations)));
+				}
+				solutions.add(solutionsOfCarrier);
+			}
+			for (int i = 0; i < carriersToSolve.size(); i++) {
+				Carrier singleCarrier = carriersToSolve.get(i);
+				List<JspritSolution> solutionsOfCarrier = new ArrayList<JspritSolution>();
+				try {
+					for (Future<JspritSolution> solution : solutions.get(i)) {
+						solutionsOfCarrier.add(solution.get());
+					}
+				} catch (InterruptedException | ExecutionException e) {
+					throw new RuntimeException("Solving carrier " + singleCarrier.getId() + " failed.", e);
+				}
+				log.info("Created solution for carrier " + (i + 1) + " of " + carriersToSolve.size() + " Carriers");
+				if (solutionsOfCarrier.size() == 1) {
+					JspritSolution solution = solutionsOfCarrier.get(0);
+					singleCarrier.setSelectedPlan(solution.plan);
+					if (singleCarrier.getId() == Id.create("Carrier_Chessboard", Carrier.class))
+						new Plotter(solution.problem, solution.bestSolution).plot(
+								scenario.getConfig().controler().getOutputDirectory() + "/jsprit_CarrierPlans_Test01.png",
+								"bestSolution");
+				} else {
+					singleCarrier.setSelectedPlan(stitchPlans(singleCarrier, solutionsOfCarrier));
+					decomposedCarriers++;
+					numberOfClusters = numberOfClusters + solutionsOfCarrier.size();
+				}
+				boolean warmStarted = false;
+				for (JspritSolution solution : solutionsOfCarrier) {
+					costsJsprit = costsJsprit + solution.bestSolution.getCost();
+					noPickup = noPickup + solution.bestSolution.getUnassignedJobs().size();
+					warmStarted = warmStarted || solution.warmStarted;
+				}
+				if (warmStarted)
+					warmStartedCarriers++;
+				if (resultWriter != null) {
+					try {
+						resultWriter.writeCarrier(singleCarrier);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		secondsJsprit = secondsJsprit + (System.currentTimeMillis() - start) / 1000.;
+		new CarrierPlanXmlWriterV2(carriers)
+				.write(scenario.getConfig().controler().getOutputDirectory() + "/jsprit_CarrierPlans.xml");
 
-		for (Carrier singleCarrier : carrierMap.values()) {
+	}
 
-			// Build jsprit, solve and route VRP for carrierService only -> need solution to
-			// convert Services to Shipments
-			VehicleRoutingProblem.Builder vrpBuilder = MatsimJspritFactory.createRoutingProblemBuilder(singleCarrier,
-					network);
+	/**
+	 * Splits the shipments of the carrier into spatial clusters, see
+	 * {@link ShipmentClusters}, if it has more than maxShipmentsPerCluster
+	 * shipments. Every cluster gets a carrier of its own, with the capabilities of
+	 * the original carrier. With a {@link FleetSize#FINITE} fleet, the vehicles
+	 * are divided between the clusters instead, according to their number of
+	 * shipments, so that no vehicle is used by two clusters; if the carrier has
+	 * fewer vehicles than clusters, it is not split.
+	 * 
+	 * @return the carriers of the clusters or only the carrier itself
+	 */
+	List<Carrier> decompose(Scenario scenario, Carrier singleCarrier) {
+		if (maxShipmentsPerCluster <= 0 || singleCarrier.getShipments().size() <= maxShipmentsPerCluster)
+			return List.of(singleCarrier);
+		Random random = new Random(scenario.getConfig().global().getRandomSeed() + singleCarrier.getId().toString().hashCode());
+		List<List<CarrierShipment>> clusters = ShipmentClusters.create(singleCarrier.getShipments().values(),
+				scenario.getNetwork(), maxShipmentsPerCluster, random);
+		List<CarrierCapabilities> capabilitiesOfClusters = createCapabilitiesOfClusters(singleCarrier, clusters);
+		if (capabilitiesOfClusters == null) {
+			log.warn("Carrier " + singleCarrier.getId() + " has a finite fleet of "
+					+ singleCarrier.getCarrierCapabilities().getCarrierVehicles().size() + " vehicles, which can not be divided between "
+					+ clusters.size() + " clusters, so it is solved as a whole.");
+			return List.of(singleCarrier);
+		}
+		List<Carrier> subCarriers = new ArrayList<Carrier>();
+		for (List<CarrierShipment> cluster : clusters) {
+			Carrier subCarrier = CarrierUtils
+					.createCarrier(Id.create(singleCarrier.getId() + "_cluster" + subCarriers.size(), Carrier.class));
+			subCarrier.setCarrierCapabilities(capabilitiesOfClusters.get(subCarriers.size()));
+			for (CarrierShipment shipment : cluster) {
+				subCarrier.getShipments().put(shipment.getId(), shipment);
+			}
+			subCarriers.add(subCarrier);
+		}
+		log.info("Carrier " + singleCarrier.getId() + " with " + singleCarrier.getShipments().size()
+				+ " shipments is split into " + subCarriers.size() + " clusters.");
+		return subCarriers;
+	}
+
+	/**
+	 * With an infinite fleet, all clusters share the capabilities of the carrier,
+	 * as every vehicle can be used any number of times. A finite fleet is divided:
+	 * every cluster gets at least one vehicle, the other vehicles are distributed
+	 * according to the number of shipments of the clusters.
+	 * 
+	 * @return the capabilities of every cluster, or null if the finite fleet has
+	 *         fewer vehicles than clusters
+	 */
+	private static List<CarrierCapabilities> createCapabilitiesOfClusters(Carrier singleCarrier,
+			List<List<CarrierShipment>> clusters) {
+		CarrierCapabilities capabilities = singleCarrier.getCarrierCapabilities();
+		List<CarrierCapabilities> capabilitiesOfClusters = new ArrayList<CarrierCapabilities>();
+		if (capabilities.getFleetSize() != FleetSize.FINITE) {
+			for (int i = 0; i < clusters.size(); i++) {
+				capabilitiesOfClusters.add(capabilities);
+			}
+			return capabilitiesOfClusters;
+		}
+		List<CarrierVehicle> vehicles = new ArrayList<CarrierVehicle>(capabilities.getCarrierVehicles().values());
+		if (vehicles.size() < clusters.size())
+			return null;
+		vehicles.sort(Comparator.comparing(vehicle -> vehicle.getId().toString()));
+		int numberOfShipments = singleCarrier.getShipments().size();
+		int additionalVehicles = vehicles.size() - clusters.size();
+		int[] numberOfVehicles = new int[clusters.size()];
+		int assignedVehicles = 0;
+		for (int i = 0; i < clusters.size(); i++) {
+			numberOfVehicles[i] = 1 + (int) ((long) additionalVehicles * clusters.get(i).size() / numberOfShipments);
+			assignedVehicles = assignedVehicles + numberOfVehicles[i];
+		}
+		// the vehicles left over by rounding down go to the clusters in their order
+		for (int i = 0; assignedVehicles < vehicles.size(); i = (i + 1) % clusters.size()) {
+			numberOfVehicles[i]++;
+			assignedVehicles++;
+		}
+		int nextVehicle = 0;
+		for (int i = 0; i < clusters.size(); i++) {
+			CarrierCapabilities.Builder builder = CarrierCapabilities.Builder.newInstance().setFleetSize(FleetSize.FINITE);
+			for (VehicleType vehicleType : capabilities.getVehicleTypes()) {
+				builder.addType(vehicleType);
+			}
+			for (int j = 0; j < numberOfVehicles[i]; j++) {
+				builder.addVehicle(vehicles.get(nextVehicle++));
+			}
+			capabilitiesOfClusters.add(builder.build());
+		}
+		return capabilitiesOfClusters;
+	}
+
+	/**
+	 * Combines the tours of the clusters to one plan of the carrier. The score is
+	 * the negative sum of the costs of the clusters, as for the plans created by
+	 * the {@link MatsimJspritFactory}.
+	 */
+	private static CarrierPlan stitchPlans(Carrier singleCarrier, List<JspritSolution> solutionsOfClusters) {
+		List<ScheduledTour> tours = new ArrayList<ScheduledTour>();
+		double costs = 0;
+		for (JspritSolution solution : solutionsOfClusters) {
+			tours.addAll(solution.plan.getScheduledTours());
+			costs = costs + solution.bestSolution.getCost();
+		}
+		CarrierPlan plan = new CarrierPlan(singleCarrier, tours);
+		plan.setScore(-costs);
+		return plan;
+	}
+
+	/**
+	 * Reads the carrier plans of a previous run, which was written by the
+	 * {@link CarrierPlanXmlWriterV2}, e.g. the output_CarrierPlans.xml. As the
+	 * output directory is deleted by {@link #prepareConfig(Config, int, String, String)},
+	 * the plans of the last run in the same output directory have to be read
+	 * before.
+	 * 
+	 * @param previousCarrierPlansFile null for no warm start
+	 * @return the carriers of the file or no carriers, if the file does not exist
+	 */
+	static Carriers readPreviousCarrierPlans(String previousCarrierPlansFile) {
+		Carriers previousCarriers = new Carriers();
+		if (previousCarrierPlansFile == null)
+			return previousCarriers;
+		if (new File(previousCarrierPlansFile).exists()) {
+			log.warn("Warm start is active: the tours of the carriers start from the plans of " + previousCarrierPlansFile
+					+ ", so the results depend on this file.");
+			new CarrierPlanXmlReader(previousCarriers).readFile(previousCarrierPlansFile);
+		} else {
+			log.warn("The previous carrier plans " + previousCarrierPlansFile
+					+ " do not exist. All carriers are solved from scratch.");
+		}
+		return previousCarriers;
+	}
+
+	/**
+	 * Builds the jsprit problem of one carrier, solves it and routes the best
+	 * solution on the network. If a previous plan is given and at least one of its
+	 * tours can be reused, the algorithm starts from this plan and runs
+	 * warmStartIterations iterations.
+	 */
+	private static JspritSolution solveCarrier(Scenario scenario, Carrier singleCarrier,
+			NetworkBasedTransportCosts netBasedCosts, int jspritIteration, String matrixCacheDirectory, long networkHash,
+			long maxMatrixBytes, CongestedTravelTimes congestedTravelTimes, CarrierPlan previousPlan,
+			int warmStartIterations) {
+		// Build jsprit, solve and route VRP for carrierService only -> need solution to
+		// convert Services to Shipments
+		VehicleRoutingProblem.Builder vrpBuilder = MatsimJspritFactory.createRoutingProblemBuilder(singleCarrier,
+				scenario.getNetwork());
+		MatrixBasedTransportCosts matrixBasedCosts = null;
+		if (matrixCacheDirectory != null && !singleCarrier.getCarrierCapabilities().getVehicleTypes().isEmpty()) {
+			matrixBasedCosts = createMatrixBasedCosts(scenario, singleCarrier, matrixCacheDirectory, networkHash,
+					maxMatrixBytes, congestedTravelTimes);
+		}
+		if (matrixBasedCosts != null) {
+			vrpBuilder.setRoutingCost(matrixBasedCosts);
+		} else {
 			vrpBuilder.setRoutingCost(netBasedCosts);
-			VehicleRoutingProblem problem = vrpBuilder.build();
-
-			// get the algorithm out-of-the-box, search solution and get the best one.
-			VehicleRoutingAlgorithm algorithm = new SchrimpfFactory().createAlgorithm(problem);
-			log.info("Creating solution for carrier " + carrierCount + " of " + carrierMap.size() + " Carriers");
-			algorithm.setMaxIterations(jspritIterations = jspritIteration);
-			Collection<VehicleRoutingProblemSolution> solutions = algorithm.searchSolutions();
-			VehicleRoutingProblemSolution bestSolution = Solutions.bestOf(solutions);
-			costsJsprit = costsJsprit + bestSolution.getCost();
-
-			// Routing bestPlan to Network
-			CarrierPlan carrierPlanServices = MatsimJspritFactory.createPlan(singleCarrier, bestSolution);
-			NetworkRouter.routePlan(carrierPlanServices, netBasedCosts);
-			singleCarrier.setSelectedPlan(carrierPlanServices);
-			noPickup = noPickup + bestSolution.getUnassignedJobs().size();
-			carrierCount++;
-			if (singleCarrier.getId() == Id.create("Carrier_Chessboard", Carrier.class))
-				new Plotter(problem, bestSolution).plot(
-						scenario.getConfig().controler().getOutputDirectory() + "/jsprit_CarrierPlans_Test01.png",
-						"bestSolution");
 		}
-		new CarrierPlanXmlWriterV2(carriers)
-				.write(scenario.getConfig().controler().getOutputDirectory() + "/jsprit_CarrierPlans.xml");
+		VehicleRoutingProblem problem = vrpBuilder.build();
+
+		// the algorithm gets its own random number generator, the default one of jsprit is shared by all algorithms
+		Random random = new Random(scenario.getConfig().global().getRandomSeed() + singleCarrier.getId().toString().hashCode());
+		Jsprit.Builder algorithmBuilder = Jsprit.Builder.newInstance(problem).setRandom(random);
+		VehicleRoutingProblemSolution initialSolution = null;
+		if (!problem.getJobs().isEmpty() && !problem.getVehicles().isEmpty()) {
+			// all carriers, with and without warm start, are rated by the same objective function, so that the costs of
+			// the carriers and of warm and cold runs can be compared and summed up
+			SolutionCostCalculator objectiveFunction = WarmStartSolution.createObjectiveFunction(problem);
+			algorithmBuilder.setObjectiveFunction(objectiveFunction);
+			if (previousPlan != null)
+				initialSolution = WarmStartSolution.create(problem, previousPlan, objectiveFunction);
+		}
+		VehicleRoutingAlgorithm algorithm = algorithmBuilder.buildAlgorithm();
+		if (initialSolution != null) {
+			algorithm.addInitialSolution(initialSolution);
+			algorithm.setMaxIterations(warmStartIterations);
+		} else {
+			algorithm.setMaxIterations(jspritIteration);
+		}
+		long start = System.currentTimeMillis();
+		Collection<VehicleRoutingProblemSolution> solutions = algorithm.searchSolutions();
+		VehicleRoutingProblemSolution bestSolution = Solutions.bestOf(solutions);
+		log.info("Solved carrier " + singleCarrier.getId() + (initialSolution != null ? " (warm start)" : "") + " in "
+				+ (System.currentTimeMillis() - start) / 1000. + " sec, costs: " + bestSolution.getCost());
+
+		// Routing bestPlan to Network
+		CarrierPlan carrierPlanServices = MatsimJspritFactory.createPlan(singleCarrier, bestSolution);
+		NetworkRouter.routePlan(carrierPlanServices, netBasedCosts);
+		return new JspritSolution(problem, bestSolution, carrierPlanServices, initialSolution != null);
+	}
+
+	private static final double MATRIX_TIME_SLICE_WIDTH = 1800;
 
+	/**
+	 * For time variant networks and congested travel times, there is one time
+	 * slice per 1800 sec up to 30:00, otherwise only one.
+	 */
+	private static int getNumberOfMatrixTimeSlices(Scenario scenario, CongestedTravelTimes congestedTravelTimes) {
+		return scenario.getConfig().network().isTimeVariantNetwork() || congestedTravelTimes != null
+				? (int) (30 * 3600 / MATRIX_TIME_SLICE_WIDTH)
+				: 1;
+	}
+
+	/**
+	 * Creates the matrices for the links of the carrier.
+	 * 
+	 * @return the transport costs, or null if a matrix would need more than
+	 *         maxMatrixBytes
+	 */
+	private static MatrixBasedTransportCosts createMatrixBasedCosts(Scenario scenario, Carrier singleCarrier,
+			String matrixCacheDirectory, long networkHash, long maxMatrixBytes,
+			CongestedTravelTimes congestedTravelTimes) {
+		int numberOfTimeSlices = getNumberOfMatrixTimeSlices(scenario, congestedTravelTimes);
+		Collection<Id<Link>> links = TravelTimeAndDistanceMatrix.getLinksOfCarrier(singleCarrier);
+		Map<String, TravelTimeAndDistanceMatrix> matrixPerVehicleType = new LinkedHashMap<String, TravelTimeAndDistanceMatrix>();
+		for (VehicleType vehicleType : singleCarrier.getCarrierCapabilities().getVehicleTypes()) {
+			TravelTimeAndDistanceMatrix matrix = TravelTimeAndDistanceMatrix.readOrCreate(matrixCacheDirectory,
+					scenario.getNetwork(), networkHash, links, vehicleType, MATRIX_TIME_SLICE_WIDTH,
+					numberOfTimeSlices, congestedTravelTimes, maxMatrixBytes);
+			if (matrix == null) {
+				log.warn("Carrier " + singleCarrier.getId() + " is solved with the network based transport costs.");
+				return null;
+			}
+			matrixPerVehicleType.put(vehicleType.getId().toString(), matrix);
+		}
+		return new MatrixBasedTransportCosts(matrixPerVehicleType);
+	}
+
+	private static final class JspritSolution {
+		private final VehicleRoutingProblem problem;
+		private final VehicleRoutingProblemSolution bestSolution;
+		private final CarrierPlan plan;
+		private final boolean warmStarted;
+
+		private JspritSolution(VehicleRoutingProblem problem, VehicleRoutingProblemSolution bestSolution,
+				CarrierPlan plan, boolean warmStarted) {
+			this.problem = problem;
+			this.bestSolution = bestSolution;
+			this.plan = plan;
+			this.warmStarted = warmStarted;
+		}
 	}
 
 //	/**
@@ -713,296 +1213,42 @@ class AbfallUtils {
 	 * 
 	 * @param
 	 */
-	static void outputSummary(Collection<SimpleFeature> districtsWithGarbage, Scenario scenario,
+	void outputSummary(Collection<SimpleFeature> districtsWithGarbage, Scenario scenario,
 			HashMap<String, Carrier> carrierMap, String day, double volumeDustbin,
 			double secondsServiceTimePerDustbin) {
-		int vehiclesForckenbeck = 0;
-		int vehiclesMalmoeer = 0;
-		int vehiclesNordring = 0;
-		int vehiclesGradestrasse = 0;
-		int vehiclesChessboard = 0;
-		int numberVehicles = 0;
-		int sizeForckenbeck = 0;
-		int sizeMalmooer = 0;
-		int sizeNordring = 0;
-		int sizeGradestrasse = 0;
-		int sizeChessboard = 0;
-		int allCollectedGarbage = 0;
-		int sizeRuhleben = 0;
-		int sizePankow = 0;
-		int sizeReinickendorf = 0;
-		int sizeUmladestationGradestrasse = 0;
-		int sizeGruenauerStr = 0;
-		int sizeChessboardDelivery = 0;
-		double distanceTour = 0;
-		double powerConsumptionTour = 0;
-		int sizeTour = 0;
-		int carrierWithShipments = 0;
 		double matsimCosts = 0;
-		List<Double> tourDistancesNordring = new ArrayList<Double>();
-		List<Double> tourDistancesForckenbeck = new ArrayList<Double>();
-		List<Double> tourDistancesMalmoeerStr = new ArrayList<Double>();
-		List<Double> tourDistancesGradestrasse = new ArrayList<Double>();
-		List<Double> tourDistancesChessboard = new ArrayList<Double>();
-		List<Double> powerConsumptionTourNordring = new ArrayList<Double>();
-		List<Double> powerConsumptionTourForckenbeck = new ArrayList<Double>();
-		List<Double> powerConsumptionTourMalmoeerStr = new ArrayList<Double>();
-		List<Double> powerConsumptionTourGradestrasse = new ArrayList<Double>();
-		List<Double> powerConsumptionTourChessboard = new ArrayList<Double>();
-		double maxTourForckenbeck = 0;
-		double minTourForckenbeck = 0;
-		double distanceToursForckenbeck = 0;
-		double averageTourDistanceForckenbeck = 0;
-		double maxTourNordring = 0;
-		double minTourNordring = 0;
-		double distanceToursNordring = 0;
-		double averageTourDistanceNordring = 0;
-		double maxTourMalmoeerStr = 0;
-		double minTourMalmoeerStr = 0;
-		double distanceToursMalmoeerStr = 0;
-		double averageTourDistanceMalmoeerStr = 0;
-		double maxTourGradestrasse = 0;
-		double minTourGradestrasse = 0;
-		double distanceToursGradestrasse = 0;
-		double averageTourDistanceGradestrasse = 0;
-		double maxPowerConsumptionForckenbeck = 0;
-		double minPowerConsumptionForckenbeck = 0;
-		double averagePowerConsumptionForckenbeck = 0;
-		double powerConsumptionForckenbeck = 0;
-		double maxPowerConsumptionNordring = 0;
-		double minPowerConsumptionNordring = 0;
-		double averagePowerConsumptionNordring = 0;
-		double powerConsumptionNordring = 0;
-		double maxPowerConsumptionMalmoeerStr = 0;
-		double minPowerConsumptionMalmoeerStr = 0;
-		double averagePowerConsumptionMalmoeerStr = 0;
-		double powerConsumptionMalmoeerStr = 0;
-		double maxPowerConsumptionGradestrasse = 0;
-		double minPowerConsumptionGradestrasse = 0;
-		double averagePowerConsumptionGradestrasse = 0;
-		double powerConsumptionGradestrasse = 0;
-		double tourDistanceChessboard = 0;
-		double powerConsumptionChessboard = 0;
-		boolean electricCar = false;
 		double capacityTruck = 0;
 		String vehicleTypeId = null;
-		double energyConsumptionPerDistance = 0;
-		double energyConsumptionPerWeight = 0;
 
 		Carriers allCarriers = (Carriers) scenario.getScenarioElement("carriers");
 		Carrier testCarrier = allCarriers.getCarriers().values().iterator().next();
 		for (VehicleType usedType : testCarrier.getCarrierCapabilities().getVehicleTypes()) {
-			if (usedType.getEngineInformation().getAttributes().getAttribute("fuelType").equals("electric")) {
-				electricCar = true;
-				energyConsumptionPerDistance = (double) usedType.getEngineInformation().getAttributes()
-						.getAttribute("engeryConsumptionPerKm");
-				energyConsumptionPerWeight = 1.4;
-			}
 			capacityTruck = usedType.getCapacity().getOther();
 			vehicleTypeId = usedType.getId().toString();
 		}
-
 		for (Carrier thisCarrier : carrierMap.values()) {
-
-			Collection<ScheduledTour> tours = thisCarrier.getSelectedPlan().getScheduledTours();
-			Map<Id<CarrierShipment>, CarrierShipment> shipments = thisCarrier.getShipments();
-			HashMap<String, Integer> shipmentSizes = new HashMap<String, Integer>();
 			matsimCosts = matsimCosts + thisCarrier.getSelectedPlan().getScore();
+		}
 
-			for (Entry<Id<CarrierShipment>, CarrierShipment> entry : shipments.entrySet()) {
-				String shipmentId = entry.getKey().toString();
-				int shipmentSize = entry.getValue().getSize();
-				shipmentSizes.put(shipmentId, shipmentSize);
-			}
-			for (ScheduledTour scheduledTour : tours) {
-				distanceTour = 0;
-				powerConsumptionTour = 0;
-				sizeTour = 0;
-				List<TourElement> elements = scheduledTour.getTour().getTourElements();
-				for (TourElement element : elements) {
-					if (element instanceof Pickup) {
-						Pickup pickupElement = (Pickup) element;
-						String pickupShipmentId = pickupElement.getShipment().getId().toString();
-						if (scheduledTour.getVehicle().getId().toString().contains("TruckForckenbeck")) {
-							sizeForckenbeck = sizeForckenbeck + (shipmentSizes.get(pickupShipmentId));
-							sizeTour = sizeTour + (shipmentSizes.get(pickupShipmentId));
-						}
-						if (scheduledTour.getVehicle().getId().toString().contains("TruckMalmoeer")) {
-							sizeMalmooer = sizeMalmooer + (shipmentSizes.get(pickupShipmentId));
-							sizeTour = sizeTour + (shipmentSizes.get(pickupShipmentId));
-						}
-						if (scheduledTour.getVehicle().getId().toString().contains("TruckNordring")) {
-							sizeNordring = sizeNordring + (shipmentSizes.get(pickupShipmentId));
-							sizeTour = sizeTour + (shipmentSizes.get(pickupShipmentId));
-						}
-						if (scheduledTour.getVehicle().getId().toString().contains("TruckGradestrasse")) {
-							sizeGradestrasse = sizeGradestrasse + (shipmentSizes.get(pickupShipmentId));
-							sizeTour = sizeTour + (shipmentSizes.get(pickupShipmentId));
-						}
-						if (scheduledTour.getVehicle().getId().toString().contains("TruckChessboard")) {
-							sizeChessboard = sizeChessboard + (shipmentSizes.get(pickupShipmentId));
-							sizeTour = sizeTour + (shipmentSizes.get(pickupShipmentId));
-						}
-					}
-					if (element instanceof Delivery) {
-						Delivery deliveryElement = (Delivery) element;
-						String deliveryShipmentId = deliveryElement.getShipment().getId().toString();
-						if (deliveryElement.getLocation() == Id.createLinkId(linkMhkwRuhleben)) {
-							sizeRuhleben = sizeRuhleben + (shipmentSizes.get(deliveryShipmentId));
-						}
-						if (deliveryElement.getLocation() == Id.createLinkId(linkMpsPankow)) {
-							sizePankow = sizePankow + (shipmentSizes.get(deliveryShipmentId));
-						}
-						if (deliveryElement.getLocation() == Id.createLinkId(linkMpsReinickendorf)) {
-							sizeReinickendorf = sizeReinickendorf + (shipmentSizes.get(deliveryShipmentId));
-						}
-						if (deliveryElement.getLocation() == Id.createLinkId(linkUmladestationGradestrasse)) {
-							sizeUmladestationGradestrasse = sizeUmladestationGradestrasse
-									+ (shipmentSizes.get(deliveryShipmentId));
-						}
-						if (deliveryElement.getLocation() == Id.createLinkId(linkGruenauerStr)) {
-							sizeGruenauerStr = sizeGruenauerStr + (shipmentSizes.get(deliveryShipmentId));
-						}
-						if (scheduledTour.getVehicle().getId() == Id.createVehicleId("TruckChessboard")) {
-							sizeChessboardDelivery = sizeChessboardDelivery + (shipmentSizes.get(deliveryShipmentId));
-						}
-					}
-					if (element instanceof Leg) {
-						Leg legElement = (Leg) element;
-						if (legElement.getRoute().getDistance() != 0)
-							distanceTour = distanceTour + RouteUtils.calcDistance((NetworkRoute) legElement.getRoute(),
-									0, 0, scenario.getNetwork());
-
-					}
-				}
-				allCollectedGarbage = sizeForckenbeck + sizeMalmooer + sizeNordring + sizeGradestrasse + sizeChessboard;
-				powerConsumptionTour = (double) (distanceTour / 1000) * energyConsumptionPerDistance
-						+ (double) (sizeTour / 1000) * energyConsumptionPerWeight;
-
-				if (scheduledTour.getVehicle().getId().toString().contains("TruckForckenbeck")) {
-					tourDistancesForckenbeck.add(vehiclesForckenbeck, (double) Math.round(distanceTour / 1000));
-					powerConsumptionTourForckenbeck.add(vehiclesForckenbeck, (double) Math.round(powerConsumptionTour));
-					vehiclesForckenbeck++;
+		// the tours are only read once, either while solving or now
+		AbfallResultWriter results = resultWriter;
+		if (results == null) {
+			try {
+				results = new AbfallResultWriter(scenario, null);
+				for (Carrier thisCarrier : carrierMap.values()) {
+					results.writeCarrier(thisCarrier);
 				}
-				if (scheduledTour.getVehicle().getId().toString().contains("TruckMalmoeer")) {
-					tourDistancesMalmoeerStr.add(vehiclesMalmoeer, (double) Math.round(distanceTour / 1000));
-					powerConsumptionTourMalmoeerStr.add(vehiclesMalmoeer, (double) Math.round(powerConsumptionTour));
-					vehiclesMalmoeer++;
-				}
-				if (scheduledTour.getVehicle().getId().toString().contains("TruckNordring")) {
-					tourDistancesNordring.add(vehiclesNordring, (double) Math.round(distanceTour / 1000));
-					powerConsumptionTourNordring.add(vehiclesNordring, (double) Math.round(powerConsumptionTour));
-					vehiclesNordring++;
-				}
-				if (scheduledTour.getVehicle().getId().toString().contains("TruckGradestrasse")) {
-					tourDistancesGradestrasse.add(vehiclesGradestrasse, (double) Math.round(distanceTour / 1000));
-					powerConsumptionTourGradestrasse.add(vehiclesGradestrasse,
-							(double) Math.round(powerConsumptionTour));
-					vehiclesGradestrasse++;
-				}
-				if (scheduledTour.getVehicle().getId().toString().contains("TruckChessboard")) {
-					tourDistancesChessboard.add(vehiclesChessboard, (double) Math.round(distanceTour / 1000));
-					tourDistanceChessboard = tourDistanceChessboard + tourDistancesChessboard.get(vehiclesChessboard);
-					powerConsumptionTourChessboard.add(vehiclesChessboard, (double) Math.round(powerConsumptionTour));
-					powerConsumptionChessboard = powerConsumptionChessboard
-							+ powerConsumptionTourChessboard.get(vehiclesChessboard);
-					vehiclesChessboard++;
-				}
-				numberVehicles = vehiclesForckenbeck + vehiclesMalmoeer + vehiclesNordring + vehiclesGradestrasse
-						+ vehiclesChessboard;
-			}
-			if (thisCarrier.getShipments().size() > 0)
-				carrierWithShipments++;
-		}
-		if (vehiclesForckenbeck > 0) {
-			maxTourForckenbeck = tourDistancesForckenbeck.get(0);
-			minTourForckenbeck = tourDistancesForckenbeck.get(0);
-			distanceToursForckenbeck = tourDistancesForckenbeck.get(0);
-			maxPowerConsumptionForckenbeck = powerConsumptionTourForckenbeck.get(0);
-			minPowerConsumptionForckenbeck = powerConsumptionTourForckenbeck.get(0);
-			powerConsumptionForckenbeck = powerConsumptionTourForckenbeck.get(0);
-			for (int index = 1; index < tourDistancesForckenbeck.size(); index++) {
-				if (tourDistancesForckenbeck.get(index) > maxTourForckenbeck)
-					maxTourForckenbeck = tourDistancesForckenbeck.get(index);
-				if (tourDistancesForckenbeck.get(index) < minTourForckenbeck)
-					minTourForckenbeck = tourDistancesForckenbeck.get(index);
-				if (powerConsumptionTourForckenbeck.get(index) > maxPowerConsumptionForckenbeck)
-					maxPowerConsumptionForckenbeck = powerConsumptionTourForckenbeck.get(index);
-				if (powerConsumptionTourForckenbeck.get(index) < minPowerConsumptionForckenbeck)
-					minPowerConsumptionForckenbeck = powerConsumptionTourForckenbeck.get(index);
-				distanceToursForckenbeck = distanceToursForckenbeck + tourDistancesForckenbeck.get(index);
-				powerConsumptionForckenbeck = powerConsumptionForckenbeck + powerConsumptionTourForckenbeck.get(index);
-			}
-			averageTourDistanceForckenbeck = distanceToursForckenbeck / vehiclesForckenbeck;
-			averagePowerConsumptionForckenbeck = powerConsumptionForckenbeck / vehiclesForckenbeck;
-		}
-		if (vehiclesMalmoeer > 0) {
-			maxTourMalmoeerStr = tourDistancesMalmoeerStr.get(0);
-			minTourMalmoeerStr = tourDistancesMalmoeerStr.get(0);
-			distanceToursMalmoeerStr = tourDistancesMalmoeerStr.get(0);
-			maxPowerConsumptionMalmoeerStr = powerConsumptionTourMalmoeerStr.get(0);
-			minPowerConsumptionMalmoeerStr = powerConsumptionTourMalmoeerStr.get(0);
-			powerConsumptionMalmoeerStr = powerConsumptionTourMalmoeerStr.get(0);
-			for (int index = 1; index < tourDistancesMalmoeerStr.size(); index++) {
-				if (tourDistancesMalmoeerStr.get(index) > maxTourMalmoeerStr)
-					maxTourMalmoeerStr = tourDistancesMalmoeerStr.get(index);
-				if (tourDistancesMalmoeerStr.get(index) < minTourMalmoeerStr)
-					minTourMalmoeerStr = tourDistancesMalmoeerStr.get(index);
-				if (powerConsumptionTourMalmoeerStr.get(index) > maxPowerConsumptionMalmoeerStr)
-					maxPowerConsumptionMalmoeerStr = powerConsumptionTourMalmoeerStr.get(index);
-				if (powerConsumptionTourMalmoeerStr.get(index) < minPowerConsumptionMalmoeerStr)
-					minPowerConsumptionMalmoeerStr = powerConsumptionTourMalmoeerStr.get(index);
-				distanceToursMalmoeerStr = distanceToursMalmoeerStr + tourDistancesMalmoeerStr.get(index);
-				powerConsumptionMalmoeerStr = powerConsumptionMalmoeerStr + powerConsumptionTourMalmoeerStr.get(index);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
-			averageTourDistanceMalmoeerStr = distanceToursMalmoeerStr / vehiclesMalmoeer;
-			averagePowerConsumptionMalmoeerStr = powerConsumptionMalmoeerStr / vehiclesMalmoeer;
-		}
-		if (vehiclesNordring > 0) {
-			maxTourNordring = tourDistancesNordring.get(0);
-			minTourNordring = tourDistancesNordring.get(0);
-			distanceToursNordring = tourDistancesNordring.get(0);
-			maxPowerConsumptionNordring = powerConsumptionTourNordring.get(0);
-			minPowerConsumptionNordring = powerConsumptionTourNordring.get(0);
-			powerConsumptionNordring = powerConsumptionTourNordring.get(0);
-			for (int index = 1; index < tourDistancesNordring.size(); index++) {
-				if (tourDistancesNordring.get(index) > maxTourNordring)
-					maxTourNordring = tourDistancesNordring.get(index);
-				if (tourDistancesNordring.get(index) < minTourNordring)
-					minTourNordring = tourDistancesNordring.get(index);
-				if (powerConsumptionTourNordring.get(index) > maxPowerConsumptionNordring)
-					maxPowerConsumptionNordring = powerConsumptionTourNordring.get(index);
-				if (powerConsumptionTourNordring.get(index) < minPowerConsumptionNordring)
-					minPowerConsumptionNordring = powerConsumptionTourNordring.get(index);
-				distanceToursNordring = distanceToursNordring + tourDistancesNordring.get(index);
-				powerConsumptionNordring = powerConsumptionNordring + powerConsumptionTourNordring.get(index);
-			}
-			averageTourDistanceNordring = distanceToursNordring / vehiclesNordring;
-			averagePowerConsumptionNordring = powerConsumptionNordring / vehiclesNordring;
-		}
-		if (vehiclesGradestrasse > 0) {
-			maxTourGradestrasse = tourDistancesGradestrasse.get(0);
-			minTourGradestrasse = tourDistancesForckenbeck.get(0);
-			distanceToursGradestrasse = tourDistancesGradestrasse.get(0);
-			maxPowerConsumptionGradestrasse = powerConsumptionTourGradestrasse.get(0);
-			minPowerConsumptionGradestrasse = powerConsumptionTourGradestrasse.get(0);
-			powerConsumptionGradestrasse = powerConsumptionTourGradestrasse.get(0);
-			for (int index = 1; index < tourDistancesGradestrasse.size(); index++) {
-				if (tourDistancesGradestrasse.get(index) > maxTourGradestrasse)
-					maxTourGradestrasse = tourDistancesGradestrasse.get(index);
-				if (tourDistancesGradestrasse.get(index) < minTourGradestrasse)
-					minTourGradestrasse = tourDistancesGradestrasse.get(index);
-				if (powerConsumptionTourGradestrasse.get(index) > maxPowerConsumptionGradestrasse)
-					maxPowerConsumptionGradestrasse = powerConsumptionTourGradestrasse.get(index);
-				if (powerConsumptionTourGradestrasse.get(index) < minPowerConsumptionGradestrasse)
-					minPowerConsumptionGradestrasse = powerConsumptionTourGradestrasse.get(index);
-				distanceToursGradestrasse = distanceToursGradestrasse + tourDistancesGradestrasse.get(index);
-				powerConsumptionGradestrasse = powerConsumptionGradestrasse
-						+ powerConsumptionTourGradestrasse.get(index);
-			}
-			averageTourDistanceGradestrasse = distanceToursGradestrasse / vehiclesGradestrasse;
-			averagePowerConsumptionGradestrasse = powerConsumptionGradestrasse / vehiclesGradestrasse;
 		}
+		boolean electricCar = results.isElectricCar();
+		int numberVehicles = results.getNumberOfTours();
+		TourStatistics forckenbeck = results.getStatistics("Forckenbeck");
+		TourStatistics malmoeerStr = results.getStatistics("Malmoeer");
+		TourStatistics nordring = results.getStatistics("Nordring");
+		TourStatistics gradestrasse = results.getStatistics("Gradestrasse");
+		TourStatistics chessboard = results.getStatistics("Chessboard");
 
 		FileWriter writer;
 		File file;
@@ -1029,105 +1275,64 @@ class AbfallUtils {
 			writer.write(
 					"ServiceTime pro Mülltonne:\t\t\t\t\t\t\t\t\t" + secondsServiceTimePerDustbin + " Sekunden\n\n");
 			writer.write("Iterationen jsprit:\t\t\t\t\t\t\t\t\t\t\t" + jspritIterations + "\n");
-			writer.write("Iterationen MATSim:\t\t\t\t\t\t\t\t\t\t\t" + matsimIterations + "\n");
+			writer.write("Laufzeit jsprit:\t\t\t\t\t\t\t\t\t\t\t" + Math.round(secondsJsprit) + " Sekunden\n");
+			if (decomposedCarriers > 0)
+				writer.write("Zerlegung jsprit:\t\t\t\t\t\t\t\t\t\t\t" + decomposedCarriers + " Carrier in "
+						+ numberOfClusters + " Cluster (max. " + maxShipmentsPerCluster + " Abholstellen je Cluster)\n");
+			if (warmStartedCarriers > 0)
+				writer.write("Iterationen jsprit mit Warmstart:\t\t\t\t\t\t\t" + warmStartIterations + "\t\t(Carrier: "
+						+ warmStartedCarriers + ")\n");
+			writer.write("Iterationen MATSim:\t\t\t\t\t\t\t\t\t\t\t"
+					+ (scenario.getConfig().controler().getLastIteration() + 1) + "\n");
 			writer.write("\n" + "Die Summe des abzuholenden Mülls beträgt: \t\t\t\t\t" + ((double) allGarbage) / 1000
 					+ " t\n\n");
 			writer.write("Anzahl der Abholstellen: \t\t\t\t\t\t\t\t\t" + numberOfShipments + "\n");
 			writer.write("Anzahl der Abholstellen ohne Abholung: \t\t\t\t\t\t" + noPickup + "\n\n");
-			writer.write("Anzahl der Carrier mit Shipments:\t\t\t\t\t\t\t" + carrierWithShipments + "\n\n");
+			writer.write("Anzahl der Carrier mit Shipments:\t\t\t\t\t\t\t" + results.getCarriersWithShipments() + "\n\n");
 			writer.write("Anzahl der entleerten Mülltonnen:\t\t\t\t\t\t\t" + amountOfCollectedDustbins + "\n\n");
 			writer.write("Anzahl der Muellfahrzeuge im Einsatz: \t\t\t\t\t\t" + (numberVehicles) + "\t\tMenge gesamt:\t"
-					+ ((double) allCollectedGarbage) / 1000 + " t\n\n");
+					+ ((double) results.getCollectedGarbage()) / 1000 + " t\n\n");
 			if (day != null) {
-				writer.write("\t Anzahl aus dem Betriebshof Forckenbeckstrasse: \t\t\t" + vehiclesForckenbeck
-						+ "\t\t\tMenge:\t\t" + ((double) sizeForckenbeck) / 1000 + " t\n");
-				if (vehiclesForckenbeck > 0) {
-					writer.write("\t\t\tFahrstrecke Summe:\t\t\t\t" + distanceToursForckenbeck + " km\n");
-					writer.write("\t\t\tFahrstrecke Max:\t\t\t\t" + maxTourForckenbeck + " km\n");
-					writer.write("\t\t\tFahrstrecke Min:\t\t\t\t" + minTourForckenbeck + " km\n");
-					writer.write("\t\t\tFahrstrecke Durchschnitt:\t\t" + Math.round(averageTourDistanceForckenbeck)
-							+ " km\n");
-
-					if (electricCar == true) {
-						writer.write("\t\t\tEnergieverbrauch Summe:\t\t\t" + powerConsumptionForckenbeck + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Max:\t\t\t" + maxPowerConsumptionForckenbeck + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Min:\t\t\t" + minPowerConsumptionForckenbeck + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Durchschnitt:\t"
-								+ Math.round(averagePowerConsumptionForckenbeck) + " kwh\n");
-					}
-				}
-				writer.write("\n" + "\t Anzahl aus dem Betriebshof Malmoeer Strasse: \t\t\t\t" + vehiclesMalmoeer
-						+ "\t\t\tMenge:\t\t" + ((double) sizeMalmooer) / 1000 + " t\n");
-				if (vehiclesMalmoeer > 0) {
-					writer.write("\t\t\tFahrstrecke Summe:\t\t\t\t" + distanceToursMalmoeerStr + " km\n");
-					writer.write("\t\t\tFahrstrecke Max:\t\t\t\t" + maxTourMalmoeerStr + " km\n");
-					writer.write("\t\t\tFahrstrecke Min:\t\t\t\t" + minTourMalmoeerStr + " km\n");
-					writer.write("\t\t\tFahrstrecke Durchschnitt:\t\t" + Math.round(averageTourDistanceMalmoeerStr)
-							+ " km\n");
-					if (electricCar == true) {
-						writer.write("\t\t\tEnergieverbrauch Summe:\t\t\t" + powerConsumptionMalmoeerStr + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Max:\t\t\t" + maxPowerConsumptionMalmoeerStr + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Min:\t\t\t" + minPowerConsumptionMalmoeerStr + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Durchschnitt:\t"
-								+ Math.round(averagePowerConsumptionMalmoeerStr) + " kw/h\n");
-					}
-				}
-				writer.write("\n" + "\t Anzahl aus dem Betriebshof Nordring: \t\t\t\t\t\t" + vehiclesNordring
-						+ "\t\t\tMenge:\t\t" + ((double) sizeNordring) / 1000 + " t\n");
-				if (vehiclesNordring > 0) {
-					writer.write("\t\t\tFahrstrecke Summe:\t\t\t\t" + distanceToursNordring + " km\n");
-					writer.write("\t\t\tFahrstrecke Max:\t\t\t\t" + maxTourNordring + " km\n");
-					writer.write("\t\t\tFahrstrecke Min:\t\t\t\t" + minTourNordring + " km\n");
-					writer.write(
-							"\t\t\tFahrstrecke Durchschnitt:\t\t" + Math.round(averageTourDistanceNordring) + " km\n");
-					if (electricCar == true) {
-						writer.write("\t\t\tEnergieverbrauch Summe:\t\t\t" + powerConsumptionNordring + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Max:\t\t\t" + maxPowerConsumptionNordring + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Min:\t\t\t" + minPowerConsumptionNordring + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Durchschnitt:\t"
-								+ Math.round(averagePowerConsumptionNordring) + " kwh\n");
-					}
-				}
-				writer.write("\n" + "\t Anzahl aus dem Betriebshof Gradestraße: \t\t\t\t\t" + vehiclesGradestrasse
-						+ "\t\t\tMenge:\t\t" + ((double) sizeGradestrasse) / 1000 + " t\n");
-				if (vehiclesGradestrasse > 0) {
-					writer.write("\t\t\tFahrstrecke Summe:\t\t\t\t" + distanceToursGradestrasse + " km\n");
-					writer.write("\t\t\tFahrstrecke Max:\t\t\t\t" + maxTourGradestrasse + " km\n");
-					writer.write("\t\t\tFahrstrecke Min:\t\t\t\t" + minTourGradestrasse + " km\n");
-					writer.write("\t\t\tFahrstrecke Durchschnitt:\t\t" + Math.round(averageTourDistanceGradestrasse)
-							+ " km\n");
-					if (electricCar == true) {
-						writer.write("\t\t\tEnergieverbrauch Summe:\t\t\t" + powerConsumptionGradestrasse + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Max:\t\t\t" + maxPowerConsumptionGradestrasse + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Min:\t\t\t" + minPowerConsumptionGradestrasse + " kwh\n");
-						writer.write("\t\t\tEnergieverbrauch Durchschnitt:\t"
-								+ Math.round(averagePowerConsumptionGradestrasse) + " kwh\n");
-					}
-				}
+				writeDepotSummary(writer, "\t Anzahl aus dem Betriebshof Forckenbeckstrasse: \t\t\t", forckenbeck,
+						electricCar);
+				writeDepotSummary(writer, "\n" + "\t Anzahl aus dem Betriebshof Malmoeer Strasse: \t\t\t\t", malmoeerStr,
+						electricCar);
+				writeDepotSummary(writer, "\n" + "\t Anzahl aus dem Betriebshof Nordring: \t\t\t\t\t\t", nordring,
+						electricCar);
+				writeDepotSummary(writer, "\n" + "\t Anzahl aus dem Betriebshof Gradestraße: \t\t\t\t\t", gradestrasse,
+						electricCar);
 				writer.write("\n" + "Anzuliefernde Menge (IST):\tMHKW Ruhleben:\t\t\t\t\t"
-						+ ((double) sizeRuhleben) / 1000 + " t\n");
-				writer.write("\t\t\t\t\t\t\tMPS Pankow:\t\t\t\t\t\t" + ((double) sizePankow) / 1000 + " t\n");
-				writer.write("\t\t\t\t\t\t\tMPS Reinickendorf:\t\t\t\t" + ((double) sizeReinickendorf) / 1000 + " t\n");
+						+ ((double) results.getGarbageRuhleben()) / 1000 + " t\n");
+				writer.write("\t\t\t\t\t\t\tMPS Pankow:\t\t\t\t\t\t" + ((double) results.getGarbagePankow()) / 1000
+						+ " t\n");
+				writer.write("\t\t\t\t\t\t\tMPS Reinickendorf:\t\t\t\t"
+						+ ((double) results.getGarbageReinickendorf()) / 1000 + " t\n");
 				writer.write("\t\t\t\t\t\t\tUmladestation Gradestrasse:\t\t"
-						+ ((double) sizeUmladestationGradestrasse) / 1000 + " t\n");
-				writer.write(
-						"\t\t\t\t\t\t\tMA Gruenauer Str.:\t\t\t\t" + ((double) sizeGruenauerStr) / 1000 + " t\n\n");
+						+ ((double) results.getGarbageUmladestationGradestrasse()) / 1000 + " t\n");
+				writer.write("\t\t\t\t\t\t\tMA Gruenauer Str.:\t\t\t\t"
+						+ ((double) results.getGarbageGruenauerStr()) / 1000 + " t\n\n");
 			}
-			if (vehiclesChessboard > 0) {
-				writer.write("Gefahrene Kilometer je Fahrzeug:\t\t\t\t\t\t\t" + tourDistancesChessboard + " \n");
+			if (chessboard.getNumberOfTours() > 0) {
+				writer.write("Gefahrene Kilometer je Fahrzeug:\t\t\t\t\t\t\t" + results.getTourDistancesChessboard()
+						+ " \n");
 				if (electricCar == true)
-					writer.write(
-							"Energieverbrauch in kwh je Fahrzeug:\t\t\t\t\t\t" + powerConsumptionTourChessboard + "\n");
+					writer.write("Energieverbrauch in kwh je Fahrzeug:\t\t\t\t\t\t"
+							+ results.getEnergyConsumptionsChessboard() + "\n");
 			}
-			writer.write(
-					"Gefahrene Strecke gesamt:\t\t\t\t\t\t\t\t\t" + (distanceToursForckenbeck + distanceToursMalmoeerStr
-							+ distanceToursNordring + distanceToursGradestrasse + tourDistanceChessboard) + " km\n\n");
+			writer.write("Gefahrene Strecke gesamt:\t\t\t\t\t\t\t\t\t"
+					+ (forckenbeck.getDistanceSum() + malmoeerStr.getDistanceSum() + nordring.getDistanceSum()
+							+ gradestrasse.getDistanceSum() + chessboard.getDistanceSum())
+					+ " km\n\n");
 			if (electricCar == true)
 				writer.write("Verbrauche Energie gesamt:\t\t\t\t\t\t\t\t\t"
-						+ (powerConsumptionForckenbeck + powerConsumptionMalmoeerStr + powerConsumptionNordring
-								+ powerConsumptionGradestrasse + powerConsumptionChessboard)
+						+ (forckenbeck.getEnergySum() + malmoeerStr.getEnergySum() + nordring.getEnergySum()
+								+ gradestrasse.getEnergySum() + chessboard.getEnergySum())
 						+ " kwh\n\n");
-			writer.write("Kosten (Jsprit): \t\t\t\t\t\t\t\t\t\t\t" + (Math.round(costsJsprit)) + " €\n\n");
+			writer.write("Kosten (Jsprit): \t\t\t\t\t\t\t\t\t\t\t" + (Math.round(costsJsprit)) + " €\n");
+			// to compare runs with and without decomposition (quality vs. run time of jsprit)
+			writer.write("Kosten (Jsprit) je Abholstelle: \t\t\t\t\t\t\t"
+					+ (numberOfShipments == 0 ? 0 : Math.round(costsJsprit / numberOfShipments * 100) / 100.)
+					+ " €\tLaufzeit: " + Math.round(secondsJsprit) + " Sekunden\n\n");
 			writer.write("Kosten (MatSim): \t\t\t\t\t\t\t\t\t\t\t" + ((-1) * Math.round(matsimCosts)) + " €\n");
 
 			writer.flush();
@@ -1144,12 +1349,32 @@ class AbfallUtils {
 		}
 	}
 
+	private static void writeDepotSummary(FileWriter writer, String label, TourStatistics statistics,
+			boolean electricCar) throws IOException {
+		writer.write(label + statistics.getNumberOfTours() + "\t\t\tMenge:\t\t"
+				+ ((double) statistics.getGarbage()) / 1000 + " t\n");
+		if (statistics.getNumberOfTours() > 0) {
+			writer.write("\t\t\tFahrstrecke Summe:\t\t\t\t" + statistics.getDistanceSum() + " km\n");
+			writer.write("\t\t\tFahrstrecke Max:\t\t\t\t" + statistics.getDistanceMax() + " km\n");
+			writer.write("\t\t\tFahrstrecke Min:\t\t\t\t" + statistics.getDistanceMin() + " km\n");
+			writer.write("\t\t\tFahrstrecke Durchschnitt:\t\t" + Math.round(statistics.getDistanceAverage())
+					+ " km\n");
+			if (electricCar == true) {
+				writer.write("\t\t\tEnergieverbrauch Summe:\t\t\t" + statistics.getEnergySum() + " kwh\n");
+				writer.write("\t\t\tEnergieverbrauch Max:\t\t\t" + statistics.getEnergyMax() + " kwh\n");
+				writer.write("\t\t\tEnergieverbrauch Min:\t\t\t" + statistics.getEnergyMin() + " kwh\n");
+				writer.write("\t\t\tEnergieverbrauch Durchschnitt:\t" + Math.round(statistics.getEnergyAverage())
+						+ " kwh\n");
+			}
+		}
+	}
+
 	/**
 	 * Creates an output of a summary of important informations of the created
 	 * shipments
 	 * 
 	 */
-	static void outputSummaryShipments(Scenario scenario, String day, HashMap<String, Carrier> carrierMap) {
+	void outputSummaryShipments(Scenario scenario, String day, HashMap<String, Carrier> carrierMap) {
 
 		double capacityTruck = 0;
 		String vehicleTypeId = null;
@@ -1197,176 +1422,40 @@ class AbfallUtils {
 	}
 
 	/**
+	 * Writes the tour statistics of all carriers at once, see
+	 * {@link AbfallResultWriter} for writing them while solving.
+	 * 
 	 * @param scenario
 	 * @param carriers
-	 * @param vehicleTypes
-	 * @throws IOException
+	 * @throws Exception if a tour needs more energy than the battery capacity
 	 */
-
-	@SuppressWarnings("null")
 	static void createResultFile(Scenario scenario, Carriers carriers) throws Exception {
-
 		log.info("Starting");
-
-		// String inputDir;
-		Map<Id<Person>, Double> personId2tourDistance = new HashMap<>();
-		Map<Id<Person>, Double> personId2tourConsumptionkWh = new HashMap<>();
-		Map<String, Integer> usedNumberPerVehicleType = new HashMap<>();
-		ArrayList<String> toursWithOverconsumption = new ArrayList<>();
-		CarrierVehicleTypes vehicleTypes = new CarrierVehicleTypes();
-
-		Carriers allCarriers = (Carriers) scenario.getScenarioElement("carriers");
-		Carrier testCarrier = allCarriers.getCarriers().values().iterator().next();
-		for (VehicleType usedType : testCarrier.getCarrierCapabilities().getVehicleTypes()) {
-			vehicleTypes.getVehicleTypes().put(usedType.getId(), usedType);
-			usedNumberPerVehicleType.put(usedType.getId().toString(), 0);
-		}
-
-		Network network = scenario.getNetwork();
-
-		BufferedWriter writer;
-		File file;
-		file = new File(scenario.getConfig().controler().getOutputDirectory() + "/02_SummaryOutput.txt");
-
-		writer = new BufferedWriter(new FileWriter(file, true));
-		String now = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(new Date());
-		writer.write("Tourenstatisitik erstellt am: " + now + "\n\n");
-
+		AbfallResultWriter resultWriter = createResultWriter(scenario);
 		for (Carrier singleCarrier : carriers.getCarriers().values()) {
+			resultWriter.writeCarrier(singleCarrier);
+		}
+		closeResultWriter(resultWriter);
+	}
 
-			double totalDistance = 0;
-			int numberOfVehicles = 0;
-			double distanceTour;
-			int numCollections = 0;
-			int tourNumberCarrier = 1;
-			VehicleType vt = null;
-
-			for (ScheduledTour scheduledTour : singleCarrier.getSelectedPlan().getScheduledTours()) {
-				distanceTour = 0.0;
-				for (VehicleType vt2 : singleCarrier.getCarrierCapabilities().getVehicleTypes()) {
-					if (vt2.getId().toString()
-							.contains(scheduledTour.getVehicle().getType().getId().toString())) {
-
-						vt = vt2;
-						break;
-					}
-				}
-
-				int vehicleTypeCount = usedNumberPerVehicleType
-						.get(scheduledTour.getVehicle().getType().getId().toString());
-				usedNumberPerVehicleType.replace(scheduledTour.getVehicle().getType().getId().toString(),
-						vehicleTypeCount + 1);
-
-				List<Tour.TourElement> elements = scheduledTour.getTour().getTourElements();
-				for (Tour.TourElement element : elements) {
-					if (element instanceof Tour.Pickup) {
-						numCollections++;
-
-					}
-					if (element instanceof Tour.Leg) {
-						Tour.Leg legElement = (Tour.Leg) element;
-						if (legElement.getRoute().getDistance() != 0)
-							distanceTour = distanceTour
-									+ RouteUtils.calcDistance((NetworkRoute) legElement.getRoute(), 0, 0, network);
-					}
-				}
-				Id<Person> personId = Id.create(
-						scheduledTour.getVehicle().getType().getId() + "-Tour " + tourNumberCarrier,
-						Person.class);
-				personId2tourDistance.put(personId, distanceTour);
-				if (vt.getEngineInformation().getAttributes().getAttribute("fuelType").equals("electricity")) {
-					personId2tourConsumptionkWh.put(personId, (distanceTour / 1000) * (double) vt.getEngineInformation()
-							.getAttributes().getAttribute("engeryConsumptionPerKm"));
-				}
-				totalDistance = totalDistance + distanceTour;
-				tourNumberCarrier++;
-			}
-			numberOfVehicles = numberOfVehicles + (tourNumberCarrier - 1);
-			writer.write("\n\n" + "Version: " + singleCarrier.getId().toString() + "\n");
-			writer.write("\tAnzahl der Abholstellen (Soll): \t\t\t\t\t" + singleCarrier.getShipments().size() + "\n");
-			writer.write("\tAnzahl der Abholstellen ohne Abholung: \t\t\t\t"
-					+ (singleCarrier.getShipments().size() - numCollections) + "\n");
-			writer.write("\tAnzahl der Fahrzeuge:\t\t\t\t\t\t\t\t" + numberOfVehicles + "\n");
-			for (VehicleType singleVehicleType : vehicleTypes.getVehicleTypes().values()) {
-				if (singleCarrier.getId().toString().equals(singleVehicleType.getDescription())) {
-					writer.write("\t\t\tAnzahl Typ " + singleVehicleType.getId().toString() + ":\t\t\t\t"
-							+ usedNumberPerVehicleType.get(singleVehicleType.getId().toString()) + "\n");
-				}
-			}
-			writer.write(
-					"\n" + "\tGefahrene Kilometer insgesamt:\t\t\t\t\t\t" + Math.round(totalDistance / 1000) + " km\n");
-			writer.write("\tVerfügbare Fahrzeugtypen:\t\t\t\t\t\n\n");
-			for (VehicleType singleVehicleType : vehicleTypes.getVehicleTypes().values()) {
-
-				writer.write(
-						"\t\t\tID: " + singleVehicleType.getId() + "\t\tAntrieb: "
-								+ singleVehicleType.getEngineInformation().getAttributes().getAttribute("fuelType")
-										.toString()
-								+ "\t\tKapazität: " + singleVehicleType.getCapacity().getOther() + "\t\tFixkosten:"
-								+ singleVehicleType.getCostInformation().getFixedCosts() + " €");
-				if (singleVehicleType.getEngineInformation().getAttributes().getAttribute("fuelType")
-						.equals("electricity")) {
-					double electricityConsumptionPer100km = 0;
-					double electricityCapacityinkWh = 0;
-					electricityConsumptionPer100km = (double) singleVehicleType.getEngineInformation().getAttributes()
-							.getAttribute("engeryConsumptionPerKm");
-					electricityCapacityinkWh = (double) singleVehicleType.getEngineInformation().getAttributes()
-							.getAttribute("engeryCapacity");
-
-					writer.write("\t\tLadekapazität: " + electricityCapacityinkWh + " kWh\t\tVerbrauch: "
-							+ electricityConsumptionPer100km + " kWh/100km\t\tReichweite: "
-							+ (int) Math.round(electricityCapacityinkWh / electricityConsumptionPer100km) + " km\n");
-				} else
-					writer.write("\n");
-
-			}
-			writer.write("\n\n" + "\tTourID\t\t\t\t\t\tdistance (max Distance) (km)\tconsumption (capacity) (kWh)\n\n");
-
-			for (Id<Person> id : personId2tourDistance.keySet()) {
-
-				int tourDistance = (int) Math.round(personId2tourDistance.get(id) / 1000);
-				int consumption = 0;
-				double distanceRange = 0;
-				double electricityCapacityinkWh = 0;
-				double electricityConsumptionPerkm = 0;
-
-				for (VehicleType singleVehicleType : vehicleTypes.getVehicleTypes().values()) {
-
-					if (id.toString().contains(singleVehicleType.getId().toString()) && singleVehicleType
-							.getEngineInformation().getAttributes().getAttribute("fuelType").equals("electricity")) {
-
-						electricityConsumptionPerkm = (double) singleVehicleType.getEngineInformation().getAttributes()
-								.getAttribute("engeryConsumptionPerKm");
-						electricityCapacityinkWh = (double) singleVehicleType.getEngineInformation().getAttributes()
-								.getAttribute("engeryCapacity");
-						distanceRange = (int) Math.round(electricityCapacityinkWh / electricityConsumptionPerkm);
-						consumption = (int) Math.round(personId2tourConsumptionkWh.get(id));
-
-						if (consumption > electricityCapacityinkWh)
-							toursWithOverconsumption.add(id.toString());
-					}
-				}
-
-				writer.write("\t" + id + "\t\t" + tourDistance);
-				if (distanceRange > 0) {
-					writer.write(" (" + distanceRange + ")\t\t\t\t\t\t" + consumption + " (" + electricityCapacityinkWh
-							+ ")");
-				} else
-					writer.write("\t\t\t\t\t\t\t\t\t\t");
-				writer.newLine();
+	/**
+	 * @return a writer for the 02_SummaryOutput.txt in the output directory
+	 */
+	static AbfallResultWriter createResultWriter(Scenario scenario) throws IOException {
+		return new AbfallResultWriter(scenario,
+				scenario.getConfig().controler().getOutputDirectory() + "/02_SummaryOutput.txt");
+	}
 
-			}
-			personId2tourConsumptionkWh.clear();
-			personId2tourDistance.clear();
-		}
-		writer.flush();
-		writer.close();
+	/**
+	 * @throws Exception if a tour needs more energy than the battery capacity
+	 */
+	static void closeResultWriter(AbfallResultWriter resultWriter) throws Exception {
+		resultWriter.close();
 		log.info("Output geschrieben");
 		log.info("### Done.");
-		if (toursWithOverconsumption.isEmpty() == false)
-			throw new Exception("The tour(s) " + toursWithOverconsumption.toString()
+		if (resultWriter.getToursWithOverconsumption().isEmpty() == false)
+			throw new Exception("The tour(s) " + resultWriter.getToursWithOverconsumption().toString()
 					+ " have a higher consumption then their capacity");
-
 	}
 
 }
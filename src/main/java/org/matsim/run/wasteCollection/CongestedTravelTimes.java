@@ -0,0 +1,236 @@
+package org.matsim.run.wasteCollection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Link travel times per time bin, aggregated from the events of a simulation
+ * (e.g. the output_events of a Berlin run) with a {@link TravelTimeCalculator}.
+ * With these travel times, the tours are planned against the congested speeds
+ * of the peak hours instead of the freespeeds, without simulating the city for
+ * every planning run.
+ *
+ * Reading the events of a whole city takes minutes, so {@link #readOrCreate}
+ * stores the travel times in a compact binary file, which is found again by a
+ * hash of the events file, the network and the bins. Only links, which are
+ * congested in at least one bin, are stored, i.e. their travel time exceeds the
+ * freespeed travel time by more than the rounding of the QSim and a relative
+ * tolerance; all other links get the freespeed travel time. The travel time of
+ * a vehicle is never below the travel time at its maximum velocity.
+ */
+final class CongestedTravelTimes implements TravelTime {
+
+	private static final Logger log = Logger.getLogger(CongestedTravelTimes.class);
+
+	private static final int MAGIC = 0x57435454;
+	private static final int VERSION = 2;
+
+	/**
+	 * The QSim moves vehicles in steps of one second, so the simulated travel
+	 * times are rounded up; this is not congestion.
+	 */
+	private static final double ROUNDING_TOLERANCE = 1.;
+	private static final double RELATIVE_TOLERANCE = 0.05;
+
+	private final long key;
+	private final double binSize;
+	private final int numberOfBins;
+	private final Map<Id<Link>, float[]> travelTimesPerLink;
+
+	private CongestedTravelTimes(long key, double binSize, int numberOfBins, Map<Id<Link>, float[]> travelTimesPerLink) {
+		this.key = key;
+		this.binSize = binSize;
+		this.numberOfBins = numberOfBins;
+		this.travelTimesPerLink = travelTimesPerLink;
+	}
+
+	/**
+	 * Reads the travel times from the cache directory or, if they are not there,
+	 * aggregates them from the events file and stores them. The events have to be
+	 * created on this network or on a network with the same link ids.
+	 *
+	 * @param binSize the width of the time bins in seconds, e.g. 900
+	 * @param maxTime travel times after this time are the ones of the last bin
+	 */
+	static CongestedTravelTimes readOrCreate(String cacheDirectory, Network network, String eventsFile,
+			double binSize, int maxTime) {
+		int numberOfBins = (int) Math.ceil(maxTime / binSize);
+		long key = hashKey(network, eventsFile, binSize, numberOfBins);
+		File file = new File(cacheDirectory, "travelTimes_" + Long.toHexString(key) + ".bin.gz");
+		if (file.exists()) {
+			try {
+				CongestedTravelTimes travelTimes = read(file);
+				if (travelTimes.key == key) {
+					log.info("Read congested travel times of " + travelTimes.travelTimesPerLink.size() + " links from "
+							+ file);
+					return travelTimes;
+				}
+				log.warn(file + " does not fit to the events and network, the travel times are created again.");
+			} catch (IOException e) {
+				log.warn("Could not read " + file + ", the travel times are created again.", e);
+			}
+		}
+		CongestedTravelTimes travelTimes = create(network, eventsFile, binSize, maxTime, numberOfBins, key);
+		try {
+			file.getParentFile().mkdirs();
+			travelTimes.write(file);
+			log.info("Wrote congested travel times to " + file);
+		} catch (IOException e) {
+			log.warn("Could not write " + file, e);
+		}
+		return travelTimes;
+	}
+
+	private static CongestedTravelTimes create(Network network, String eventsFile, double binSize, int maxTime,
+			int numberOfBins, long key) {
+		log.info("Aggregating the link travel times of " + eventsFile + " ...");
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.setTimeslice(binSize);
+		builder.setMaxTime(maxTime);
+		// only the vehicles driving on the road, not the buses and trams
+		builder.setFilterModes(true);
+		builder.setAnalyzedModes(Set.of(TransportMode.car, TransportMode.ride, "freight"));
+		TravelTimeCalculator travelTimeCalculator = builder.build();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(travelTimeCalculator);
+		EventsUtils.readEvents(eventsManager, eventsFile);
+
+		TravelTime linkTravelTimes = travelTimeCalculator.getLinkTravelTimes();
+		Map<Id<Link>, float[]> travelTimesPerLink = new HashMap<Id<Link>, float[]>();
+		for (Link link : network.getLinks().values()) {
+			float[] travelTimes = new float[numberOfBins];
+			boolean congested = false;
+			for (int bin = 0; bin < numberOfBins; bin++) {
+				double time = bin * binSize;
+				travelTimes[bin] = (float) linkTravelTimes.getLinkTravelTime(link, time, null, null);
+				congested = congested || isCongested(travelTimes[bin], link.getLength() / link.getFreespeed(time));
+			}
+			if (congested) {
+				travelTimesPerLink.put(link.getId(), travelTimes);
+			}
+		}
+		log.info(String.format(Locale.US,
+				"Finished aggregating the link travel times, %d of %d links (%.1f%%) are congested at least once.",
+				travelTimesPerLink.size(), network.getLinks().size(),
+				100. * travelTimesPerLink.size() / Math.max(1, network.getLinks().size())));
+		return new CongestedTravelTimes(key, binSize, numberOfBins, travelTimesPerLink);
+	}
+
+	static boolean isCongested(double travelTime, double freespeedTravelTime) {
+		return travelTime > Math.max(freespeedTravelTime + ROUNDING_TOLERANCE,
+				freespeedTravelTime * (1. + RELATIVE_TOLERANCE));
+	}
+
+	/**
+	 * @return true if the travel times of the link are stored, i.e. it is
+	 *         congested at least once
+	 */
+	boolean isStored(Id<Link> linkId) {
+		return travelTimesPerLink.containsKey(linkId);
+	}
+
+	@Override
+	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+		double travelTime = link.getLength() / link.getFreespeed(time);
+		float[] travelTimes = travelTimesPerLink.get(link.getId());
+		if (travelTimes != null) {
+			travelTime = Math.max(travelTime, travelTimes[Math.max(0, Math.min((int) (time / binSize), numberOfBins - 1))]);
+		}
+		if (vehicle != null) {
+			travelTime = Math.max(travelTime, link.getLength() / vehicle.getType().getMaximumVelocity());
+		}
+		return travelTime;
+	}
+
+	/**
+	 * @return the hash of the events file, the network and the bins, to be used in
+	 *         the keys of caches depending on these travel times
+	 */
+	long getKey() {
+		return key;
+	}
+
+	private void write(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(key);
+			out.writeDouble(binSize);
+			out.writeInt(numberOfBins);
+			out.writeInt(travelTimesPerLink.size());
+			for (Map.Entry<Id<Link>, float[]> entry : travelTimesPerLink.entrySet()) {
+				out.writeUTF(entry.getKey().toString());
+				for (float value : entry.getValue()) {
+					out.writeFloat(value);
+				}
+			}
+		}
+	}
+
+	private static CongestedTravelTimes read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unknown file format.");
+			}
+			long key = in.readLong();
+			double binSize = in.readDouble();
+			int numberOfBins = in.readInt();
+			int numberOfLinks = in.readInt();
+			Map<Id<Link>, float[]> travelTimesPerLink = new HashMap<Id<Link>, float[]>(numberOfLinks * 2);
+			for (int i = 0; i < numberOfLinks; i++) {
+				Id<Link> linkId = Id.createLinkId(in.readUTF());
+				float[] travelTimes = new float[numberOfBins];
+				for (int bin = 0; bin < numberOfBins; bin++) {
+					travelTimes[bin] = in.readFloat();
+				}
+				travelTimesPerLink.put(linkId, travelTimes);
+			}
+			return new CongestedTravelTimes(key, binSize, numberOfBins, travelTimesPerLink);
+		}
+	}
+
+	/**
+	 * The events file is identified by its path, size and last modification, as
+	 * hashing the content would take as long as reading it. For events, which are
+	 * not a local file (e.g. an url), only the path is used.
+	 */
+	private static long hashKey(Network network, String eventsFile, double binSize, int numberOfBins) {
+		long hash = TravelTimeAndDistanceMatrix.hashNetwork(network, binSize, numberOfBins);
+		File file = new File(eventsFile);
+		hash = 31 * hash + (file.exists() ? file.getAbsolutePath() : eventsFile).hashCode();
+		if (file.exists()) {
+			hash = 31 * hash + Long.hashCode(file.length());
+			hash = 31 * hash + Long.hashCode(file.lastModified());
+		}
+		hash = 31 * hash + Double.hashCode(binSize);
+		hash = 31 * hash + numberOfBins;
+		return hash;
+	}
+
+}
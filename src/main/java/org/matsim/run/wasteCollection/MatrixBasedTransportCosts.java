@@ -0,0 +1,63 @@
+package org.matsim.run.wasteCollection;
+
+import java.util.Map;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl.VehicleCostParams;
+
+/**
+ * Transport costs for jsprit, which are looked up in precomputed
+ * {@link TravelTimeAndDistanceMatrix}s (one per vehicle type) instead of being
+ * routed during the search. The locations of the problem have to be link ids,
+ * as created by {@link org.matsim.contrib.freight.jsprit.MatsimJspritFactory}.
+ */
+final class MatrixBasedTransportCosts extends AbstractForwardVehicleRoutingTransportCosts {
+
+	private final Map<String, TravelTimeAndDistanceMatrix> matrixPerVehicleType;
+	private final TravelTimeAndDistanceMatrix defaultMatrix;
+
+	/**
+	 * @param matrixPerVehicleType the matrices by the ids of the vehicle types;
+	 *                             the first one is also used if no vehicle is given
+	 */
+	MatrixBasedTransportCosts(Map<String, TravelTimeAndDistanceMatrix> matrixPerVehicleType) {
+		if (matrixPerVehicleType.isEmpty()) {
+			throw new IllegalArgumentException("At least one matrix is needed.");
+		}
+		this.matrixPerVehicleType = matrixPerVehicleType;
+		this.defaultMatrix = matrixPerVehicleType.values().iterator().next();
+	}
+
+	@Override
+	public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+		return getMatrix(vehicle).getTravelTime(from.getId(), to.getId(), departureTime);
+	}
+
+	@Override
+	public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+		TravelTimeAndDistanceMatrix matrix = getMatrix(vehicle);
+		double distance = matrix.getDistance(from.getId(), to.getId(), departureTime);
+		if (vehicle == null) {
+			return distance;
+		}
+		VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+		return costParams.perDistanceUnit * distance
+				+ costParams.perTransportTimeUnit * matrix.getTravelTime(from.getId(), to.getId(), departureTime);
+	}
+
+	public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+		return getMatrix(vehicle).getDistance(from.getId(), to.getId(), departureTime);
+	}
+
+	private TravelTimeAndDistanceMatrix getMatrix(Vehicle vehicle) {
+		if (vehicle == null) {
+			return defaultMatrix;
+		}
+		TravelTimeAndDistanceMatrix matrix = matrixPerVehicleType.get(vehicle.getType().getTypeId());
+		return matrix == null ? defaultMatrix : matrix;
+	}
+
+}
@@ -1,5 +1,6 @@
 package org.matsim.run.wasteCollection;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -24,6 +25,8 @@ import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.gis.ShapeFileReader;
 import org.opengis.feature.simple.SimpleFeature;
 
+import com.google.common.collect.ListMultimap;
+
 /**
  * @author Ricardo Ewert MA: Modellierung und Simulation der staedtischen
  *         Abfallwirtschaft am Beispiel Berlins
@@ -78,6 +81,12 @@ public class Run_Abfall {
 		String carriersFileLocation = null;
 		String vehicleTypesFileLocation = null;
 		String shapeFileLocation;
+		String previousCarrierPlansFileLocation;
+		int maxShipmentsPerCluster;
+		String congestionEventsFileLocation;
+		String cacheDirectory;
+		int jspritThreads;
+		int maxMatrixMegabytes;
 		boolean oneCarrierForOneDistrict;
 
 		for (String arg : args) {
@@ -94,6 +103,19 @@ public class Run_Abfall {
 			outputLocation = "output/wasteCollection/Scenario1";
 			day = "MO";
 			networkChangeEventsFileLocation = "";
+			// no warm start, otherwise the result would depend on the previous run in the output directory; set e.g.
+			// outputLocation + "/output_CarrierPlans.xml" to start from the plans of the last run of this scenario
+			previousCarrierPlansFileLocation = null;
+			// 0: the carriers are not split into clusters
+			maxShipmentsPerCluster = 0;
+			// e.g. the output_events of a Berlin run, then the tours are planned with congested travel times
+			congestionEventsFileLocation = null;
+			// the links of each district and the travel time matrices, reused by the following runs
+			cacheDirectory = "output/wasteCollection/cache";
+			// the number of carriers which are solved at the same time, independent of the threads of the MATSim run
+			jspritThreads = Runtime.getRuntime().availableProcessors();
+			// carriers with larger travel time matrices are solved with the network based transport costs
+			maxMatrixMegabytes = 512;
 		} else {
 			scenarioWahl = scenarioAuswahl.berlinCollectedGarbageForOneDay;
 			jspritIterations = Integer.parseInt(args[0]);
@@ -106,6 +128,20 @@ public class Run_Abfall {
 			carriersFileLocation = args[7];
 			shapeFileLocation = args[8];
 			oneCarrierForOneDistrict = Boolean.parseBoolean(args[9]);
+			// optional: the directory for the links of each district and the travel time matrices; by default next to
+			// the output directory, because the output directory is deleted at the start of each run
+			cacheDirectory = args.length > 10 && !args[10].isEmpty() ? args[10]
+					: new File(new File(outputLocation).getAbsoluteFile().getParentFile(), "cache").toString();
+			// optional: the number of carriers which are solved at the same time, by default the number of processors
+			jspritThreads = args.length > 11 ? Integer.parseInt(args[11]) : Runtime.getRuntime().availableProcessors();
+			// optional: the maximum size of the travel time matrix of one carrier and vehicle type in MB
+			maxMatrixMegabytes = args.length > 12 ? Integer.parseInt(args[12]) : 512;
+			// optional: the carrier plans of a previous run, e.g. of the last week, as start solution for jsprit
+			previousCarrierPlansFileLocation = args.length > 13 && !args[13].isEmpty() ? args[13] : null;
+			// optional: carriers with more shipments are split into spatial clusters, which are solved separately
+			maxShipmentsPerCluster = args.length > 14 ? Integer.parseInt(args[14]) : 0;
+			// optional: events of a simulation run on the same network, to plan the tours with congested travel times
+			congestionEventsFileLocation = args.length > 15 && !args[15].isEmpty() ? args[15] : null;
 			chosenCarrier = carrierChoice.carriersFromInputFile;
 		}
 
@@ -150,6 +186,8 @@ public class Run_Abfall {
 		default:
 			new RuntimeException("no carriers selected.");
 		}
+		// has to be read before the output directory is deleted
+		Carriers previousCarriers = AbfallUtils.readPreviousCarrierPlans(previousCarrierPlansFileLocation);
 		config = AbfallUtils.prepareConfig(config, 0, vehicleTypesFileLocation, carriersFileLocation);
 		Scenario scenario = ScenarioUtils.loadScenario(config);
 		FreightUtils.loadCarriersAccordingToFreightConfig(scenario);
@@ -163,13 +201,19 @@ public class Run_Abfall {
 
 		Collection<SimpleFeature> districtsWithGarbage = ShapeFileReader
 				.getAllFeatures(shapeFileLocation);
-		AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage, allLinks);
+		// the links of each district are stored in the cache directory and reused as long as network and districts do not change
+		ListMultimap<String, String> linksInDistricts = AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage,
+				allLinks, new File(cacheDirectory, new File(shapeFileLocation).getName().replaceFirst("\\.shp$", "")
+						+ "_linksInDistricts.csv.gz").toString());
+		AbfallUtils abfallUtils = new AbfallUtils(linksInDistricts);
+		abfallUtils.setMaxShipmentsPerCluster(maxShipmentsPerCluster);
+		abfallUtils.setMaxMatrixBytes(maxMatrixMegabytes * 1024L * 1024L);
 
 		switch (scenarioWahl) {
 		case chessboardTotalGarbageToCollect:
 			int kgGarbageToCollect = 12 * 1000;
 			CarrierVehicleTypes carrierVehicleTypes = FreightUtils.getCarrierVehicleTypes(scenario);
-			AbfallChessboardUtils.createShipmentsForChessboardI(carrierMap, kgGarbageToCollect, allLinks,
+			AbfallChessboardUtils.createShipmentsForChessboardI(abfallUtils, carrierMap, kgGarbageToCollect, allLinks,
 					volumeDustbinInLiters, secondsServiceTimePerDustbin, scenario, carriers);
 			FleetSize fleetSize = FleetSize.INFINITE;
 			AbfallChessboardUtils.createCarriersForChessboard(carriers, fleetSize, carrierVehicleTypes);
@@ -177,8 +221,8 @@ public class Run_Abfall {
 		case chessboardGarbagePerMeterToCollect:
 			double kgGarbagePerMeterToCollect = 0.2;
 			CarrierVehicleTypes carrierVehicleTypes2 = FreightUtils.getCarrierVehicleTypes(scenario);
-			AbfallChessboardUtils.createShipmentsForChessboardII(carrierMap, kgGarbagePerMeterToCollect, allLinks,
-					volumeDustbinInLiters, secondsServiceTimePerDustbin, scenario, carriers);
+			AbfallChessboardUtils.createShipmentsForChessboardII(abfallUtils, carrierMap, kgGarbagePerMeterToCollect,
+					allLinks, volumeDustbinInLiters, secondsServiceTimePerDustbin, scenario, carriers);
 			FleetSize fleetSize2 = FleetSize.INFINITE;
 			AbfallChessboardUtils.createCarriersForChessboard(carriers, fleetSize2, carrierVehicleTypes2);
 			break;
@@ -186,7 +230,7 @@ public class Run_Abfall {
 			// day input: MO or DI or MI or DO or FR
 			List<String> districtsForShipments = Arrays.asList("Malchow");
 			day = "MI";
-			AbfallUtils.createShipmentsForSelectedArea(districtsWithGarbage, districtsForShipments, day, garbageDumps,
+			abfallUtils.createShipmentsForSelectedArea(districtsWithGarbage, districtsForShipments, day, garbageDumps,
 					scenario, carriers, carrierMap, allLinks, volumeDustbinInLiters, secondsServiceTimePerDustbin);
 			break;
 		case berlinDistrictsWithInputGarbagePerMeter:
@@ -195,7 +239,7 @@ public class Run_Abfall {
 			HashMap<String, Double> areasForShipmentPerMeterMap = new HashMap<String, Double>();
 			areasForShipmentPerMeterMap.put("Malchow", 1.0);
 			day = "MI";
-			AbfallUtils.createShipmentsWithGarbagePerMeter(districtsWithGarbage, areasForShipmentPerMeterMap, day,
+			abfallUtils.createShipmentsWithGarbagePerMeter(districtsWithGarbage, areasForShipmentPerMeterMap, day,
 					garbageDumps, scenario, carriers, carrierMap, allLinks, volumeDustbinInLiters,
 					secondsServiceTimePerDustbin);
 			break;
@@ -206,13 +250,13 @@ public class Run_Abfall {
 			areasForShipmentPerVolumeMap.put("Malchow", 5 * 1000);
 			// areasForShipmentPerVolumeMap.put("Hansaviertel", 20 * 1000);
 			day = "MI";
-			AbfallUtils.createShipmentsGarbagePerVolume(districtsWithGarbage, areasForShipmentPerVolumeMap, day,
+			abfallUtils.createShipmentsGarbagePerVolume(districtsWithGarbage, areasForShipmentPerVolumeMap, day,
 					garbageDumps, scenario, carriers, carrierMap, allLinks, volumeDustbinInLiters,
 					secondsServiceTimePerDustbin);
 			break;
 		case berlinCollectedGarbageForOneDay:
 			// MO or DI or MI or DO or FR
-			AbfallUtils.createShipmentsForSelectedDay(districtsWithGarbage, day, garbageDumps, scenario, carriers,
+			abfallUtils.createShipmentsForSelectedDay(districtsWithGarbage, day, garbageDumps, scenario, carriers,
 					carrierMap, allLinks, volumeDustbinInLiters, secondsServiceTimePerDustbin, oneCarrierForOneDistrict);
 			break;
 		default:
@@ -223,10 +267,23 @@ public class Run_Abfall {
 		 * so that you can already have this information, while jsprit and matsim are
 		 * still running.
 		 */
-		AbfallUtils.outputSummaryShipments(scenario, day, carrierMap);
+		abfallUtils.outputSummaryShipments(scenario, day, carrierMap);
 		// jsprit
 
-		AbfallUtils.solveWithJsprit(scenario, carriers, carrierMap, jspritIterations);
+		// the travel time and distance matrices of the carriers are kept in the cache directory, they are reused by the following runs
+		String matrixCacheDirectory = new File(cacheDirectory, "matrixCache").toString();
+		if (congestionEventsFileLocation != null)
+			abfallUtils.setCongestedTravelTimes(CongestedTravelTimes.readOrCreate(matrixCacheDirectory,
+					scenario.getNetwork(), congestionEventsFileLocation, 900, 30 * 3600));
+		// the tour statistics of every carrier are written as soon as it is solved
+		AbfallResultWriter resultWriter = AbfallUtils.createResultWriter(scenario);
+		abfallUtils.setResultWriter(resultWriter);
+		// starting from the previous plans, a fifth of the iterations is sufficient
+		int warmStartIterations = previousCarrierPlansFileLocation != null ? Math.max(1, jspritIterations / 5)
+				: jspritIterations;
+		abfallUtils.solveWithJsprit(scenario, carriers, carrierMap, jspritIterations,
+				jspritThreads, matrixCacheDirectory,
+				previousCarriers, warmStartIterations);
 
 		// final Controler controler = new Controler(scenario);
 		Controler controler = AbfallUtils.prepareControler(scenario);
@@ -238,8 +295,8 @@ public class Run_Abfall {
 		new CarrierPlanXmlWriterV2(carriers)
 				.write(scenario.getConfig().controler().getOutputDirectory() + "/output_CarrierPlans.xml");
 
-		AbfallUtils.outputSummary(districtsWithGarbage, scenario, carrierMap, day, volumeDustbinInLiters,
+		abfallUtils.outputSummary(districtsWithGarbage, scenario, carrierMap, day, volumeDustbinInLiters,
 				secondsServiceTimePerDustbin);
-		AbfallUtils.createResultFile(scenario, carriers);
+		AbfallUtils.closeResultWriter(resultWriter);
 	}
 }
@@ -0,0 +1,172 @@
+package org.matsim.run.wasteCollection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.freight.carrier.CarrierShipment;
+
+/**
+ * Splits the shipments of a carrier into spatial clusters by k-means on the
+ * coordinates of the pickup links, so that large problems can be decomposed
+ * into smaller ones, which are solved independently. The number of clusters is
+ * chosen so that a cluster has about maxShipmentsPerCluster shipments; clusters
+ * which are more than twice as large are split again.
+ */
+final class ShipmentClusters {
+
+	private static final int maxIterations = 100;
+
+	private ShipmentClusters() {
+	}
+
+	/**
+	 * @return the clusters, every shipment is part of exactly one cluster; the
+	 *         result only depends on the order of the shipments and the random
+	 *         number generator
+	 */
+	static List<List<CarrierShipment>> create(Collection<CarrierShipment> shipments, Network network,
+			int maxShipmentsPerCluster, Random random) {
+		List<CarrierShipment> shipmentList = new ArrayList<CarrierShipment>(shipments);
+		double[][] coords = new double[shipmentList.size()][];
+		for (int i = 0; i < shipmentList.size(); i++) {
+			Coord coord = network.getLinks().get(shipmentList.get(i).getFrom()).getCoord();
+			coords[i] = new double[] { coord.getX(), coord.getY() };
+		}
+		List<int[]> clusters = new ArrayList<int[]>();
+		split(createIndices(shipmentList.size()), coords, maxShipmentsPerCluster, random, clusters);
+
+		List<List<CarrierShipment>> result = new ArrayList<List<CarrierShipment>>();
+		for (int[] cluster : clusters) {
+			List<CarrierShipment> clusterShipments = new ArrayList<CarrierShipment>(cluster.length);
+			for (int index : cluster) {
+				clusterShipments.add(shipmentList.get(index));
+			}
+			result.add(clusterShipments);
+		}
+		return result;
+	}
+
+	private static int[] createIndices(int size) {
+		int[] indices = new int[size];
+		for (int i = 0; i < size; i++) {
+			indices[i] = i;
+		}
+		return indices;
+	}
+
+	private static void split(int[] indices, double[][] coords, int maxShipmentsPerCluster, Random random,
+			List<int[]> clusters) {
+		int k = (int) Math.ceil((double) indices.length / maxShipmentsPerCluster);
+		if (k <= 1) {
+			clusters.add(indices);
+			return;
+		}
+		List<int[]> parts = kMeans(indices, coords, k, random);
+		for (int[] part : parts) {
+			// if k-means can not separate the shipments (e.g. all on the same link), the part is kept as it is
+			if (part.length > 2 * maxShipmentsPerCluster && parts.size() > 1) {
+				split(part, coords, maxShipmentsPerCluster, random, clusters);
+			} else {
+				clusters.add(part);
+			}
+		}
+	}
+
+	/**
+	 * Lloyd's algorithm with a k-means++ initialization.
+	 *
+	 * @return the non empty clusters
+	 */
+	private static List<int[]> kMeans(int[] indices, double[][] coords, int k, Random random) {
+		double[][] centers = new double[k][];
+		centers[0] = coords[indices[random.nextInt(indices.length)]].clone();
+		double[] squaredDistances = new double[indices.length];
+		for (int c = 1; c < k; c++) {
+			double sum = 0;
+			for (int i = 0; i < indices.length; i++) {
+				double min = Double.POSITIVE_INFINITY;
+				for (int j = 0; j < c; j++) {
+					min = Math.min(min, squaredDistance(coords[indices[i]], centers[j]));
+				}
+				squaredDistances[i] = min;
+				sum += min;
+			}
+			int next = indices.length - 1;
+			double threshold = random.nextDouble() * sum;
+			for (int i = 0; i < indices.length; i++) {
+				threshold -= squaredDistances[i];
+				if (threshold < 0) {
+					next = i;
+					break;
+				}
+			}
+			centers[c] = coords[indices[next]].clone();
+		}
+
+		int[] assignment = new int[indices.length];
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			boolean changed = iteration == 0;
+			for (int i = 0; i < indices.length; i++) {
+				int nearest = 0;
+				double min = Double.POSITIVE_INFINITY;
+				for (int c = 0; c < k; c++) {
+					double distance = squaredDistance(coords[indices[i]], centers[c]);
+					if (distance < min) {
+						min = distance;
+						nearest = c;
+					}
+				}
+				if (assignment[i] != nearest) {
+					assignment[i] = nearest;
+					changed = true;
+				}
+			}
+			if (!changed) {
+				break;
+			}
+			double[][] sums = new double[k][3];
+			for (int i = 0; i < indices.length; i++) {
+				sums[assignment[i]][0] += coords[indices[i]][0];
+				sums[assignment[i]][1] += coords[indices[i]][1];
+				sums[assignment[i]][2]++;
+			}
+			for (int c = 0; c < k; c++) {
+				if (sums[c][2] > 0) {
+					centers[c][0] = sums[c][0] / sums[c][2];
+					centers[c][1] = sums[c][1] / sums[c][2];
+				}
+			}
+		}
+
+		int[] sizes = new int[k];
+		for (int c : assignment) {
+			sizes[c]++;
+		}
+		int[][] parts = new int[k][];
+		for (int c = 0; c < k; c++) {
+			parts[c] = new int[sizes[c]];
+			sizes[c] = 0;
+		}
+		for (int i = 0; i < indices.length; i++) {
+			parts[assignment[i]][sizes[assignment[i]]++] = indices[i];
+		}
+		List<int[]> nonEmptyParts = new ArrayList<int[]>();
+		for (int[] part : parts) {
+			if (part.length > 0) {
+				nonEmptyParts.add(part);
+			}
+		}
+		return nonEmptyParts;
+	}
+
+	private static double squaredDistance(double[] a, double[] b) {
+		double dx = a[0] - b[0];
+		double dy = a[1] - b[1];
+		return dx * dx + dy * dy;
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.matsim.run.wasteCollection;
+
+/**
+ * Running totals of the tours of one depot: number of tours, collected garbage
+ * and sum, minimum and maximum of the distances and energy consumptions. Only
+ * primitive values are kept, so the memory does not grow with the number of
+ * tours.
+ */
+final class TourStatistics {
+
+	private int numberOfTours = 0;
+	private int garbage = 0;
+	private double distanceSum = 0;
+	private double distanceMin = 0;
+	private double distanceMax = 0;
+	private double energySum = 0;
+	private double energyMin = 0;
+	private double energyMax = 0;
+
+	/**
+	 * @param garbageOfTour the collected garbage in kg
+	 * @param distance      the distance of the tour in km
+	 * @param energy        the energy consumption of the tour in kWh
+	 */
+	void addTour(int garbageOfTour, double distance, double energy) {
+		if (numberOfTours == 0) {
+			distanceMin = distance;
+			distanceMax = distance;
+			energyMin = energy;
+			energyMax = energy;
+		} else {
+			distanceMin = Math.min(distanceMin, distance);
+			distanceMax = Math.max(distanceMax, distance);
+			energyMin = Math.min(energyMin, energy);
+			energyMax = Math.max(energyMax, energy);
+		}
+		numberOfTours++;
+		garbage = garbage + garbageOfTour;
+		distanceSum = distanceSum + distance;
+		energySum = energySum + energy;
+	}
+
+	int getNumberOfTours() {
+		return numberOfTours;
+	}
+
+	int getGarbage() {
+		return garbage;
+	}
+
+	double getDistanceSum() {
+		return distanceSum;
+	}
+
+	double getDistanceMin() {
+		return distanceMin;
+	}
+
+	double getDistanceMax() {
+		return distanceMax;
+	}
+
+	double getDistanceAverage() {
+		return numberOfTours == 0 ? 0 : distanceSum / numberOfTours;
+	}
+
+	double getEnergySum() {
+		return energySum;
+	}
+
+	double getEnergyMin() {
+		return energyMin;
+	}
+
+	double getEnergyMax() {
+		return energyMax;
+	}
+
+	double getEnergyAverage() {
+		return numberOfTours == 0 ? 0 : energySum / numberOfTours;
+	}
+
+}
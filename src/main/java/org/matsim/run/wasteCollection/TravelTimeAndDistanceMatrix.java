@@ -0,0 +1,380 @@
+package org.matsim.run.wasteCollection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.core.router.costcalculators.TravelDisutility;
+import org.matsim.core.router.speedy.LeastCostPathTree;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+
+/**
+ * Travel times and distances between all pairs of a set of links, for one
+ * vehicle type and for every time slice of the day. The values are computed
+ * the way {@link org.matsim.contrib.freight.jsprit.NetworkBasedTransportCosts}
+ * computes them: the path with the least costs (costs per second and per meter
+ * of the vehicle type, capped by its maximum velocity) from the to-node of the
+ * from-link to the from-node of the to-link, plus the to-link itself.
+ * 
+ * The matrix is computed with one least cost path tree per from-link and time
+ * slice, in parallel. As the depots, dumps and garbage links of the districts do
+ * not change between days and runs, {@link #readOrCreate} stores it in a
+ * compact binary file, which is found again by a hash of the network, the
+ * links, the vehicle type and the time slices. Instead of the freespeeds, the
+ * travel times can be taken from {@link CongestedTravelTimes}.
+ * 
+ * The matrix is dense, it needs 8 bytes per pair of links and time slice, so
+ * {@link #readOrCreate} refuses to create matrices above a given size. Pairs
+ * which can not be reached get the finite {@link #UNREACHABLE} travel time and
+ * distance, so that the insertion costs of jsprit stay finite.
+ */
+final class TravelTimeAndDistanceMatrix {
+
+	private static final Logger log = Logger.getLogger(TravelTimeAndDistanceMatrix.class);
+
+	private static final int MAGIC = 0x57434d58;
+	private static final int VERSION = 2;
+
+	/**
+	 * Travel time (sec) and distance (m) of the pairs of links which can not be
+	 * reached. Large enough that jsprit never chooses such a connection if there is
+	 * another one, but finite, so the costs do not become infinite or NaN.
+	 */
+	static final float UNREACHABLE = 1e7f;
+
+	/**
+	 * The largest number of values of one array.
+	 */
+	private static final long MAX_VALUES = Integer.MAX_VALUE - 8;
+
+	private final long key;
+	private final String[] linkIds;
+	private final Map<String, Integer> indexOfLinks;
+	private final double timeSliceWidth;
+	private final int numberOfTimeSlices;
+	private final float[] travelTimes;
+	private final float[] distances;
+
+	private TravelTimeAndDistanceMatrix(long key, String[] linkIds, double timeSliceWidth, int numberOfTimeSlices,
+			float[] travelTimes, float[] distances) {
+		this.key = key;
+		this.linkIds = linkIds;
+		this.indexOfLinks = new HashMap<String, Integer>(linkIds.length * 2);
+		for (int i = 0; i < linkIds.length; i++) {
+			indexOfLinks.put(linkIds[i], i);
+		}
+		this.timeSliceWidth = timeSliceWidth;
+		this.numberOfTimeSlices = numberOfTimeSlices;
+		this.travelTimes = travelTimes;
+		this.distances = distances;
+	}
+
+	/**
+	 * Reads the matrix from the cache directory or, if it is not there, creates
+	 * and stores it.
+	 * 
+	 * @param numberOfTimeSlices 1 for networks which do not change over the day
+	 */
+	static TravelTimeAndDistanceMatrix readOrCreate(String cacheDirectory, Network network,
+			Collection<Id<Link>> links, VehicleType vehicleType, double timeSliceWidth, int numberOfTimeSlices) {
+		return readOrCreate(cacheDirectory, network, hashNetwork(network, timeSliceWidth, numberOfTimeSlices), links,
+				vehicleType, timeSliceWidth, numberOfTimeSlices, null, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Same as {@link #readOrCreate(String, Network, Collection, VehicleType, double, int)},
+	 * but if congested travel times are given, they are used instead of the
+	 * freespeeds of the links, and the matrix is only read or created if it does
+	 * not need more than maxBytes.
+	 * 
+	 * @param networkHash the {@link #hashNetwork} of the network with the same
+	 *                    time slices, computed once for all matrices of a run
+	 * @return the matrix, or null if it would need more than maxBytes
+	 */
+	static TravelTimeAndDistanceMatrix readOrCreate(String cacheDirectory, Network network, long networkHash,
+			Collection<Id<Link>> links, VehicleType vehicleType, double timeSliceWidth, int numberOfTimeSlices,
+			CongestedTravelTimes congestedTravelTimes, long maxBytes) {
+		String[] linkIds = links.stream().map(Id::toString).distinct().sorted().toArray(String[]::new);
+		long values = getNumberOfValues(linkIds.length, numberOfTimeSlices);
+		long bytes = 2 * Float.BYTES * values;
+		if (values > MAX_VALUES || bytes > maxBytes) {
+			log.warn("The travel time and distance matrix with " + linkIds.length + " links and " + numberOfTimeSlices
+					+ " time slices would need " + bytes / (1024 * 1024) + " MB, more than the maximum of "
+					+ maxBytes / (1024 * 1024) + " MB, so it is not created.");
+			return null;
+		}
+		long key = hashKey(networkHash, linkIds, vehicleType, timeSliceWidth, numberOfTimeSlices);
+		if (congestedTravelTimes != null) {
+			key = 31 * key + congestedTravelTimes.getKey();
+		}
+		File file = new File(cacheDirectory, "matrix_" + Long.toHexString(networkHash) + "_" + Long.toHexString(key) + ".bin.gz");
+		if (file.exists()) {
+			try {
+				TravelTimeAndDistanceMatrix matrix = read(file);
+				if (matrix.key == key && Arrays.equals(matrix.linkIds, linkIds)) {
+					log.info("Read travel time and distance matrix with " + linkIds.length + " links from " + file);
+					return matrix;
+				}
+				log.warn(file + " does not fit to the network and links, the matrix is created again.");
+			} catch (IOException e) {
+				log.warn("Could not read " + file + ", the matrix is created again.", e);
+			}
+		}
+		TravelTimeAndDistanceMatrix matrix = create(network, linkIds, vehicleType, timeSliceWidth, numberOfTimeSlices, key,
+				congestedTravelTimes);
+		try {
+			file.getParentFile().mkdirs();
+			matrix.write(file);
+			log.info("Wrote travel time and distance matrix to " + file);
+		} catch (IOException e) {
+			log.warn("Could not write " + file, e);
+		}
+		return matrix;
+	}
+
+	private static TravelTimeAndDistanceMatrix create(Network network, String[] linkIds, VehicleType vehicleType,
+			double timeSliceWidth, int numberOfTimeSlices, long key, CongestedTravelTimes congestedTravelTimes) {
+		log.info("Creating travel time and distance matrix with " + linkIds.length + " links and "
+				+ numberOfTimeSlices + " time slices...");
+		List<Link> links = new ArrayList<Link>(linkIds.length);
+		for (String linkId : linkIds) {
+			Link link = network.getLinks().get(Id.createLinkId(linkId));
+			if (link == null) {
+				throw new IllegalArgumentException("Link " + linkId + " is not part of the network.");
+			}
+			links.add(link);
+		}
+		int n = links.size();
+		// at most MAX_VALUES, see readOrCreate
+		int values = (int) getNumberOfValues(n, numberOfTimeSlices);
+		float[] travelTimes = new float[values];
+		float[] distances = new float[values];
+		AtomicLong unreachablePairs = new AtomicLong();
+
+		TravelTime travelTime = createTravelTime(vehicleType, congestedTravelTimes);
+		TravelDisutility travelDisutility = createTravelDisutility(vehicleType, travelTime);
+		SpeedyGraph graph = new SpeedyGraph(network);
+		// the trees are not thread-safe, the graph is
+		ThreadLocal<LeastCostPathTree> trees = ThreadLocal
+				.withInitial(() -> new LeastCostPathTree(graph, travelTime, travelDisutility));
+
+		IntStream.range(0, numberOfTimeSlices * n).parallel().forEach(sliceAndFrom -> {
+			int slice = sliceAndFrom / n;
+			int from = sliceAndFrom % n;
+			double departureTime = slice * timeSliceWidth;
+			Link fromLink = links.get(from);
+			LeastCostPathTree tree = trees.get();
+			tree.calculate(fromLink.getToNode().getId().index(), departureTime, null, null);
+			for (int to = 0; to < n; to++) {
+				int index = (int) ((long) sliceAndFrom * n + to);
+				Link toLink = links.get(to);
+				if (from == to) {
+					continue;
+				}
+				int toNode = toLink.getFromNode().getId().index();
+				if (Double.isInfinite(tree.getCost(toNode))) {
+					travelTimes[index] = UNREACHABLE;
+					distances[index] = UNREACHABLE;
+					unreachablePairs.incrementAndGet();
+					continue;
+				}
+				double arrivalTime = tree.getTime(toNode).seconds();
+				travelTimes[index] = (float) (arrivalTime - departureTime
+						+ travelTime.getLinkTravelTime(toLink, arrivalTime, null, null));
+				distances[index] = (float) (tree.getDistance(toNode) + toLink.getLength());
+			}
+		});
+		if (unreachablePairs.get() > 0) {
+			log.warn(unreachablePairs.get() + " pairs of links and time slices can not be reached, they get a travel time and distance of " + UNREACHABLE);
+		}
+		log.info("Finished creating travel time and distance matrix.");
+		return new TravelTimeAndDistanceMatrix(key, linkIds, timeSliceWidth, numberOfTimeSlices, travelTimes, distances);
+	}
+
+	private static TravelTime createTravelTime(VehicleType vehicleType, CongestedTravelTimes congestedTravelTimes) {
+		double maximumVelocity = vehicleType.getMaximumVelocity();
+		return new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				if (congestedTravelTimes != null) {
+					return Math.max(congestedTravelTimes.getLinkTravelTime(link, time, null, null),
+							link.getLength() / maximumVelocity);
+				}
+				return link.getLength() / Math.min(link.getFreespeed(time), maximumVelocity);
+			}
+		};
+	}
+
+	private static TravelDisutility createTravelDisutility(VehicleType vehicleType, TravelTime travelTime) {
+		double costsPerSecond = valueOrZero(vehicleType.getCostInformation().getCostsPerSecond());
+		double costsPerMeter = valueOrZero(vehicleType.getCostInformation().getCostsPerMeter());
+		// without any costs per second or meter, the fastest path is taken
+		double costsPerSecondOfPath = costsPerSecond == 0 && costsPerMeter == 0 ? 1 : costsPerSecond;
+		return new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return costsPerSecondOfPath * travelTime.getLinkTravelTime(link, time, person, vehicle)
+						+ costsPerMeter * link.getLength();
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return getLinkTravelDisutility(link, 0, null, null);
+			}
+		};
+	}
+
+	private static double valueOrZero(Double value) {
+		return value == null ? 0 : value;
+	}
+
+	boolean contains(String linkId) {
+		return indexOfLinks.containsKey(linkId);
+	}
+
+	double getTravelTime(String fromLinkId, String toLinkId, double departureTime) {
+		return travelTimes[getIndex(fromLinkId, toLinkId, departureTime)];
+	}
+
+	double getDistance(String fromLinkId, String toLinkId, double departureTime) {
+		return distances[getIndex(fromLinkId, toLinkId, departureTime)];
+	}
+
+	private int getIndex(String fromLinkId, String toLinkId, double departureTime) {
+		Integer from = indexOfLinks.get(fromLinkId);
+		Integer to = indexOfLinks.get(toLinkId);
+		if (from == null || to == null) {
+			throw new IllegalArgumentException("Link " + (from == null ? fromLinkId : toLinkId) + " is not part of the matrix.");
+		}
+		int slice = Math.max(0, Math.min((int) (departureTime / timeSliceWidth), numberOfTimeSlices - 1));
+		// below MAX_VALUES, see readOrCreate
+		return (int) (((long) slice * linkIds.length + from) * linkIds.length + to);
+	}
+
+	private static long getNumberOfValues(int numberOfLinks, int numberOfTimeSlices) {
+		return (long) numberOfTimeSlices * numberOfLinks * numberOfLinks;
+	}
+
+	private void write(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(key);
+			out.writeDouble(timeSliceWidth);
+			out.writeInt(numberOfTimeSlices);
+			out.writeInt(linkIds.length);
+			for (String linkId : linkIds) {
+				out.writeUTF(linkId);
+			}
+			for (float value : travelTimes) {
+				out.writeFloat(value);
+			}
+			for (float value : distances) {
+				out.writeFloat(value);
+			}
+		}
+	}
+
+	private static TravelTimeAndDistanceMatrix read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unknown file format.");
+			}
+			long key = in.readLong();
+			double timeSliceWidth = in.readDouble();
+			int numberOfTimeSlices = in.readInt();
+			String[] linkIds = new String[in.readInt()];
+			for (int i = 0; i < linkIds.length; i++) {
+				linkIds[i] = in.readUTF();
+			}
+			long values = getNumberOfValues(linkIds.length, numberOfTimeSlices);
+			if (values > MAX_VALUES) {
+				throw new IOException("The matrix is too large.");
+			}
+			float[] travelTimes = new float[(int) values];
+			for (int i = 0; i < travelTimes.length; i++) {
+				travelTimes[i] = in.readFloat();
+			}
+			float[] distances = new float[travelTimes.length];
+			for (int i = 0; i < distances.length; i++) {
+				distances[i] = in.readFloat();
+			}
+			return new TravelTimeAndDistanceMatrix(key, linkIds, timeSliceWidth, numberOfTimeSlices, travelTimes,
+					distances);
+		}
+	}
+
+	/**
+	 * Hash of the network, including the freespeeds at the beginning of every
+	 * time slice, so network change events are taken into account.
+	 */
+	static long hashNetwork(Network network, double timeSliceWidth, int numberOfTimeSlices) {
+		long hash = 1125899906842597L;
+		for (Link link : network.getLinks().values()) {
+			hash = 31 * hash + link.getId().toString().hashCode();
+			hash = 31 * hash + link.getFromNode().getId().toString().hashCode();
+			hash = 31 * hash + link.getToNode().getId().toString().hashCode();
+			hash = 31 * hash + Double.hashCode(link.getLength());
+			hash = 31 * hash + link.getAllowedModes().hashCode();
+			for (int slice = 0; slice < numberOfTimeSlices; slice++) {
+				hash = 31 * hash + Double.hashCode(link.getFreespeed(slice * timeSliceWidth));
+			}
+		}
+		return hash;
+	}
+
+	private static long hashKey(long networkHash, String[] linkIds, VehicleType vehicleType, double timeSliceWidth,
+			int numberOfTimeSlices) {
+		long hash = networkHash;
+		hash = 31 * hash + Arrays.hashCode(linkIds);
+		hash = 31 * hash + vehicleType.getId().toString().hashCode();
+		hash = 31 * hash + Double.hashCode(vehicleType.getMaximumVelocity());
+		hash = 31 * hash + Double.hashCode(valueOrZero(vehicleType.getCostInformation().getCostsPerSecond()));
+		hash = 31 * hash + Double.hashCode(valueOrZero(vehicleType.getCostInformation().getCostsPerMeter()));
+		hash = 31 * hash + Double.hashCode(timeSliceWidth);
+		hash = 31 * hash + numberOfTimeSlices;
+		return hash;
+	}
+
+	/**
+	 * @return the links of the carrier's vehicles, shipments and services
+	 */
+	static Collection<Id<Link>> getLinksOfCarrier(Carrier carrier) {
+		Collection<Id<Link>> links = new LinkedHashSet<Id<Link>>();
+		carrier.getCarrierCapabilities().getCarrierVehicles().values().forEach(vehicle -> links.add(vehicle.getLocation()));
+		carrier.getShipments().values().forEach(shipment -> {
+			links.add(shipment.getFrom());
+			links.add(shipment.getTo());
+		});
+		carrier.getServices().values().forEach(service -> links.add(service.getLocationLinkId()));
+		return links;
+	}
+
+}
@@ -0,0 +1,238 @@
+package org.matsim.run.wasteCollection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.contrib.freight.carrier.CarrierPlan;
+import org.matsim.contrib.freight.carrier.ScheduledTour;
+import org.matsim.contrib.freight.carrier.Tour.Delivery;
+import org.matsim.contrib.freight.carrier.Tour.Pickup;
+import org.matsim.contrib.freight.carrier.Tour.TourElement;
+
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Capacity;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.driver.DriverImpl;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+/**
+ * Creates an initial solution for jsprit from the plan of a previous run
+ * (e.g. read with the CarrierPlanXmlReader from the output_CarrierPlans.xml of
+ * last week). The tours of the previous plan are transferred to the current
+ * problem and repaired:
+ * <ul>
+ * <li>shipments, which do not exist any more, are removed from the tours</li>
+ * <li>shipments, which do not fit into the vehicle any more (as their size has
+ * changed), are removed from the tours</li>
+ * <li>tours of vehicles, which do not exist any more, and tours, which violate
+ * a time window, are dropped</li>
+ * </ul>
+ * All shipments, which are not part of a repaired tour (incl. the new ones), are
+ * left unassigned and are inserted by the ruin and recreate steps of the
+ * algorithm. The shipments are matched by their ids, which are derived from the
+ * garbage links.
+ * <p>
+ * The cost of the initial solution has to be comparable to the costs of the
+ * solutions found by the algorithm. Therefore, the algorithm has to use the
+ * objective function of {@link #createObjectiveFunction(VehicleRoutingProblem)}
+ * when it is started with such a solution. The AbfallUtils use it for all
+ * carriers, so that the costs of warm and cold started carriers are comparable.
+ */
+final class WarmStartSolution {
+
+	private static final Logger log = Logger.getLogger(WarmStartSolution.class);
+
+	private WarmStartSolution() {
+	}
+
+	/**
+	 * @return the repaired solution or null, if no shipment of the previous plan
+	 *         could be used
+	 */
+	static VehicleRoutingProblemSolution create(VehicleRoutingProblem problem, CarrierPlan previousPlan,
+			SolutionCostCalculator objectiveFunction) {
+		Map<String, Vehicle> vehicles = new HashMap<String, Vehicle>();
+		for (Vehicle vehicle : problem.getVehicles()) {
+			vehicles.put(vehicle.getId(), vehicle);
+		}
+		Set<Vehicle> usedVehicles = new HashSet<Vehicle>();
+		Set<Job> assignedJobs = new HashSet<Job>();
+		List<VehicleRoute> routes = new ArrayList<VehicleRoute>();
+
+		for (ScheduledTour scheduledTour : previousPlan.getScheduledTours()) {
+			Vehicle vehicle = vehicles.get(scheduledTour.getVehicle().getId().toString());
+			if (vehicle == null) {
+				continue;
+			}
+			// a vehicle of a finite fleet can only be used once
+			if (problem.getFleetSize() == VehicleRoutingProblem.FleetSize.FINITE && usedVehicles.contains(vehicle)) {
+				continue;
+			}
+			VehicleRoute route = createRoute(problem, vehicle, scheduledTour, assignedJobs);
+			if (route == null) {
+				continue;
+			}
+			if (Double.isInfinite(getRouteCosts(problem, route))) {
+				log.info("The repaired tour of vehicle " + vehicle.getId() + " violates a time window, it is dropped.");
+				continue;
+			}
+			usedVehicles.add(vehicle);
+			routes.add(route);
+			for (TourActivity activity : route.getActivities()) {
+				assignedJobs.add(((TourActivity.JobActivity) activity).getJob());
+			}
+		}
+		if (routes.isEmpty()) {
+			return null;
+		}
+
+		List<Job> unassignedJobs = new ArrayList<Job>();
+		for (Job job : problem.getJobs().values()) {
+			if (!assignedJobs.contains(job)) {
+				unassignedJobs.add(job);
+			}
+		}
+		log.info("Warm start: " + assignedJobs.size() + " of " + problem.getJobs().size()
+				+ " shipments are taken from the previous plan, " + unassignedJobs.size() + " have to be inserted.");
+		VehicleRoutingProblemSolution solution = new VehicleRoutingProblemSolution(routes, unassignedJobs, 0.);
+		solution.setCost(objectiveFunction.getCosts(solution));
+		return solution;
+	}
+
+	/**
+	 * Transfers the shipments of the previous tour, which still exist in the
+	 * problem, are not yet assigned and fit into the vehicle.
+	 *
+	 * @return the route or null, if no shipment is left or the tour is incomplete
+	 */
+	private static VehicleRoute createRoute(VehicleRoutingProblem problem, Vehicle vehicle,
+			ScheduledTour scheduledTour, Set<Job> assignedJobs) {
+		Capacity capacity = vehicle.getType().getCapacityDimensions();
+		Capacity load = Capacity.Builder.newInstance().build();
+		Set<Shipment> pickedUp = new HashSet<Shipment>();
+		VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(vehicle, DriverImpl.noDriver())
+				.setJobActivityFactory(problem.getJobActivityFactory());
+		boolean empty = true;
+		for (TourElement element : scheduledTour.getTour().getTourElements()) {
+			if (element instanceof Pickup) {
+				Shipment shipment = getShipment(problem, ((Pickup) element).getShipment().getId().toString());
+				if (shipment == null || assignedJobs.contains(shipment) || pickedUp.contains(shipment)) {
+					continue;
+				}
+				Capacity newLoad = Capacity.addup(load, shipment.getSize());
+				if (!newLoad.isLessOrEqual(capacity)) {
+					continue;
+				}
+				load = newLoad;
+				pickedUp.add(shipment);
+				routeBuilder.addPickup(shipment);
+				empty = false;
+			} else if (element instanceof Delivery) {
+				Shipment shipment = getShipment(problem, ((Delivery) element).getShipment().getId().toString());
+				if (shipment == null || !pickedUp.remove(shipment)) {
+					continue;
+				}
+				load = Capacity.subtract(load, shipment.getSize());
+				routeBuilder.addDelivery(shipment);
+			}
+		}
+		if (empty || !pickedUp.isEmpty()) {
+			// without any shipment or with a pickup without delivery, the tour is not transferred
+			return null;
+		}
+		return routeBuilder.build();
+	}
+
+	private static Shipment getShipment(VehicleRoutingProblem problem, String id) {
+		Job job = problem.getJobs().get(id);
+		return job instanceof Shipment ? (Shipment) job : null;
+	}
+
+	/**
+	 * The costs are the fixed costs of the used vehicles plus the transport and
+	 * activity costs of the routes, as in the default objective function of
+	 * {@link Jsprit}. Every unassigned shipment is penalized with twice the costs of
+	 * the most expensive shipment served by a vehicle of its own, so serving a
+	 * shipment is always better than leaving it unassigned.
+	 */
+	static SolutionCostCalculator createObjectiveFunction(VehicleRoutingProblem problem) {
+		double maxCostsOfOneShipment = 0.;
+		Vehicle vehicle = problem.getVehicles().iterator().next();
+		for (Job job : problem.getJobs().values()) {
+			if (job instanceof Shipment) {
+				VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, DriverImpl.noDriver())
+						.setJobActivityFactory(problem.getJobActivityFactory()).addPickup((Shipment) job)
+						.addDelivery((Shipment) job).build();
+				double costs = getRouteCosts(problem, route, false);
+				maxCostsOfOneShipment = Math.max(maxCostsOfOneShipment, costs);
+			}
+		}
+		final double penaltyPerUnassignedJob = 2 * maxCostsOfOneShipment;
+		return new SolutionCostCalculator() {
+			@Override
+			public double getCosts(VehicleRoutingProblemSolution solution) {
+				double costs = 0.;
+				for (VehicleRoute route : solution.getRoutes()) {
+					costs += getRouteCosts(problem, route, false);
+				}
+				return costs + penaltyPerUnassignedJob * solution.getUnassignedJobs().size();
+			}
+		};
+	}
+
+	/**
+	 * @return the costs of the route or infinity, if a time window is violated
+	 */
+	static double getRouteCosts(VehicleRoutingProblem problem, VehicleRoute route) {
+		return getRouteCosts(problem, route, true);
+	}
+
+	private static double getRouteCosts(VehicleRoutingProblem problem, VehicleRoute route,
+			boolean checkTimeWindows) {
+		VehicleRoutingTransportCosts transportCosts = problem.getTransportCosts();
+		VehicleRoutingActivityCosts activityCosts = problem.getActivityCosts();
+		Vehicle vehicle = route.getVehicle();
+		Driver driver = route.getDriver();
+
+		double costs = vehicle.getType().getVehicleCostParams().fix;
+		double time = route.getDepartureTime();
+		Location location = route.getStart().getLocation();
+		for (TourActivity activity : route.getActivities()) {
+			costs += transportCosts.getTransportCost(location, activity.getLocation(), time, driver, vehicle);
+			double arrivalTime = time
+					+ transportCosts.getTransportTime(location, activity.getLocation(), time, driver, vehicle);
+			double startTime = Math.max(arrivalTime, activity.getTheoreticalEarliestOperationStartTime());
+			if (checkTimeWindows && startTime > activity.getTheoreticalLatestOperationStartTime()) {
+				return Double.POSITIVE_INFINITY;
+			}
+			costs += activityCosts.getActivityCost(activity, arrivalTime, driver, vehicle);
+			time = startTime + activity.getOperationTime();
+			location = activity.getLocation();
+		}
+		if (vehicle.isReturnToDepot()) {
+			costs += transportCosts.getTransportCost(location, vehicle.getEndLocation(), time, driver, vehicle);
+			double arrivalTime = time
+					+ transportCosts.getTransportTime(location, vehicle.getEndLocation(), time, driver, vehicle);
+			if (checkTimeWindows && arrivalTime > vehicle.getLatestArrival()) {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+		return costs;
+	}
+
+}
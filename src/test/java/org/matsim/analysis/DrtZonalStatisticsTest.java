@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.drt.passenger.events.DrtRequestSubmittedEvent;
+import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
+import org.matsim.contrib.dvrp.optimizer.Request;
+import org.matsim.contrib.dvrp.passenger.PassengerDroppedOffEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerPickedUpEvent;
+import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class DrtZonalStatisticsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public final void testSyntheticEvents() throws IOException {
+		// the coord of a link is its centre; two of the cells have negative coordinates
+		Network network = NetworkUtils.createNetwork();
+		addLink(network, "west", new Coord(-1800., -1500.), new Coord(-1200., -1500.));
+		addLink(network, "northWest", new Coord(-800., 1500.), new Coord(-200., 1500.));
+		addLink(network, "east", new Coord(200., 500.), new Coord(800., 500.));
+
+		Id<Vehicle> drtVehicle = Id.create("drt_1", Vehicle.class);
+		DrtZonalStatistics statistics = new DrtZonalStatistics(network, Collections.singletonList(drtVehicle), "drt",
+				1000., 36);
+
+		Id<Request> pickedUp = Id.create("pickedUp", Request.class);
+		Id<Request> rejected = Id.create("rejected", Request.class);
+		Id<Person> person1 = Id.createPersonId("person1");
+		Id<Person> person2 = Id.createPersonId("person2");
+		Id<DvrpVehicle> dvrpVehicle = Id.create(drtVehicle, DvrpVehicle.class);
+		statistics.handleEvent(new DrtRequestSubmittedEvent(100., "drt", pickedUp, person1, Id.createLinkId("west"),
+				Id.createLinkId("east"), 600., 3000.));
+		statistics.handleEvent(new DrtRequestSubmittedEvent(200., "drt", rejected, person2, Id.createLinkId("northWest"),
+				Id.createLinkId("east"), 300., 2000.));
+		statistics.handleEvent(new PassengerRequestRejectedEvent(250., "drt", rejected, person2, "no_insertion_found"));
+		// a rejection of another drt mode with the same request id
+		statistics.handleEvent(new PassengerRequestRejectedEvent(300., "drt2", pickedUp, person1, "no_insertion_found"));
+		statistics.handleEvent(new PassengerPickedUpEvent(400., "drt", pickedUp, person1, dvrpVehicle));
+		// the drt vehicle with one passenger and a car, which is not counted
+		statistics.handleEvent(new LinkEnterEvent(500., drtVehicle, Id.createLinkId("northWest")));
+		statistics.handleEvent(new LinkEnterEvent(600., Id.create("car_1", Vehicle.class), Id.createLinkId("northWest")));
+		statistics.handleEvent(new PassengerDroppedOffEvent(700., "drt", pickedUp, person1, dvrpVehicle));
+		// empty, in the second hour
+		statistics.handleEvent(new LinkEnterEvent(3700., drtVehicle, Id.createLinkId("east")));
+
+		String file = utils.getOutputDirectory() + "drt_zonal_statistics.csv";
+		statistics.write(file);
+
+		List<String> rows = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(file)) {
+			Assert.assertEquals("x;y;hour;requestsByOrigin;requestsByDestination;rejections;pickUps;meanWaitingTime;"
+					+ "drtVehicleLinkEnters;meanOccupancy", reader.readLine());
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				rows.add(line);
+			}
+		}
+		// the order of the cells depends on the order of the links
+		Collections.sort(rows);
+		List<String> expectedRows = new ArrayList<>(Arrays.asList(
+				"-1500;-1500;0;1;0;0;1;300.0;0;0.000",
+				"-500;1500;0;1;0;1;0;0.0;1;1.000",
+				"500;500;0;0;2;0;0;0.0;0;0.000",
+				"500;500;1;0;0;0;0;0.0;1;0.000"));
+		Collections.sort(expectedRows);
+		Assert.assertEquals(expectedRows, rows);
+	}
+
+	private static void addLink(Network network, String id, Coord from, Coord to) {
+		Node fromNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_from"), from);
+		Node toNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_to"), to);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(id), fromNode, toNode, 600., 10., 1000., 1.);
+	}
+
+}
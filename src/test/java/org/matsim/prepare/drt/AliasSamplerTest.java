@@ -0,0 +1,54 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.prepare.drt;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AliasSamplerTest {
+
+	@Test
+	public final void testFrequenciesFollowWeights() {
+		List<Pair<String, Double>> weights = Arrays.asList(new Pair<>("a", 1.), new Pair<>("b", 0.), new Pair<>("c", 3.), new Pair<>("d", 6.));
+		AliasSampler<String> sampler = new AliasSampler<>(weights);
+		Random random = new Random(4711);
+
+		int draws = 100000;
+		int[] counts = new int[weights.size()];
+		for (int i = 0; i < draws; i++) {
+			counts[sampler.sample(random).charAt(0) - 'a']++;
+		}
+
+		Assert.assertEquals(0.1, counts[0] / (double) draws, 0.01);
+		Assert.assertEquals(0, counts[1]);
+		Assert.assertEquals(0.3, counts[2] / (double) draws, 0.01);
+		Assert.assertEquals(0.6, counts[3] / (double) draws, 0.01);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testNoPositiveWeight() {
+		new AliasSampler<>(Arrays.asList(new Pair<>("a", 0.), new Pair<>("b", 0.)));
+	}
+
+}
@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.prepare.drt;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.prepare.drt.DrtFleetSizeEstimator.Request;
+
+public class DrtFleetSizeEstimatorTest {
+
+	/**
+	 * A line of 11 nodes, 1000m apart, with links in both directions and 100s free speed travel time per link.
+	 */
+	private static Network createLine() {
+		Network network = NetworkUtils.createNetwork();
+		for (int i = 0; i <= 10; i++) {
+			network.addNode(network.getFactory().createNode(Id.createNodeId(i), new Coord(i * 1000., 0.)));
+		}
+		for (int i = 0; i < 10; i++) {
+			addLink(network, i, i + 1);
+			addLink(network, i + 1, i);
+		}
+		return network;
+	}
+
+	private static void addLink(Network network, int from, int to) {
+		Node fromNode = network.getNodes().get(Id.createNodeId(from));
+		Node toNode = network.getNodes().get(Id.createNodeId(to));
+		Link link = network.getFactory().createLink(Id.createLinkId(from + "_" + to), fromNode, toNode);
+		link.setLength(1000.);
+		link.setFreespeed(10.);
+		network.addLink(link);
+	}
+
+	private static Request request(String fromLink, String toLink, double time) {
+		return new Request(Id.createLinkId(fromLink), Id.createLinkId(toLink), time);
+	}
+
+	@Test
+	public final void testSimultaneousRequestsArePooled() {
+		DrtFleetSizeEstimator estimator = new DrtFleetSizeEstimator(createLine(), 500.);
+		List<Request> requests = Arrays.asList(request("0_1", "9_10", 0.), request("0_1", "9_10", 0.));
+
+		Assert.assertEquals(1, estimator.estimateFleetSize(requests, 4, 300., 1.7, 120., 60.));
+		Assert.assertEquals(2, estimator.estimateFleetSize(requests, 1, 300., 1.7, 120., 60.));
+	}
+
+	@Test
+	public final void testVehicleIsReusedForLaterRequest() {
+		DrtFleetSizeEstimator estimator = new DrtFleetSizeEstimator(createLine(), 500.);
+		// the first drop off is at the 10th node at 960s, where the second request starts
+		List<Request> requests = Arrays.asList(request("0_1", "9_10", 0.), request("9_10", "1_0", 2000.));
+		Assert.assertEquals(1, estimator.estimateFleetSize(requests, 1, 300., 1.7, 120., 60.));
+
+		// too far away from the first drop off
+		requests = Arrays.asList(request("0_1", "9_10", 0.), request("0_1", "9_10", 2000.));
+		Assert.assertEquals(2, estimator.estimateFleetSize(requests, 1, 300., 1.7, 120., 60.));
+	}
+
+}
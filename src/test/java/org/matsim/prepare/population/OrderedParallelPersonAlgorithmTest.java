@@ -0,0 +1,53 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.prepare.population;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+
+public class OrderedParallelPersonAlgorithmTest {
+
+	@Test
+	public final void testOrderIsKeptAndNullsAreDropped() {
+		List<Id<Person>> output = new ArrayList<>();
+		// 25 persons with batches of 10, so the last batch is only passed on by close()
+		try (OrderedParallelPersonAlgorithm algorithm = new OrderedParallelPersonAlgorithm(
+				person -> Integer.parseInt(person.getId().toString()) % 3 == 0 ? null : person,
+				person -> output.add(person.getId()), 10)) {
+			for (int i = 0; i < 25; i++) {
+				algorithm.run(PopulationUtils.getFactory().createPerson(Id.createPersonId(i)));
+			}
+		}
+
+		List<Id<Person>> expected = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			if (i % 3 != 0) {
+				expected.add(Id.createPersonId(i));
+			}
+		}
+		Assert.assertEquals(expected, output);
+	}
+
+}
@@ -0,0 +1,56 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.prepare.population;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+public class StreamingPopulationWriterWithAttributesTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public final void testAttributesAreWritten() {
+		String file = utils.getOutputDirectory() + "plans.xml.gz";
+		Attributes inputAttributes = PopulationUtils.createPopulation(ConfigUtils.createConfig()).getAttributes();
+		try (StreamingPopulationWriterWithAttributes writer = new StreamingPopulationWriterWithAttributes(file,
+				inputAttributes, "EPSG:31468")) {
+			// set after the writer is created, as by a population reader before the first person
+			inputAttributes.putAttribute("description", "test population");
+			for (int i = 0; i < 3; i++) {
+				writer.accept(PopulationUtils.getFactory().createPerson(Id.createPersonId(i)));
+			}
+		}
+
+		Population population = PopulationUtils.readPopulation(file);
+		Assert.assertEquals(3, population.getPersons().size());
+		Assert.assertEquals("EPSG:31468", population.getAttributes().getAttribute("coordinateReferenceSystem"));
+		Assert.assertEquals("test population", population.getAttributes().getAttribute("description"));
+	}
+
+}
@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Tests the hash based population sample of {@link DownsamplingPopulation}.
+ */
+public class DownsamplingPopulationTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils() ;
+
+	@Test
+	public final void testSampleIsDeterministicWhenReading() {
+		String plansFile = utils.getOutputDirectory() + "plans.xml.gz";
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		for (int i = 0; i < 10000; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.createPersonId(100000000 + i * 100 + 1)));
+		}
+		new PopulationWriter(population).write(plansFile);
+
+		Set<Id<Person>> firstSample = readSample(plansFile, 0.1);
+		Set<Id<Person>> secondSample = readSample(plansFile, 0.1);
+		Assert.assertEquals("Wrong sampled fraction", 0.1, firstSample.size() / 10000., 0.01);
+		Assert.assertEquals("Two reads of the same file give different samples", firstSample, secondSample);
+	}
+
+	private static Set<Id<Person>> readSample(String plansFile, double sample) {
+		MutableScenario scenario = ScenarioUtils.createMutableScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		DownsamplingPopulation downsamplingPopulation = new DownsamplingPopulation(population, sample);
+		scenario.setPopulation(downsamplingPopulation);
+		new PopulationReader(scenario).readFile(plansFile);
+		Assert.assertEquals(10000, downsamplingPopulation.getParsedPersons());
+		return new HashSet<>(population.getPersons().keySet());
+	}
+
+	@Test
+	public final void testSampleSize() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		DownsamplingPopulation downsamplingPopulation = new DownsamplingPopulation(population, 0.1);
+		for (int i = 0; i < 100000; i++) {
+			downsamplingPopulation.addPerson(population.getFactory().createPerson(Id.createPersonId(100000000 + i * 100 + 1)));
+		}
+		Assert.assertEquals(100000, downsamplingPopulation.getParsedPersons());
+		Assert.assertEquals("Wrong sample size", 10000., population.getPersons().size(), 500.);
+
+		for (Person person : population.getPersons().values()) {
+			Assert.assertTrue(DownsamplingPopulation.isInSample(person.getId(), 0.1));
+		}
+	}
+
+}
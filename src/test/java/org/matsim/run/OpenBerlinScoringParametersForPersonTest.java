@@ -0,0 +1,163 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.config.groups.ScenarioConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scoring.functions.CharyparNagelActivityScoring;
+import org.matsim.core.scoring.functions.ScoringParameters;
+import org.matsim.core.scoring.functions.ScoringParametersForPerson;
+import org.matsim.pt.config.TransitConfigGroup;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+import playground.vsp.scoring.IncomeDependentUtilityOfMoneyPersonScoringParameters;
+
+/**
+ * Tests that the derived activity parameters of {@link OpenBerlinScoringParametersForPerson} are the ones formerly
+ * generated in the config, and that they give the same scores.
+ */
+public class OpenBerlinScoringParametersForPersonTest {
+
+	@Test
+	public final void testDerivedActivityParams() {
+		ActivityParams work = OpenBerlinScoringParametersForPerson.createActivityParams("work_3600.0");
+		Assert.assertEquals(3600., work.getTypicalDuration().seconds(), 0.);
+		Assert.assertEquals(6. * 3600., work.getOpeningTime().seconds(), 0.);
+		Assert.assertEquals(20. * 3600., work.getClosingTime().seconds(), 0.);
+
+		ActivityParams leisure = OpenBerlinScoringParametersForPerson.createActivityParams("leisure_97200.0");
+		Assert.assertEquals(97200., leisure.getTypicalDuration().seconds(), 0.);
+		Assert.assertEquals(27. * 3600., leisure.getClosingTime().seconds(), 0.);
+
+		ActivityParams home = OpenBerlinScoringParametersForPerson.createActivityParams("home_600.0");
+		Assert.assertEquals(600., home.getTypicalDuration().seconds(), 0.);
+		Assert.assertTrue(home.getOpeningTime().isUndefined());
+
+		Assert.assertNull(OpenBerlinScoringParametersForPerson.createActivityParams("freight"));
+		Assert.assertNull(OpenBerlinScoringParametersForPerson.createActivityParams("pt interaction"));
+		Assert.assertNull(OpenBerlinScoringParametersForPerson.createActivityParams("work_"));
+	}
+
+	@Test
+	public final void testSameScoresAsGeneratedActivityParams() {
+		Config eagerConfig = ConfigUtils.createConfig();
+		// the activity parameters as formerly generated in RunBerlinScenario.prepareConfig
+		for ( long ii = 600 ; ii <= 97200; ii+=600 ) {
+			eagerConfig.planCalcScore().addActivityParams( new ActivityParams( "home_" + ii + ".0" ).setTypicalDuration( ii ) );
+			eagerConfig.planCalcScore().addActivityParams( new ActivityParams( "work_" + ii + ".0" ).setTypicalDuration( ii ).setOpeningTime(6. * 3600. ).setClosingTime(20. * 3600. ) );
+			eagerConfig.planCalcScore().addActivityParams( new ActivityParams( "leisure_" + ii + ".0" ).setTypicalDuration( ii ).setOpeningTime(9. * 3600. ).setClosingTime(27. * 3600. ) );
+			eagerConfig.planCalcScore().addActivityParams( new ActivityParams( "shopping_" + ii + ".0" ).setTypicalDuration( ii ).setOpeningTime(8. * 3600. ).setClosingTime(20. * 3600. ) );
+			eagerConfig.planCalcScore().addActivityParams( new ActivityParams( "other_" + ii + ".0" ).setTypicalDuration( ii ) );
+		}
+		Config lazyConfig = ConfigUtils.createConfig();
+		int lazyActivityParams = lazyConfig.planCalcScore().getActivityParams().size();
+
+		Population population = PopulationUtils.createPopulation(lazyConfig);
+		addPerson(population, "1", 2000., "home_43200.0", "work_28800.0", "shopping_1800.0", "home_43200.0");
+		addPerson(population, "2", 4000., "home_36000.0", "leisure_10800.0", "other_3600.0", "home_36000.0");
+		addPerson(population, "3", 1200., "other_7200.0", "work_32400.0", "leisure_97200.0", "other_7200.0");
+
+		ScoringParametersForPerson eager = createScoringParameters(eagerConfig, population, IncomeDependentUtilityOfMoneyPersonScoringParameters.class);
+		ScoringParametersForPerson lazy = createScoringParameters(lazyConfig, population, OpenBerlinScoringParametersForPerson.class);
+		for (Person person : population.getPersons().values()) {
+			Assert.assertEquals("Different score for person " + person.getId(), score(eager.getScoringParameters(person), person.getSelectedPlan()),
+					score(lazy.getScoringParameters(person), person.getSelectedPlan()), 1e-9);
+			Assert.assertEquals(eager.getScoringParameters(person).marginalUtilityOfMoney, lazy.getScoringParameters(person).marginalUtilityOfMoney, 0.);
+		}
+		Assert.assertEquals("The config must not be changed", lazyActivityParams, lazyConfig.planCalcScore().getActivityParams().size());
+	}
+
+	private static void addPerson(Population population, String id, double income, String... activityTypes) {
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId(id));
+		person.getAttributes().putAttribute(IncomeDependentUtilityOfMoneyPersonScoringParameters.PERSONAL_INCOME_ATTRIBUTE_NAME, income);
+		Plan plan = factory.createPlan();
+		double time = 7. * 3600.;
+		for (int i = 0; i < activityTypes.length; i++) {
+			Activity activity = factory.createActivityFromCoord(activityTypes[i], new Coord(i * 1000., 0.));
+			if (i > 0) {
+				activity.setStartTime(time);
+				time += 3. * 3600.;
+			}
+			if (i < activityTypes.length - 1) {
+				activity.setEndTime(time);
+				plan.addActivity(activity);
+				plan.addLeg(factory.createLeg("car"));
+				time += 1800.;
+			} else {
+				plan.addActivity(activity);
+			}
+		}
+		person.addPlan(plan);
+		person.setSelectedPlan(plan);
+		population.addPerson(person);
+	}
+
+	private static ScoringParametersForPerson createScoringParameters(Config config, Population population, Class<? extends ScoringParametersForPerson> type) {
+		return Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Config.class).toInstance(config);
+				bind(Population.class).toInstance(population);
+				bind(PlanCalcScoreConfigGroup.class).toInstance(config.planCalcScore());
+				bind(ScenarioConfigGroup.class).toInstance(config.scenario());
+				bind(TransitConfigGroup.class).toInstance(config.transit());
+			}
+		}).getInstance(type);
+	}
+
+	private static double score(ScoringParameters parameters, Plan plan) {
+		CharyparNagelActivityScoring scoring = new CharyparNagelActivityScoring(parameters);
+		Activity first = null;
+		Activity last = null;
+		for (PlanElement planElement : plan.getPlanElements()) {
+			if (planElement instanceof Activity) {
+				if (first == null) {
+					first = (Activity) planElement;
+					scoring.handleFirstActivity(first);
+				} else {
+					if (last != null) {
+						scoring.handleActivity(last);
+					}
+					last = (Activity) planElement;
+				}
+			}
+		}
+		scoring.handleLastActivity(last);
+		scoring.finish();
+		return scoring.getScore();
+	}
+
+}
@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run.drt;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
+import org.matsim.contrib.drt.speedup.DrtSpeedUpParams;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class DrtSpeedUpStateListenerTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils() ;
+
+	@Test
+	public final void testAdaptiveSimulatedIterations() {
+		// first measurement: no previous estimate, the drift is infinite
+		Assert.assertEquals(1, DrtSpeedUpStateListener.getNextSimulatedIteration(0, -1, Double.POSITIVE_INFINITY, 0.1, 10));
+		// drift above the maximum: simulate the next iteration as well
+		Assert.assertEquals(6, DrtSpeedUpStateListener.getNextSimulatedIteration(5, 5, 0.2, 0.1, 10));
+		// drift below the maximum: the configured interval
+		Assert.assertEquals(16, DrtSpeedUpStateListener.getNextSimulatedIteration(6, 6, 0.05, 0.1, 10));
+		// teleported iterations keep the decision
+		Assert.assertEquals(16, DrtSpeedUpStateListener.getNextSimulatedIteration(7, 16, Double.NaN, 0.1, 10));
+		// no decision before the first measurement
+		Assert.assertEquals(-1, DrtSpeedUpStateListener.getNextSimulatedIteration(3, -1, Double.NaN, 0.1, 10));
+		// simulated without any pick up: continue with the configured interval instead of never simulating again
+		Assert.assertEquals(26, DrtSpeedUpStateListener.getNextSimulatedIteration(16, 16, Double.NaN, 0.1, 10));
+
+		// the drt speed up simulates iteration + 1 if (iteration + 1) % interval == 0
+		for (int iteration = 0; iteration < 50; iteration++) {
+			for (int next = iteration + 1; next < iteration + 20; next++) {
+				int interval = DrtSpeedUpStateListener.getIntervalDetailedIteration(iteration, next);
+				Assert.assertEquals(next == iteration + 1, (iteration + 1) % interval == 0);
+			}
+		}
+	}
+
+	@Test
+	public final void testStateFileRoundTrip() {
+		Map<String, double[]> estimatesPerMode = new TreeMap<>();
+		estimatesPerMode.put("drt", new double[] { 312.5, 4.25 });
+		estimatesPerMode.put("drt2", new double[] { 180., 6.5 });
+		String stateFile = utils.getOutputDirectory() + DrtSpeedUpStateListener.FILE_NAME;
+		DrtSpeedUpStateListener.writeState(stateFile, estimatesPerMode);
+
+		Config config = ConfigUtils.createConfig();
+		MultiModeDrtConfigGroup multiModeDrtCfg = ConfigUtils.addOrGetModule(config, MultiModeDrtConfigGroup.class);
+		DrtSpeedUpParams drtSpeedUpParams = addDrtMode(multiModeDrtCfg, "drt");
+		DrtSpeedUpParams otherSpeedUpParams = addDrtMode(multiModeDrtCfg, "other");
+		double otherWaitingTime = otherSpeedUpParams.getInitialWaitingTime();
+		double otherSpeed = otherSpeedUpParams.getInitialInVehicleBeelineSpeed();
+
+		DrtSpeedUpStateListener.applyState(config, stateFile);
+		Assert.assertEquals(312.5, drtSpeedUpParams.getInitialWaitingTime(), 0.);
+		Assert.assertEquals(4.25, drtSpeedUpParams.getInitialInVehicleBeelineSpeed(), 0.);
+		// modes which are not in the file keep their initial values
+		Assert.assertEquals(otherWaitingTime, otherSpeedUpParams.getInitialWaitingTime(), 0.);
+		Assert.assertEquals(otherSpeed, otherSpeedUpParams.getInitialInVehicleBeelineSpeed(), 0.);
+	}
+
+	private static DrtSpeedUpParams addDrtMode(MultiModeDrtConfigGroup multiModeDrtCfg, String mode) {
+		DrtConfigGroup drtCfg = new DrtConfigGroup();
+		drtCfg.setMode(mode);
+		DrtSpeedUpParams drtSpeedUpParams = new DrtSpeedUpParams();
+		drtCfg.addParameterSet(drtSpeedUpParams);
+		multiModeDrtCfg.addParameterSet(drtCfg);
+		return drtSpeedUpParams;
+	}
+
+}
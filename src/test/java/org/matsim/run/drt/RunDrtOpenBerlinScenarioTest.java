@@ -19,16 +19,30 @@
 
 package org.matsim.run.drt;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
 import org.apache.log4j.Logger;
 import org.junit.*;
 import org.junit.runners.MethodSorters;
+import org.locationtech.jts.geom.Coordinate;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.geotools.MGC;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.gis.PolygonFeatureFactory;
+import org.matsim.core.utils.gis.ShapeFileWriter;
 import org.matsim.run.BerlinExperimentalConfigGroup;
 import org.matsim.testcases.MatsimTestUtils;
 
@@ -43,6 +57,49 @@ public class RunDrtOpenBerlinScenarioTest {
 	private static final Logger log = Logger.getLogger(RunDrtOpenBerlinScenarioTest.class);
 	@Rule public MatsimTestUtils utils = new MatsimTestUtils() ;
 
+	@Test
+	public final void aTestAddDRTmodeWithCache() {
+		// a service area of 3x3 km in the middle of the chessboard
+		PolygonFeatureFactory factory = new PolygonFeatureFactory.Builder().setCrs(MGC.getCRS(TransformationFactory.GK4))
+				.setName("serviceArea").create();
+		Coordinate[] ring = new Coordinate[] { new Coordinate(1500, 1500), new Coordinate(4500, 1500),
+				new Coordinate(4500, 4500), new Coordinate(1500, 4500), new Coordinate(1500, 1500) };
+		String shapeFile = utils.getOutputDirectory() + "serviceArea.shp";
+		ShapeFileWriter.writeGeometries(List.of(factory.createPolygon(ring, new HashMap<>(), "serviceArea")),
+				shapeFile);
+		String cacheDirectory = utils.getOutputDirectory() + "drtNetworkCache";
+
+		Set<String> drtLinks = addDRTmodeOnChessboard(shapeFile, 0., null);
+		Assert.assertFalse(drtLinks.isEmpty());
+		Assert.assertTrue(drtLinks.contains("j(3,3)"));
+		Assert.assertFalse(drtLinks.contains("i(8,8)"));
+
+		// the first run writes the drt links, the second one reads them
+		Assert.assertEquals(drtLinks, addDRTmodeOnChessboard(shapeFile, 0., cacheDirectory));
+		Assert.assertEquals(1, new File(cacheDirectory).list().length);
+		Assert.assertEquals(drtLinks, addDRTmodeOnChessboard(shapeFile, 0., cacheDirectory));
+		Assert.assertEquals(1, new File(cacheDirectory).list().length);
+
+		// another buffer needs other drt links
+		Set<String> drtLinksWithBuffer = addDRTmodeOnChessboard(shapeFile, 600., cacheDirectory);
+		Assert.assertTrue(drtLinksWithBuffer.containsAll(drtLinks));
+		Assert.assertTrue(drtLinksWithBuffer.size() > drtLinks.size());
+		Assert.assertEquals(2, new File(cacheDirectory).list().length);
+	}
+
+	private static Set<String> addDRTmodeOnChessboard(String shapeFile, double buffer, String cacheDirectory) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		RunDrtOpenBerlinScenario.addDRTmode(scenario, "drt", shapeFile, buffer, cacheDirectory);
+		Set<String> drtLinks = new TreeSet<>();
+		for (Link link : scenario.getNetwork().getLinks().values()) {
+			if (link.getAllowedModes().contains("drt")) {
+				drtLinks.add(link.getId().toString());
+			}
+		}
+		return drtLinks;
+	}
+
 	// During debug some exceptions only occured at the replanning stage of the 3rd
 	// iteration, so we need at least 3 iterations.
 	// Have at least 0.1 pct of the population to have as many strange corner cases
@@ -0,0 +1,190 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run.wasteCollection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities.FleetSize;
+import org.matsim.contrib.freight.carrier.CarrierPlan;
+import org.matsim.contrib.freight.carrier.CarrierVehicleTypeReader;
+import org.matsim.contrib.freight.carrier.CarrierVehicleTypes;
+import org.matsim.contrib.freight.carrier.Carriers;
+import org.matsim.contrib.freight.carrier.ScheduledTour;
+import org.matsim.contrib.freight.carrier.Tour;
+import org.matsim.contrib.freight.jsprit.MatsimJspritFactory;
+import org.matsim.contrib.freight.jsprit.NetworkBasedTransportCosts;
+import org.matsim.contrib.freight.jsprit.NetworkRouter;
+import org.matsim.contrib.freight.utils.FreightUtils;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.VehicleType;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.util.Solutions;
+
+public class AbfallResultWriterTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Solves the chessboard scenario with an electric vehicle and compares the
+	 * totals and the tour rows of the writer with the in-memory summary, which
+	 * outputSummary collected before the writer existed.
+	 */
+	@Test
+	public final void testChessboardSummary() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		CarrierVehicleTypes allVehicleTypes = new CarrierVehicleTypes();
+		new CarrierVehicleTypeReader(allVehicleTypes)
+				.readFile("scenarios/berlin-v5.5-10pct/input/wasteCollection/vehicleTypes.xml");
+		CarrierVehicleTypes vehicleTypes = new CarrierVehicleTypes();
+		for (VehicleType vehicleType : allVehicleTypes.getVehicleTypes().values()) {
+			if (AbfallResultWriter.isElectric(vehicleType) && vehicleTypes.getVehicleTypes().isEmpty())
+				vehicleTypes.getVehicleTypes().put(vehicleType.getId(), vehicleType);
+		}
+		VehicleType electricType = vehicleTypes.getVehicleTypes().values().iterator().next();
+
+		Carriers carriers = FreightUtils.addOrGetCarriers(scenario);
+		AbfallUtils abfallUtils = new AbfallUtils(ArrayListMultimap.create());
+		AbfallChessboardUtils.createShipmentsForChessboardI(abfallUtils, new HashMap<String, Carrier>(), 20000,
+				scenario.getNetwork().getLinks(), 1100, 41, scenario, carriers);
+		AbfallChessboardUtils.createCarriersForChessboard(carriers, FleetSize.INFINITE, vehicleTypes);
+		Carrier carrier = carriers.getCarriers().get(AbfallChessboardUtils.carrierChessboardId);
+
+		NetworkBasedTransportCosts netBasedCosts = NetworkBasedTransportCosts.Builder
+				.newInstance(scenario.getNetwork(), vehicleTypes.getVehicleTypes().values()).build();
+		VehicleRoutingProblem problem = MatsimJspritFactory.createRoutingProblemBuilder(carrier, scenario.getNetwork())
+				.setRoutingCost(netBasedCosts).build();
+		VehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(problem).setRandom(new Random(4711))
+				.buildAlgorithm();
+		algorithm.setMaxIterations(10);
+		CarrierPlan plan = MatsimJspritFactory.createPlan(carrier, Solutions.bestOf(algorithm.searchSolutions()));
+		NetworkRouter.routePlan(plan, netBasedCosts);
+		carrier.setSelectedPlan(plan);
+
+		String file = utils.getOutputDirectory() + "02_SummaryOutput.txt";
+		AbfallResultWriter results = new AbfallResultWriter(scenario, file);
+		results.writeCarrier(carrier);
+		results.close();
+
+		// the in-memory summary
+		double energyConsumptionPerDistance = (double) electricType.getEngineInformation().getAttributes()
+				.getAttribute("engeryConsumptionPerKm");
+		double energyConsumptionPerWeight = 1.4;
+		int sizeChessboard = 0;
+		List<Double> tourDistances = new ArrayList<Double>();
+		List<Double> powerConsumptions = new ArrayList<Double>();
+		List<Integer> consumptionRows = new ArrayList<Integer>();
+		for (ScheduledTour scheduledTour : carrier.getSelectedPlan().getScheduledTours()) {
+			double distanceTour = 0;
+			int sizeTour = 0;
+			for (Tour.TourElement element : scheduledTour.getTour().getTourElements()) {
+				if (element instanceof Tour.Pickup)
+					sizeTour = sizeTour + ((Tour.Pickup) element).getShipment().getSize();
+				if (element instanceof Tour.Leg) {
+					Tour.Leg legElement = (Tour.Leg) element;
+					if (legElement.getRoute().getDistance() != 0)
+						distanceTour = distanceTour + RouteUtils.calcDistance((NetworkRoute) legElement.getRoute(), 0,
+								0, scenario.getNetwork());
+				}
+			}
+			sizeChessboard = sizeChessboard + sizeTour;
+			tourDistances.add((double) Math.round(distanceTour / 1000));
+			powerConsumptions.add((double) Math.round((double) (distanceTour / 1000) * energyConsumptionPerDistance
+					+ (double) (sizeTour / 1000) * energyConsumptionPerWeight));
+			consumptionRows.add((int) Math.round((distanceTour / 1000) * energyConsumptionPerDistance));
+		}
+		double distanceSum = 0;
+		double powerConsumptionSum = 0;
+		for (int index = 0; index < tourDistances.size(); index++) {
+			distanceSum = distanceSum + tourDistances.get(index);
+			powerConsumptionSum = powerConsumptionSum + powerConsumptions.get(index);
+		}
+
+		Assert.assertTrue(results.isElectricCar());
+		Assert.assertFalse(tourDistances.isEmpty());
+		Assert.assertEquals(tourDistances.size(), results.getNumberOfTours());
+		Assert.assertEquals(sizeChessboard, results.getCollectedGarbage());
+		Assert.assertEquals(abfallUtils.allGarbage, results.getCollectedGarbage());
+		Assert.assertEquals(1, results.getCarriersWithShipments());
+		Assert.assertEquals(tourDistances, results.getTourDistancesChessboard());
+		Assert.assertEquals(powerConsumptions, results.getEnergyConsumptionsChessboard());
+		TourStatistics chessboard = results.getStatistics("Chessboard");
+		Assert.assertEquals(tourDistances.size(), chessboard.getNumberOfTours());
+		Assert.assertEquals(sizeChessboard, chessboard.getGarbage());
+		Assert.assertEquals(distanceSum, chessboard.getDistanceSum(), 0.);
+		Assert.assertEquals(Collections.min(tourDistances), chessboard.getDistanceMin(), 0.);
+		Assert.assertEquals(Collections.max(tourDistances), chessboard.getDistanceMax(), 0.);
+		Assert.assertEquals(powerConsumptionSum, chessboard.getEnergySum(), 0.);
+		Assert.assertEquals(Collections.min(powerConsumptions), chessboard.getEnergyMin(), 0.);
+		Assert.assertEquals(Collections.max(powerConsumptions), chessboard.getEnergyMax(), 0.);
+		for (String depot : new String[] { "Forckenbeck", "Malmoeer", "Nordring", "Gradestrasse" }) {
+			Assert.assertEquals(0, results.getStatistics(depot).getNumberOfTours());
+		}
+		Assert.assertTrue(results.getToursWithOverconsumption().isEmpty());
+
+		// one row per tour with its distance and consumption, in the order of the tours
+		List<String> tourRows = new ArrayList<String>();
+		boolean carrierFound = false;
+		try (BufferedReader reader = IOUtils.getBufferedReader(file)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("Version: "))
+					carrierFound = line.equals("Version: " + carrier.getId().toString());
+				if (line.startsWith("\tAnzahl der Abholstellen ohne Abholung:"))
+					Assert.assertEquals("0", line.substring(line.indexOf(':') + 1).trim());
+				if (line.startsWith("\tAnzahl der Fahrzeuge:"))
+					Assert.assertEquals(String.valueOf(tourDistances.size()),
+							line.substring(line.indexOf(':') + 1).trim());
+				if (line.startsWith("\t" + electricType.getId() + "-Tour "))
+					tourRows.add(line);
+			}
+		}
+		Assert.assertTrue(carrierFound);
+		Assert.assertEquals(tourDistances.size(), tourRows.size());
+		for (int index = 0; index < tourRows.size(); index++) {
+			String[] columns = tourRows.get(index).trim().split("\\s+");
+			Assert.assertEquals(String.valueOf(index + 1), columns[1]);
+			Assert.assertEquals(tourDistances.get(index).intValue(), Integer.parseInt(columns[2]));
+			Assert.assertEquals(consumptionRows.get(index).intValue(), Integer.parseInt(columns[4]));
+		}
+	}
+
+}
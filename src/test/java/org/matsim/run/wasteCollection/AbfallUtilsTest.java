@@ -18,32 +18,68 @@
  * *********************************************************************** */
 package org.matsim.run.wasteCollection;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities.FleetSize;
+import org.matsim.contrib.freight.carrier.CarrierShipment;
+import org.matsim.contrib.freight.carrier.CarrierUtils;
+import org.matsim.contrib.freight.carrier.CarrierVehicle;
 import org.matsim.contrib.freight.carrier.Carriers;
 import org.matsim.contrib.freight.utils.FreightUtils;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.gis.ShapeFileReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
 import org.opengis.feature.simple.SimpleFeature;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+
 /**
  * @author nagel
  *
  */
 public class AbfallUtilsTest {
 
+	private static final String berlinDistrictsWithGarbageInformations = "scenarios/berlin-v5.5-10pct/input/wasteCollection/garbageInput/districtsWithGarbageInformations.shp";
+
 	@Rule
 	public MatsimTestUtils utils = new MatsimTestUtils();
 
@@ -109,7 +145,275 @@ public class AbfallUtilsTest {
 
 	@Test
 	public final void testCreateMapWithLinksInDistricts() {
+		Collection<SimpleFeature> districtsWithGarbage = ShapeFileReader
+				.getAllFeatures(berlinDistrictsWithGarbageInformations);
+
+		// one short link in the inside of each district and one link far outside of Berlin
+		Network network = NetworkUtils.createNetwork();
+		for (SimpleFeature district : districtsWithGarbage) {
+			Point p = ((Geometry) district.getDefaultGeometry()).getInteriorPoint();
+			String name = district.getAttribute("Ortsteil").toString();
+			Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId(name + "_from"), new Coord(p.getX() - 0.5, p.getY()));
+			Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId(name + "_to"), new Coord(p.getX() + 0.5, p.getY()));
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(name), from, to, 1., 10., 1000., 1.);
+		}
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("outside_from"), new Coord(0., 0.));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("outside_to"), new Coord(100., 0.));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("outside"), from, to, 100., 10., 1000., 1.);
+
+		ListMultimap<String, String> linksInDistricts = AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage,
+				network.getLinks());
+		Assert.assertEquals(network.getLinks().size() - 1, linksInDistricts.size());
+		for (SimpleFeature district : districtsWithGarbage) {
+			String name = district.getAttribute("Ortsteil").toString();
+			Assert.assertTrue(linksInDistricts.containsEntry(name, name));
+		}
+		Assert.assertFalse(linksInDistricts.containsValue("outside"));
+
+		// the sidecar file is written on the first call and read on the second one
+		String linksInDistrictsFile = utils.getOutputDirectory() + "linksInDistricts.csv.gz";
+		Assert.assertEquals(linksInDistricts, AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage,
+				network.getLinks(), linksInDistrictsFile));
+		Assert.assertTrue(new File(linksInDistrictsFile).exists());
+		Assert.assertEquals(linksInDistricts, AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage,
+				network.getLinks(), linksInDistrictsFile));
+
+		// an edited polygon with the same envelope and number of points gives another fingerprint
+		String fingerprint = readFirstLine(linksInDistrictsFile);
+		SimpleFeature editedDistrict = districtsWithGarbage.iterator().next();
+		Geometry geometry = ((Geometry) editedDistrict.getDefaultGeometry()).copy();
+		Envelope envelope = geometry.getEnvelopeInternal();
+		geometry.apply(new CoordinateSequenceFilter() {
+			private boolean done = false;
+
+			@Override
+			public void filter(CoordinateSequence sequence, int i) {
+				double x = sequence.getX(i);
+				double y = sequence.getY(i);
+				// the first and last point of a ring are the same, so they are left as they are
+				if (i > 0 && i < sequence.size() - 1 && x > envelope.getMinX() && x < envelope.getMaxX()
+						&& y > envelope.getMinY() && y < envelope.getMaxY()) {
+					sequence.setOrdinate(i, CoordinateSequence.X, x + (envelope.getMaxX() - x) / 2);
+					done = true;
+				}
+			}
+
+			@Override
+			public boolean isDone() {
+				return done;
+			}
+
+			@Override
+			public boolean isGeometryChanged() {
+				return true;
+			}
+		});
+		Assert.assertEquals(envelope, geometry.getEnvelopeInternal());
+		editedDistrict.setDefaultGeometry(geometry);
+		AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage, network.getLinks(), linksInDistrictsFile);
+		Assert.assertNotEquals(fingerprint, readFirstLine(linksInDistrictsFile));
+	}
+
+	private static String readFirstLine(String file) {
+		try (BufferedReader reader = IOUtils.getBufferedReader(file)) {
+			return reader.readLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Test
+	public final void testCreateShipmentsForSelectedDay() {
+		Collection<SimpleFeature> districtsWithGarbage = ShapeFileReader.getAllFeatures(berlinDistrictsWithGarbageInformations);
+		Scenario scenario = createChessboardInBerlinScenario(districtsWithGarbage);
+		Map<Id<Link>, ? extends Link> allLinks = scenario.getNetwork().getLinks();
+		ListMultimap<String, String> linksInDistricts = AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage,
+				allLinks);
+
+		HashMap<String, Carrier> carrierMap = createDepotCarriers();
+		new AbfallUtils(linksInDistricts).createShipmentsForSelectedDay(districtsWithGarbage, "MO",
+				AbfallUtils.createDumpMap(), scenario, new Carriers(), carrierMap, allLinks, 1100, 41, false);
+
+		// the shipments created with the former link by link comparison
+		AbfallUtils expectedAbfallUtils = new AbfallUtils(linksInDistricts);
+		HashMap<String, Carrier> expectedCarrierMap = createDepotCarriers();
+		for (SimpleFeature districtInformation : districtsWithGarbage) {
+			if ((double) districtInformation.getAttribute("MO") > 0) {
+				Map<Id<Link>, Link> garbageLinks = new HashMap<Id<Link>, Link>();
+				double distanceWithShipments = 0;
+				for (Link link : allLinks.values()) {
+					for (String linkInDistrict : linksInDistricts
+							.get(districtInformation.getAttribute("Ortsteil").toString())) {
+						if (Id.createLinkId(linkInDistrict) == link.getId() && link.getFreespeed() < 14
+								&& link.getAllowedModes().contains("car")) {
+							boolean streetAlreadyInGarbageLinks = false;
+							for (Link garbageLink : garbageLinks.values()) {
+								if (link.getFromNode() == garbageLink.getToNode()
+										&& link.getToNode() == garbageLink.getFromNode())
+									streetAlreadyInGarbageLinks = true;
+							}
+							if (!streetAlreadyInGarbageLinks) {
+								garbageLinks.put(link.getId(), link);
+								distanceWithShipments = distanceWithShipments + link.getLength();
+							}
+						}
+					}
+				}
+				if (garbageLinks.size() != 0) {
+					expectedAbfallUtils.createShipmentsForCarrierII(
+							(int) ((double) districtInformation.getAttribute("MO") * 1000), 1100, 41,
+							distanceWithShipments, garbageLinks, scenario,
+							expectedCarrierMap.get(districtInformation.getAttribute("Depot").toString()),
+							AbfallUtils.createDumpMap().get(districtInformation.getAttribute("Mo-Ent")), new Carriers());
+				}
+			}
+		}
+
+		assertSameShipments(expectedCarrierMap, carrierMap);
+	}
+
+	@Test
+	public final void testPlanDaysConcurrently() throws Exception {
+		Collection<SimpleFeature> districtsWithGarbage = ShapeFileReader.getAllFeatures(berlinDistrictsWithGarbageInformations);
+		Scenario scenario = createChessboardInBerlinScenario(districtsWithGarbage);
+		Map<Id<Link>, ? extends Link> allLinks = scenario.getNetwork().getLinks();
+		ListMultimap<String, String> linksInDistricts = AbfallUtils.createMapWithLinksInDistricts(districtsWithGarbage,
+				allLinks);
+		List<String> days = Arrays.asList("MO", "DI", "MI", "DO", "FR");
 
+		Map<String, AbfallUtils> sequentialAbfallUtils = new HashMap<String, AbfallUtils>();
+		Map<String, HashMap<String, Carrier>> sequentialCarrierMaps = new HashMap<String, HashMap<String, Carrier>>();
+		for (String day : days) {
+			AbfallUtils abfallUtils = new AbfallUtils(linksInDistricts);
+			HashMap<String, Carrier> carrierMap = createDepotCarriers();
+			abfallUtils.createShipmentsForSelectedDay(districtsWithGarbage, day, AbfallUtils.createDumpMap(), scenario,
+					new Carriers(), carrierMap, allLinks, 1100, 41, false);
+			sequentialAbfallUtils.put(day, abfallUtils);
+			sequentialCarrierMaps.put(day, carrierMap);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(days.size());
+		Map<String, Future<HashMap<String, Carrier>>> concurrentCarrierMaps = new HashMap<String, Future<HashMap<String, Carrier>>>();
+		Map<String, AbfallUtils> concurrentAbfallUtils = new HashMap<String, AbfallUtils>();
+		for (String day : days) {
+			AbfallUtils abfallUtils = new AbfallUtils(linksInDistricts);
+			concurrentAbfallUtils.put(day, abfallUtils);
+			concurrentCarrierMaps.put(day, executor.submit(() -> {
+				HashMap<String, Carrier> carrierMap = createDepotCarriers();
+				abfallUtils.createShipmentsForSelectedDay(districtsWithGarbage, day, AbfallUtils.createDumpMap(),
+						scenario, new Carriers(), carrierMap, allLinks, 1100, 41, false);
+				return carrierMap;
+			}));
+		}
+		for (String day : days) {
+			assertSameShipments(sequentialCarrierMaps.get(day), concurrentCarrierMaps.get(day).get());
+			Assert.assertEquals(sequentialAbfallUtils.get(day).allGarbage, concurrentAbfallUtils.get(day).allGarbage);
+			Assert.assertEquals(sequentialAbfallUtils.get(day).districtsWithShipments,
+					concurrentAbfallUtils.get(day).districtsWithShipments);
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * The chessboard network, moved to the center of Berlin, so it covers several
+	 * districts.
+	 */
+	private static Scenario createChessboardInBerlinScenario(Collection<SimpleFeature> districtsWithGarbage) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		Envelope berlin = new Envelope();
+		for (SimpleFeature district : districtsWithGarbage) {
+			berlin.expandToInclude(((Geometry) district.getDefaultGeometry()).getEnvelopeInternal());
+		}
+		for (Node node : scenario.getNetwork().getNodes().values()) {
+			node.setCoord(new Coord(node.getCoord().getX() + berlin.centre().x - 4500.,
+					node.getCoord().getY() + berlin.centre().y - 4500.));
+		}
+		return scenario;
+	}
+
+	private static void assertSameShipments(HashMap<String, Carrier> expectedCarrierMap,
+			HashMap<String, Carrier> carrierMap) {
+		int numberOfShipments = 0;
+		for (String depot : expectedCarrierMap.keySet()) {
+			Map<Id<CarrierShipment>, CarrierShipment> expectedShipments = expectedCarrierMap.get(depot).getShipments();
+			Map<Id<CarrierShipment>, CarrierShipment> shipments = carrierMap.get(depot).getShipments();
+			Assert.assertEquals(expectedShipments.keySet(), shipments.keySet());
+			for (CarrierShipment expected : expectedShipments.values()) {
+				CarrierShipment shipment = shipments.get(expected.getId());
+				Assert.assertEquals(expected.getFrom(), shipment.getFrom());
+				Assert.assertEquals(expected.getTo(), shipment.getTo());
+				Assert.assertEquals(expected.getSize(), shipment.getSize());
+				Assert.assertEquals(expected.getPickupServiceTime(), shipment.getPickupServiceTime(), 0.);
+				Assert.assertEquals(expected.getDeliveryServiceTime(), shipment.getDeliveryServiceTime(), 0.);
+			}
+			numberOfShipments = numberOfShipments + shipments.size();
+		}
+		Assert.assertTrue(numberOfShipments > 0);
+	}
+
+	private static HashMap<String, Carrier> createDepotCarriers() {
+		HashMap<String, Carrier> carrierMap = new HashMap<String, Carrier>();
+		for (String depot : new String[] { "Nordring", "MalmoeerStr", "Forckenbeck", "Gradestrasse" }) {
+			carrierMap.put(depot, CarrierUtils.createCarrier(Id.create("BSR_" + depot, Carrier.class)));
+		}
+		return carrierMap;
+	}
+
+	@Test
+	public final void testDecomposeFiniteFleet() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		VehicleType vehicleType = VehicleUtils.createVehicleType(Id.create("truck", VehicleType.class));
+		AbfallUtils abfallUtils = new AbfallUtils(ArrayListMultimap.create());
+		abfallUtils.setMaxShipmentsPerCluster(20);
+
+		Carrier carrier = createCarrierWithShipments(scenario, vehicleType, 30, FleetSize.FINITE);
+		List<Carrier> subCarriers = abfallUtils.decompose(scenario, carrier);
+		Assert.assertTrue(subCarriers.size() > 1);
+		Set<Id<Vehicle>> vehicleIds = new HashSet<Id<Vehicle>>();
+		int numberOfShipments = 0;
+		for (Carrier subCarrier : subCarriers) {
+			CarrierCapabilities capabilities = subCarrier.getCarrierCapabilities();
+			Assert.assertEquals(FleetSize.FINITE, capabilities.getFleetSize());
+			Assert.assertFalse(capabilities.getCarrierVehicles().isEmpty());
+			for (Id<Vehicle> vehicleId : capabilities.getCarrierVehicles().keySet()) {
+				// no vehicle may be used by two clusters
+				Assert.assertTrue(vehicleIds.add(vehicleId));
+			}
+			numberOfShipments = numberOfShipments + subCarrier.getShipments().size();
+		}
+		Assert.assertEquals(30, vehicleIds.size());
+		Assert.assertEquals(carrier.getShipments().size(), numberOfShipments);
+
+		// fewer vehicles than clusters, the carrier is not split
+		Carrier smallFleetCarrier = createCarrierWithShipments(scenario, vehicleType, 1, FleetSize.FINITE);
+		Assert.assertEquals(List.of(smallFleetCarrier), abfallUtils.decompose(scenario, smallFleetCarrier));
+
+		// an infinite fleet is shared by all clusters
+		Carrier infiniteFleetCarrier = createCarrierWithShipments(scenario, vehicleType, 1, FleetSize.INFINITE);
+		for (Carrier subCarrier : abfallUtils.decompose(scenario, infiniteFleetCarrier)) {
+			Assert.assertSame(infiniteFleetCarrier.getCarrierCapabilities(), subCarrier.getCarrierCapabilities());
+		}
+	}
+
+	private static Carrier createCarrierWithShipments(Scenario scenario, VehicleType vehicleType, int numberOfVehicles,
+			FleetSize fleetSize) {
+		Carrier carrier = CarrierUtils.createCarrier(Id.create("BSR_" + fleetSize + numberOfVehicles, Carrier.class));
+		CarrierCapabilities.Builder builder = CarrierCapabilities.Builder.newInstance().addType(vehicleType)
+				.setFleetSize(fleetSize);
+		for (int i = 0; i < numberOfVehicles; i++) {
+			builder.addVehicle(CarrierVehicle.Builder.newInstance(Id.create("Truck" + i, Vehicle.class), Id.createLinkId("j(0,1)"))
+					.setEarliestStart(6 * 3600).setLatestEnd(14 * 3600).setTypeId(vehicleType.getId()).build());
+		}
+		carrier.setCarrierCapabilities(builder.build());
+		for (Link link : scenario.getNetwork().getLinks().values()) {
+			CarrierShipment shipment = CarrierShipment.Builder.newInstance(
+					Id.create("Shipment_" + link.getId(), CarrierShipment.class), link.getId(), Id.createLinkId("j(9,9)"), 100)
+					.build();
+			carrier.getShipments().put(shipment.getId(), shipment);
+		}
+		return carrier;
 	}
 
 	@Test
@@ -129,7 +433,6 @@ public class AbfallUtilsTest {
 
 	@Test
 	public final void testShapeFile() {
-		final String berlinDistrictsWithGarbageInformations = "scenarios/berlin-v5.5-10pct/input/wasteCollection/garbageInput/districtsWithGarbageInformations.shp";
 		Collection<SimpleFeature> districtsWithGarbage = ShapeFileReader
 				.getAllFeatures(berlinDistrictsWithGarbageInformations);
 		for (SimpleFeature districtInformation : districtsWithGarbage) {
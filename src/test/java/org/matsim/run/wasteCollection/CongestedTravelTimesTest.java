@@ -0,0 +1,87 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run.wasteCollection;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CongestedTravelTimesTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public final void testReadOrCreate() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		Link link = scenario.getNetwork().getLinks().get(Id.createLinkId("i(1,0)"));
+		Link nextLink = scenario.getNetwork().getLinks().get(Id.createLinkId("i(2,0)"));
+		double freespeedTravelTime = nextLink.getLength() / nextLink.getFreespeed();
+
+		// one car needs 500 sec for the link at 8:00, the freespeed travel time is about 72 sec; the next link is
+		// traversed at freespeed, rounded up to the next second as in the QSim
+		String eventsFile = utils.getOutputDirectory() + "events.xml";
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(eventsFile)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
+			writer.write("\t<event time=\"28800.0\" type=\"vehicle enters traffic\" person=\"p\" link=\"j(0,1)\" "
+					+ "vehicle=\"v\" networkMode=\"car\" relativePosition=\"1.0\" />\n");
+			writer.write("\t<event time=\"28800.0\" type=\"entered link\" vehicle=\"v\" link=\"i(1,0)\" />\n");
+			writer.write("\t<event time=\"29300.0\" type=\"left link\" vehicle=\"v\" link=\"i(1,0)\" />\n");
+			writer.write("\t<event time=\"29300.0\" type=\"entered link\" vehicle=\"v\" link=\"i(2,0)\" />\n");
+			double leaveTime = 29300. + Math.floor(freespeedTravelTime) + 1.;
+			writer.write("\t<event time=\"" + leaveTime + "\" type=\"left link\" vehicle=\"v\" link=\"i(2,0)\" />\n");
+			writer.write("\t<event time=\"" + leaveTime + "\" type=\"entered link\" vehicle=\"v\" link=\"i(3,0)\" />\n");
+			writer.write("\t<event time=\"" + (leaveTime + 72.) + "\" type=\"vehicle leaves traffic\" person=\"p\" "
+					+ "link=\"i(3,0)\" vehicle=\"v\" networkMode=\"car\" relativePosition=\"1.0\" />\n");
+			writer.write("</events>\n");
+		}
+
+		CongestedTravelTimes travelTimes = CongestedTravelTimes.readOrCreate(utils.getOutputDirectory(),
+				scenario.getNetwork(), eventsFile, 900, 30 * 3600);
+		Assert.assertEquals(500., travelTimes.getLinkTravelTime(link, 28800., null, null), 1e-3);
+		Assert.assertEquals(link.getLength() / link.getFreespeed(),
+				travelTimes.getLinkTravelTime(link, 3 * 3600., null, null), 1e-3);
+		Assert.assertEquals(freespeedTravelTime, travelTimes.getLinkTravelTime(nextLink, 29300., null, null), 1e-3);
+		// only the congested link is stored, not the free flowing one which was traversed as well
+		Assert.assertTrue(travelTimes.isStored(link.getId()));
+		Assert.assertFalse(travelTimes.isStored(nextLink.getId()));
+		Assert.assertEquals(1,
+				new File(utils.getOutputDirectory()).listFiles((dir, name) -> name.startsWith("travelTimes_")).length);
+
+		// the second time, the travel times are read from the file
+		CongestedTravelTimes readTravelTimes = CongestedTravelTimes.readOrCreate(utils.getOutputDirectory(),
+				scenario.getNetwork(), eventsFile, 900, 30 * 3600);
+		Assert.assertEquals(travelTimes.getKey(), readTravelTimes.getKey());
+		Assert.assertEquals(500., readTravelTimes.getLinkTravelTime(link, 28800., null, null), 1e-3);
+	}
+
+}
@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run.wasteCollection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.freight.carrier.CarrierShipment;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ShipmentClustersTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public final void testCreate() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		List<CarrierShipment> shipments = new ArrayList<CarrierShipment>();
+		for (Link link : scenario.getNetwork().getLinks().values()) {
+			shipments.add(CarrierShipment.Builder.newInstance(Id.create("Shipment_" + link.getId(), CarrierShipment.class),
+					link.getId(), Id.createLinkId("j(9,9)"), 100).build());
+		}
+
+		List<List<CarrierShipment>> clusters = ShipmentClusters.create(shipments, scenario.getNetwork(), 20,
+				new Random(4711));
+		Assert.assertTrue(clusters.size() > 1);
+		Set<CarrierShipment> clustered = new HashSet<CarrierShipment>();
+		for (List<CarrierShipment> cluster : clusters) {
+			Assert.assertFalse(cluster.isEmpty());
+			Assert.assertTrue(cluster.size() <= 2 * 20);
+			clustered.addAll(cluster);
+		}
+		Assert.assertEquals(shipments.size(), clustered.size());
+
+		// the same random seed leads to the same clusters
+		Assert.assertEquals(clusters,
+				ShipmentClusters.create(shipments, scenario.getNetwork(), 20, new Random(4711)));
+		// small carriers are not split
+		Assert.assertEquals(1, ShipmentClusters.create(shipments.subList(0, 20), scenario.getNetwork(), 20,
+				new Random(4711)).size());
+	}
+
+}
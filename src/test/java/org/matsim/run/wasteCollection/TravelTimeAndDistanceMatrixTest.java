@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run.wasteCollection;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+public class TravelTimeAndDistanceMatrixTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public final void testReadOrCreate() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		VehicleType vehicleType = VehicleUtils.createVehicleType(Id.create("truck", VehicleType.class));
+		vehicleType.setMaximumVelocity(10.);
+		vehicleType.getCostInformation().setCostsPerMeter(1.).setCostsPerSecond(0.);
+		List<Id<Link>> links = Arrays.asList(Id.createLinkId("i(1,0)"), Id.createLinkId("i(2,0)"),
+				Id.createLinkId("i(3,0)"));
+
+		TravelTimeAndDistanceMatrix matrix = TravelTimeAndDistanceMatrix.readOrCreate(utils.getOutputDirectory(),
+				scenario.getNetwork(), links, vehicleType, 1800, 1);
+		Assert.assertEquals(0., matrix.getDistance("i(1,0)", "i(1,0)", 0.), 0.);
+		Assert.assertEquals(1000., matrix.getDistance("i(1,0)", "i(2,0)", 0.), 0.);
+		Assert.assertEquals(2000., matrix.getDistance("i(1,0)", "i(3,0)", 8 * 3600.), 0.);
+		// the maximum velocity of the vehicle is below the freespeed of the links
+		Assert.assertEquals(200., matrix.getTravelTime("i(1,0)", "i(3,0)", 0.), 1e-3);
+		Assert.assertEquals(1, new File(utils.getOutputDirectory()).listFiles((dir, name) -> name.startsWith("matrix_")).length);
+
+		// the second time, the matrix is read from the file
+		TravelTimeAndDistanceMatrix readMatrix = TravelTimeAndDistanceMatrix.readOrCreate(utils.getOutputDirectory(),
+				scenario.getNetwork(), links, vehicleType, 1800, 1);
+		for (Id<Link> from : links) {
+			for (Id<Link> to : links) {
+				Assert.assertEquals(matrix.getDistance(from.toString(), to.toString(), 0.),
+						readMatrix.getDistance(from.toString(), to.toString(), 0.), 0.);
+				Assert.assertEquals(matrix.getTravelTime(from.toString(), to.toString(), 0.),
+						readMatrix.getTravelTime(from.toString(), to.toString(), 0.), 0.);
+			}
+		}
+	}
+
+	@Test
+	public final void testUnreachableAndTooLarge() {
+		Network network = NetworkUtils.createNetwork();
+		Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0., 0.));
+		Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(1000., 0.));
+		Node c = NetworkUtils.createAndAddNode(network, Id.createNodeId("c"), new Coord(2000., 0.));
+		// one way only, so ab can not be reached from bc
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("ab"), a, b, 1000., 10., 1000., 1.);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("bc"), b, c, 1000., 10., 1000., 1.);
+		VehicleType vehicleType = VehicleUtils.createVehicleType(Id.create("truck", VehicleType.class));
+		vehicleType.setMaximumVelocity(10.);
+		List<Id<Link>> links = Arrays.asList(Id.createLinkId("ab"), Id.createLinkId("bc"));
+
+		TravelTimeAndDistanceMatrix matrix = TravelTimeAndDistanceMatrix.readOrCreate(utils.getOutputDirectory(),
+				network, links, vehicleType, 1800, 1);
+		Assert.assertEquals(1000., matrix.getDistance("ab", "bc", 0.), 0.);
+		Assert.assertEquals(TravelTimeAndDistanceMatrix.UNREACHABLE, matrix.getDistance("bc", "ab", 0.), 0.);
+		Assert.assertEquals(TravelTimeAndDistanceMatrix.UNREACHABLE, matrix.getTravelTime("bc", "ab", 0.), 0.);
+
+		// 2 links * 2 links * 48 time slices * 8 bytes = 1536 bytes
+		long networkHash = TravelTimeAndDistanceMatrix.hashNetwork(network, 1800, 48);
+		Assert.assertNull(TravelTimeAndDistanceMatrix.readOrCreate(utils.getOutputDirectory(), network, networkHash,
+				links, vehicleType, 1800, 48, null, 1535));
+		Assert.assertNotNull(TravelTimeAndDistanceMatrix.readOrCreate(utils.getOutputDirectory(), network, networkHash,
+				links, vehicleType, 1800, 48, null, 1536));
+	}
+
+}
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*												   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2021 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.run.wasteCollection;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities;
+import org.matsim.contrib.freight.carrier.CarrierCapabilities.FleetSize;
+import org.matsim.contrib.freight.carrier.CarrierPlan;
+import org.matsim.contrib.freight.carrier.CarrierShipment;
+import org.matsim.contrib.freight.carrier.CarrierUtils;
+import org.matsim.contrib.freight.carrier.CarrierVehicle;
+import org.matsim.contrib.freight.carrier.CarrierVehicleTypeLoader;
+import org.matsim.contrib.freight.carrier.CarrierVehicleTypes;
+import org.matsim.contrib.freight.carrier.Carriers;
+import org.matsim.contrib.freight.carrier.TimeWindow;
+import org.matsim.contrib.freight.jsprit.MatsimJspritFactory;
+import org.matsim.contrib.freight.jsprit.NetworkBasedTransportCosts;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.util.Solutions;
+
+public class WarmStartSolutionTest {
+
+	private static final String[] garbageLinks = { "i(1,0)", "i(2,0)", "i(3,0)", "i(4,0)", "i(5,0)", "i(6,0)",
+			"i(1,2)", "i(2,2)", "i(3,2)", "i(4,2)" };
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public final void testCreate() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("scenarios/chessboard/modifiedChessboard9x9.xml");
+		VehicleType vehicleType = VehicleUtils.createVehicleType(Id.create("truck", VehicleType.class));
+		vehicleType.getCapacity().setOther(3000.);
+		vehicleType.setMaximumVelocity(10.);
+		vehicleType.getCostInformation().setCostsPerMeter(0.001).setCostsPerSecond(0.01).setFixedCost(100.);
+		CarrierVehicleTypes vehicleTypes = new CarrierVehicleTypes();
+		vehicleTypes.getVehicleTypes().put(vehicleType.getId(), vehicleType);
+
+		Carriers carriers = new Carriers();
+		Carrier carrier = CarrierUtils.createCarrier(Id.create("BSR_Test", Carrier.class));
+		CarrierVehicle truck = CarrierVehicle.Builder.newInstance(Id.create("Truck", Vehicle.class), Id.createLinkId("j(0,1)"))
+				.setEarliestStart(6 * 3600).setLatestEnd(14 * 3600).setTypeId(vehicleType.getId()).build();
+		carrier.setCarrierCapabilities(CarrierCapabilities.Builder.newInstance().addType(vehicleType).addVehicle(truck)
+				.setFleetSize(FleetSize.INFINITE).build());
+		carriers.addCarrier(carrier);
+		new CarrierVehicleTypeLoader(carriers).loadVehicleTypes(vehicleTypes);
+		for (String link : garbageLinks) {
+			addShipment(carrier, link, 1000);
+		}
+		NetworkBasedTransportCosts netBasedCosts = NetworkBasedTransportCosts.Builder
+				.newInstance(scenario.getNetwork(), vehicleTypes.getVehicleTypes().values()).build();
+
+		// the plan of the last week
+		VehicleRoutingProblem previousProblem = MatsimJspritFactory
+				.createRoutingProblemBuilder(carrier, scenario.getNetwork()).setRoutingCost(netBasedCosts).build();
+		VehicleRoutingAlgorithm previousAlgorithm = Jsprit.Builder.newInstance(previousProblem)
+				.setRandom(new Random(4711)).buildAlgorithm();
+		previousAlgorithm.setMaxIterations(20);
+		CarrierPlan previousPlan = MatsimJspritFactory.createPlan(carrier,
+				Solutions.bestOf(previousAlgorithm.searchSolutions()));
+
+		// this week, one link has no garbage any more, one has as much garbage as a truck can load and one is new
+		carrier.getShipments().remove(Id.create("Shipment_i(1,0)", CarrierShipment.class));
+		addShipment(carrier, "i(2,0)", 3000);
+		addShipment(carrier, "i(5,2)", 1000);
+		VehicleRoutingProblem problem = MatsimJspritFactory.createRoutingProblemBuilder(carrier, scenario.getNetwork())
+				.setRoutingCost(netBasedCosts).build();
+		SolutionCostCalculator objectiveFunction = WarmStartSolution.createObjectiveFunction(problem);
+		VehicleRoutingProblemSolution initialSolution = WarmStartSolution.create(problem, previousPlan,
+				objectiveFunction);
+
+		Assert.assertNotNull(initialSolution);
+		Set<String> unassigned = new HashSet<String>();
+		for (Job job : initialSolution.getUnassignedJobs()) {
+			unassigned.add(job.getId());
+		}
+		Assert.assertTrue(unassigned.contains("Shipment_i(5,2)"));
+		Set<String> assigned = new HashSet<String>();
+		for (VehicleRoute route : initialSolution.getRoutes()) {
+			int load = 0;
+			for (TourActivity activity : route.getActivities()) {
+				assigned.add(((TourActivity.JobActivity) activity).getJob().getId());
+				load = load + activity.getSize().get(0);
+				Assert.assertTrue(load <= 3000);
+			}
+			Assert.assertEquals(0, load);
+		}
+		Assert.assertFalse(assigned.contains("Shipment_i(1,0)"));
+		Assert.assertEquals(problem.getJobs().size(), assigned.size() + unassigned.size());
+		Assert.assertEquals(objectiveFunction.getCosts(initialSolution), initialSolution.getCost(), 1e-6);
+
+		// the algorithm inserts the remaining shipments
+		VehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(problem).setRandom(new Random(4711))
+				.setObjectiveFunction(objectiveFunction).buildAlgorithm();
+		algorithm.addInitialSolution(initialSolution);
+		algorithm.setMaxIterations(5);
+		VehicleRoutingProblemSolution bestSolution = Solutions.bestOf(algorithm.searchSolutions());
+		Assert.assertTrue(bestSolution.getUnassignedJobs().isEmpty());
+		Assert.assertTrue(bestSolution.getCost() < initialSolution.getCost());
+	}
+
+	private static void addShipment(Carrier carrier, String link, int size) {
+		CarrierShipment shipment = CarrierShipment.Builder
+				.newInstance(Id.create("Shipment_" + link, CarrierShipment.class), Id.createLinkId(link),
+						Id.createLinkId("j(9,9)"), size)
+				.setPickupServiceTime(60).setPickupTimeWindow(TimeWindow.newInstance(6 * 3600, 14 * 3600))
+				.setDeliveryTimeWindow(TimeWindow.newInstance(6 * 3600, 14 * 3600)).setDeliveryServiceTime(300)
+				.build();
+		carrier.getShipments().put(shipment.getId(), shipment);
+	}
+
+}